@@ -0,0 +1,60 @@
+#!/bin/bash
+# Startup time and memory of the plain jar, the AOT build and AOT with a CDS archive.
+#
+# Builds with the startup profile, extracts the jar, records a CDS archive with a training run
+# and then starts each variant a few times, measuring the time until /healthcheck answers and
+# the resident set size right after that.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+
+set -euo pipefail
+
+RUNS=${1:-3}
+PORT=${PORT:-8080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+cd "$ROOT"
+mvn -B -q clean package -Pstartup -DskipTests
+JAR=$(ls target/testdatagen-*.jar)
+
+java -Djarmode=tools -jar "$JAR" extract --destination "$WORK/app"
+cd "$WORK/app"
+mv testdatagen-*.jar app.jar
+java -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh -XX:ArchiveClassesAtExit=app.jsa -jar app.jar > /dev/null
+
+# Start the application, wait for /healthcheck and print "<millis> <rss MB>"
+measure() {
+	local start pid rss
+	start=$(date +%s%N)
+	java "$@" > "$WORK/app.log" 2>&1 &
+	pid=$!
+	until curl -sf "http://localhost:$PORT/healthcheck" > /dev/null; do
+		if ! kill -0 "$pid" 2> /dev/null; then
+			echo "Application exited, see log:" >&2
+			cat "$WORK/app.log" >&2
+			exit 1
+		fi
+		sleep 0.05
+	done
+	echo -n "$(( ($(date +%s%N) - start) / 1000000 )) "
+	rss=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+	echo "$(( rss / 1024 ))"
+	kill "$pid"
+	wait "$pid" 2> /dev/null || true
+}
+
+run() {
+	local name=$1
+	shift
+	for i in $(seq 1 "$RUNS"); do
+		# Command substitution waits for the application to stop before the next run
+		read -r millis rss <<< "$(measure "$@")"
+		printf "%-10s run %d: %6d ms %5d MB\n" "$name" "$i" "$millis" "$rss"
+	done
+}
+
+run "jar" -jar "$ROOT/$JAR"
+run "aot" -Dspring.aot.enabled=true -jar app.jar
+run "aot+cds" -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar app.jar
@@ -0,0 +1,60 @@
+package com.testdatagen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding cost of the bulk output formats, on pre-generated persons so generation is not measured.
+ * Reports rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark {
+
+	private static final int BATCH = 1000;
+
+	@Param({"csv", "json", "jsonl", "csv.gz", "columnar"})
+	public String format;
+
+	private OutputFormat outputFormat;
+	private PersonRecord[] persons;
+
+	@Setup
+	public void setup() {
+		outputFormat = OutputFormat.negotiate(format, null);
+		PostalCodeIndex postalCodes = new PostalCodeIndex();
+		PersonSpec spec = new PersonSpec(1950, 2000, postalCodes.all(), 42L, false, null);
+		PersonGenerator generator = new PersonGenerator(new PersonDictionary(), postalCodes, spec);
+		persons = new PersonRecord[BATCH];
+		for (int row = 0; row < BATCH; row++) {
+			persons[row] = new PersonRecord();
+			generator.next(row, persons[row]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public byte[] encodeBatch() {
+		OutputFormat.ChunkEncoder encoder = outputFormat.newEncoder(BATCH);
+		for (PersonRecord person : persons) {
+			encoder.add(person);
+		}
+		return encoder.finish();
+	}
+}
@@ -0,0 +1,119 @@
+package com.testdatagen;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row generation hot paths behind /RandomPerson, /RandomUUID and their streaming variants.
+ * Batch benchmarks report rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerationBenchmark {
+
+	private static final int BATCH = 1000;
+
+	private GenerationExecutor generation;
+	private SqlConnectionPools sqlPools;
+	private SqlInsertWriters insertWriters;
+	private TestdataGenApplication app;
+	private PersonSpec spec;
+	private PersonSpec seededSpec;
+	private PersonSpec uniqueSpec;
+
+	@Setup
+	public void setup() {
+		PostalCodeIndex postalCodes = new PostalCodeIndex();
+		generation = new GenerationExecutor(1, 1, "abort", 1);
+		MeterRegistry registry = new SimpleMeterRegistry();
+		sqlPools = new SqlConnectionPools(1, 1, 1, 0, 1000, registry);
+		PersonDictionary dictionary = new PersonDictionary();
+		PersonPool personPool = new PersonPool(dictionary, postalCodes, 0, 0);
+		DataFeed feed = new DataFeed(dictionary, postalCodes, generation, 2, 1);
+		insertWriters = new SqlInsertWriters(1, false);
+		app = new TestdataGenApplication(postalCodes, dictionary, new UniqueDatasets(1), new FieldPlans(1), personPool, feed,
+				generation, null, new GenerationMetrics(registry, generation, personPool, feed), sqlPools,
+				new SqlMasks(dictionary, postalCodes, "benchmark", 1), insertWriters);
+		spec = new PersonSpec(1950, 2000, postalCodes.all(), null, false, null);
+		seededSpec = new PersonSpec(1950, 2000, postalCodes.all(), 42L, false, null);
+	}
+
+	@Setup(Level.Iteration)
+	public void resetUnique() {
+		uniqueSpec = new PersonSpec(1950, 2000, spec.postal(), null, false, new ConcurrentBitSet(PersonnummerGenerator.SLOT_COUNT));
+	}
+
+	@TearDown
+	public void tearDown() {
+		generation.shutdown();
+		sqlPools.closeAll();
+		insertWriters.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public byte[] generatePersonBatch() {
+		return app.generatePersonBatch(0, BATCH, spec, OutputFormat.CSV);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public byte[] generatePersonBatchSeeded() {
+		return app.generatePersonBatch(0, BATCH, seededSpec, OutputFormat.CSV);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public byte[] generatePersonBatchUnique() {
+		return app.generatePersonBatch(0, BATCH, uniqueSpec, OutputFormat.CSV);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public byte[] generateUUIDBatch() {
+		return app.generateUUIDBatch(0, BATCH, null, false, UuidWriter.Version.V4, 0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public byte[] generateUUIDBatchSecure() {
+		return app.generateUUIDBatch(0, BATCH, null, true, UuidWriter.Version.V4, 0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public byte[] generateUUIDBatchV7() {
+		return app.generateUUIDBatch(0, BATCH, null, false, UuidWriter.Version.V7, UuidWriter.reserve(BATCH));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public byte[] generateUUIDBatchUlid() {
+		return app.generateUUIDBatch(0, BATCH, null, false, UuidWriter.Version.ULID, UuidWriter.reserve(BATCH));
+	}
+
+	@Benchmark
+	public StringBuilder randomEmail() {
+		return RandomFields.appendEmail(new StringBuilder(30), ThreadLocalRandom.current());
+	}
+}
@@ -0,0 +1,55 @@
+package com.testdatagen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Personnummer synthesis for a one-year and a hundred-year birth year range.
+ * Both formats are appended to a reused buffer, as in the CSV path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonnummerBenchmark {
+
+	@Param({"2000", "1901"})
+	int fromYear;
+
+	private PersonnummerGenerator generator;
+	private final StringBuilder buffer = new StringBuilder(32);
+
+	@Setup
+	public void setup() {
+		generator = new PersonnummerGenerator(fromYear, 2000);
+	}
+
+	@Benchmark
+	public int shortAndLong() {
+		buffer.setLength(0);
+		generator.next(ThreadLocalRandom.current());
+		generator.appendShort(buffer).append(';');
+		generator.appendLong(buffer);
+		return buffer.length();
+	}
+
+	@Benchmark
+	public String shortFormat() {
+		generator.next(ThreadLocalRandom.current());
+		return generator.shortFormat();
+	}
+}
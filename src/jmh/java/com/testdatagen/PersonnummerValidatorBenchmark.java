@@ -0,0 +1,59 @@
+package com.testdatagen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /ValidatePersonnummer on one block of short and long personnummer, as posted.
+ * Reports lines per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonnummerValidatorBenchmark {
+
+	private static final int LINES = 10000;
+
+	private final PersonnummerValidator validator = new PersonnummerValidator(LocalDate.now(), false);
+	private final ByteSink sink = new ByteSink(LINES * 48);
+	private byte[] block;
+
+	@Setup
+	public void setup() {
+		PersonnummerGenerator generator = new PersonnummerGenerator(1901, 2000);
+		SplittableRandom random = new SplittableRandom(42);
+		ByteArrayOutputStream lines = new ByteArrayOutputStream();
+		for (int line = 0; line < LINES; line++) {
+			generator.next(random);
+			String personnummer = line % 2 == 0 ? generator.shortFormat() : generator.longFormat();
+			lines.writeBytes((personnummer + "\n").getBytes(StandardCharsets.US_ASCII));
+		}
+		block = lines.toByteArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public int validateBlock() {
+		sink.reset();
+		validator.validate(block, 0, block.length, 1, sink);
+		return sink.size();
+	}
+}
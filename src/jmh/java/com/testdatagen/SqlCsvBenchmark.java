@@ -0,0 +1,88 @@
+package com.testdatagen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The /SQL CSV row loop against an in-memory H2 table, reported in rows per second. The masked
+ * variant maps personnummer (10000 distinct values, mostly cache hits), names and emails (all
+ * distinct, every one hashed and generated).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlCsvBenchmark {
+
+	private static final int ROWS = 100_000;
+	private static final byte[] KEY = "benchmark".getBytes(StandardCharsets.UTF_8);
+
+	private Connection connection;
+	private PersonDictionary dictionary;
+	private PostalCodeIndex postalCodes;
+
+	@Setup
+	public void setup() throws SQLException {
+		dictionary = new PersonDictionary();
+		postalCodes = new PostalCodeIndex();
+		connection = DriverManager.getConnection("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1", "sa", "");
+		try (Statement st = connection.createStatement()) {
+			st.execute("CREATE TABLE person(id BIGINT, personnummer VARCHAR(13), namn VARCHAR(50), email VARCHAR(50), created TIMESTAMP, amount DECIMAL(12,2))");
+			st.execute("INSERT INTO person SELECT X, '19850709-' || LPAD(MOD(X, 10000), 4, '0'), 'Namn ' || X, 'user' || X || '@example.com', " +
+					"CURRENT_TIMESTAMP, X / 100.0 FROM SYSTEM_RANGE(1, " + ROWS + ")");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public long rowLoop() throws SQLException, IOException {
+		try (PreparedStatement st = connection.prepareStatement("SELECT * FROM person")) {
+			st.setFetchSize(1000);
+			try (ResultSet rs = st.executeQuery()) {
+				return TestdataGenApplication.OraSQL(rs, Writer.nullWriter(), null);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public long maskedRowLoop() throws SQLException, IOException {
+		try (PreparedStatement st = connection.prepareStatement("SELECT * FROM person")) {
+			st.setFetchSize(1000);
+			try (ResultSet rs = st.executeQuery()) {
+				ResultMask mask = ResultMask.compile(Map.of("personnummer", "longPersonnummer", "namn", "namn", "email", "email"),
+						rs.getMetaData(), KEY, dictionary, postalCodes, 10000);
+				return TestdataGenApplication.OraSQL(rs, Writer.nullWriter(), mask);
+			}
+		}
+	}
+}
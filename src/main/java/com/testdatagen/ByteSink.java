@@ -0,0 +1,132 @@
+package com.testdatagen;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that encoders write to, with UTF-8 and varint helpers.
+ * Unlike {@link java.io.ByteArrayOutputStream} it is unsynchronized and encodes chars
+ * straight from a {@link CharSequence} without creating strings.
+ */
+final class ByteSink extends OutputStream {
+
+	private byte[] bytes;
+	private int size;
+
+	ByteSink(int initialCapacity) {
+		bytes = new byte[Math.max(16, initialCapacity)];
+	}
+
+	int size() {
+		return size;
+	}
+
+	void reset() {
+		size = 0;
+	}
+
+	byte[] toByteArray() {
+		return Arrays.copyOf(bytes, size);
+	}
+
+	@Override
+	public void write(int b) {
+		ensure(1);
+		bytes[size++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b) {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(byte[] b, int offset, int length) {
+		ensure(length);
+		System.arraycopy(b, offset, bytes, size, length);
+		size += length;
+	}
+
+	void write(ByteSink other) {
+		write(other.bytes, 0, other.size);
+	}
+
+	/**
+	 * Write chars [start, end) as UTF-8
+	 */
+	void writeUtf8(CharSequence chars, int start, int end) {
+		ensure(end - start);
+		for (int i = start; i < end; i++) {
+			char c = chars.charAt(i);
+			if (c < 0x80) {
+				if (size == bytes.length) ensure(end - i);
+				bytes[size++] = (byte) c;
+			} else {
+				writeNonAscii(chars, i, end);
+				if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) i++;
+			}
+		}
+	}
+
+	private void writeNonAscii(CharSequence chars, int i, int end) {
+		char c = chars.charAt(i);
+		ensure(4);
+		if (c < 0x800) {
+			bytes[size++] = (byte) (0xC0 | c >> 6);
+			bytes[size++] = (byte) (0x80 | c & 0x3F);
+		} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+			int codePoint = Character.toCodePoint(c, chars.charAt(i + 1));
+			bytes[size++] = (byte) (0xF0 | codePoint >> 18);
+			bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+			bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+			bytes[size++] = (byte) (0x80 | codePoint & 0x3F);
+		} else {
+			bytes[size++] = (byte) (0xE0 | c >> 12);
+			bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+			bytes[size++] = (byte) (0x80 | c & 0x3F);
+		}
+	}
+
+	/**
+	 * Number of bytes {@link #writeUtf8(CharSequence, int, int)} writes for chars [start, end)
+	 */
+	static int utf8Length(CharSequence chars, int start, int end) {
+		int length = end - start;
+		for (int i = start; i < end; i++) {
+			char c = chars.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					length += 1;
+				} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+					length += 2;
+					i++;
+				} else {
+					length += 2;
+				}
+			}
+		}
+		return length;
+	}
+
+	void writeUtf8(String s) {
+		writeUtf8(s, 0, s.length());
+	}
+
+	/**
+	 * Write an unsigned LEB128 varint
+	 */
+	void writeVarint(long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			bytes[size++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		bytes[size++] = (byte) value;
+	}
+
+	private void ensure(int extra) {
+		if (size + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+		}
+	}
+}
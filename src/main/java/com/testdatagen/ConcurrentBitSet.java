@@ -0,0 +1,140 @@
+package com.testdatagen;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe bitset over a fixed index range, allocated in pages on first use.
+ * <p>
+ * Used to remember which personnummer slots have been handed out: a 50-year birth range has
+ * about 18 million slots, which take 2.3 MB here instead of gigabytes of strings in a HashSet.
+ * Bits are only ever set, never cleared, so {@link #set(long)} is a single CAS loop.
+ */
+final class ConcurrentBitSet {
+
+	private static final int PAGE_BITS = 1 << 19;
+	private static final int PAGE_WORDS = PAGE_BITS / 64;
+
+	private final AtomicReferenceArray<AtomicLongArray> pages;
+	private final AtomicLong cardinality = new AtomicLong();
+
+	/**
+	 * @param size Number of bits, indexes are 0 to size - 1
+	 */
+	ConcurrentBitSet(long size) {
+		this.pages = new AtomicReferenceArray<>((int) ((size + PAGE_BITS - 1) / PAGE_BITS));
+	}
+
+	/**
+	 * Set a bit
+	 * @return true if the bit was clear before
+	 */
+	boolean set(long index) {
+		AtomicLongArray page = page((int) (index / PAGE_BITS));
+		int word = (int) (index % PAGE_BITS) >>> 6;
+		long mask = 1L << index;
+		long current;
+		do {
+			current = page.get(word);
+			if ((current & mask) != 0) {
+				return false;
+			}
+		} while (!page.compareAndSet(word, current, current | mask));
+		cardinality.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Set the first clear bit at or after start within [from, to), wrapping around to from
+	 * @return The index of the bit that was set, or -1 if every bit in the range is set
+	 */
+	long setNextClear(long from, long to, long start) {
+		for (long index = nextClear(start, to); index >= 0; index = nextClear(index + 1, to)) {
+			if (set(index)) {
+				return index;
+			}
+		}
+		for (long index = nextClear(from, start); index >= 0; index = nextClear(index + 1, start)) {
+			if (set(index)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	private long nextClear(long from, long to) {
+		long index = from;
+		while (index < to) {
+			AtomicLongArray page = pages.get((int) (index / PAGE_BITS));
+			if (page == null) {
+				return index;
+			}
+			int word = (int) (index % PAGE_BITS) >>> 6;
+			long clear = ~page.get(word) & (-1L << index);
+			if (clear != 0) {
+				long found = index - (index & 63) + Long.numberOfTrailingZeros(clear);
+				return found < to ? found : -1;
+			}
+			index = index - (index & 63) + 64;
+		}
+		return -1;
+	}
+
+	/**
+	 * Number of set bits in [from, to)
+	 */
+	long count(long from, long to) {
+		long count = 0;
+		long index = from;
+		while (index < to) {
+			int pageIndex = (int) (index / PAGE_BITS);
+			long pageEnd = Math.min(to, (long) (pageIndex + 1) * PAGE_BITS);
+			AtomicLongArray page = pages.get(pageIndex);
+			if (page != null) {
+				for (long word = index >>> 6; word << 6 < pageEnd; word++) {
+					long bits = page.get((int) (word % PAGE_WORDS));
+					long wordStart = word << 6;
+					if (wordStart < index) {
+						bits &= -1L << index;
+					}
+					if (wordStart + 64 > pageEnd) {
+						bits &= -1L >>> (wordStart + 64 - pageEnd);
+					}
+					count += Long.bitCount(bits);
+				}
+			}
+			index = pageEnd;
+		}
+		return count;
+	}
+
+	/**
+	 * Total number of set bits
+	 */
+	long cardinality() {
+		return cardinality.get();
+	}
+
+	/**
+	 * Bytes allocated for pages
+	 */
+	long allocatedBytes() {
+		long bytes = 0;
+		for (int i = 0; i < pages.length(); i++) {
+			if (pages.get(i) != null) {
+				bytes += PAGE_WORDS * 8L;
+			}
+		}
+		return bytes;
+	}
+
+	private AtomicLongArray page(int pageIndex) {
+		AtomicLongArray page = pages.get(pageIndex);
+		if (page == null) {
+			pages.compareAndSet(pageIndex, null, new AtomicLongArray(PAGE_WORDS));
+			page = pages.get(pageIndex);
+		}
+		return page;
+	}
+}
@@ -0,0 +1,268 @@
+package com.testdatagen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Paced, never-ending feeds of persons or UUIDs for load generator feeders.
+ * <p>
+ * All subscribers of a type take rows from one shared {@link MpmcRing} of pre-generated blocks of
+ * {@link #BLOCK_ROWS} encoded rows. When a subscriber leaves the ring below half full, a refill task
+ * on the shared generation pool tops it up, so generation runs in steady blocks instead of in bursts
+ * per request. If the ring is empty the subscriber generates its block itself. Every subscriber paces
+ * its own output with a {@link TokenBucket} and writes one batch per flush. Feed rows are random,
+ * never seeded, and every row goes to exactly one subscriber.
+ */
+@Component
+public class DataFeed {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DataFeed.class);
+
+	/**
+	 * Rows per pre-generated block
+	 */
+	static final int BLOCK_ROWS = 1000;
+
+	static final int MAX_RATE = 1_000_000;
+	static final int MAX_BATCH = 100_000;
+
+	private static final byte[] SSE_DATA = "data: ".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * What a feed emits
+	 */
+	enum Type {
+		PERSON, UUID
+	}
+
+	/**
+	 * Encoded rows, each ending with '\n'
+	 * @param rowEnds Offset after each row
+	 */
+	private record Block(byte[] bytes, int[] rowEnds) {
+		static Block of(byte[] bytes) {
+			int[] rowEnds = new int[BLOCK_ROWS];
+			int rows = 0;
+			for (int i = 0; i < bytes.length; i++) {
+				if (bytes[i] == '\n') {
+					rowEnds[rows++] = i + 1;
+				}
+			}
+			return new Block(bytes, rowEnds);
+		}
+
+		int rows() {
+			return rowEnds.length;
+		}
+
+		int rowStart(int row) {
+			return row == 0 ? 0 : rowEnds[row - 1];
+		}
+	}
+
+	private final GenerationExecutor generation;
+	private final Buffer persons;
+	private final Buffer uuids;
+	private final Semaphore admission;
+	private final int maxSubscribers;
+	private final LongAdder rowsSent = new LongAdder();
+
+	public DataFeed(PersonDictionary dictionary, PostalCodeIndex postalCodes, GenerationExecutor generation,
+			@Value("${testdatagen.feed.buffer-blocks:32}") int bufferBlocks,
+			@Value("${testdatagen.feed.max-subscribers:100}") int maxSubscribers) {
+		this.generation = generation;
+		this.maxSubscribers = maxSubscribers;
+		this.admission = new Semaphore(maxSubscribers);
+		this.persons = new Buffer(bufferBlocks, () -> personBlock(dictionary, postalCodes));
+		this.uuids = new Buffer(bufferBlocks, DataFeed::uuidBlock);
+	}
+
+	/**
+	 * Admit a subscriber
+	 * @return false if the maximum number of subscribers is already streaming
+	 */
+	boolean trySubscribe() {
+		return admission.tryAcquire();
+	}
+
+	/**
+	 * Release a subscription taken with {@link #trySubscribe()}, once its stream has ended or will not start
+	 */
+	void unsubscribe() {
+		admission.release();
+	}
+
+	/**
+	 * Write rows to a subscriber admitted with {@link #trySubscribe()}, paced to rate rows per second,
+	 * until count rows are written or the client disconnects. The caller releases the subscription with
+	 * {@link #unsubscribe()} when done.
+	 * @param batch Rows per flush
+	 * @param count Rows to write, or 0 for no limit
+	 * @param sse Write each batch as a server-sent event with one data line per row, instead of plain lines
+	 */
+	void stream(Type type, int rate, int batch, long count, boolean sse, OutputStream out) throws IOException {
+		Buffer buffer = type == Type.PERSON ? persons : uuids;
+		TokenBucket bucket = new TokenBucket(rate, batch);
+		ByteSink event = new ByteSink(sse ? batch * 64 : 16);
+		Block block = null;
+		int position = 0;
+		long sent = 0;
+		long start = System.currentTimeMillis();
+		try {
+			while (count <= 0 || sent < count) {
+				int rows = (int) (count <= 0 ? batch : Math.min(batch, count - sent));
+				bucket.acquire(rows);
+				event.reset();
+				for (int left = rows; left > 0; ) {
+					if (block == null || position == block.rows()) {
+						block = buffer.take();
+						position = 0;
+					}
+					int taken = Math.min(left, block.rows() - position);
+					if (sse) {
+						for (int row = position; row < position + taken; row++) {
+							event.write(SSE_DATA);
+							event.write(block.bytes(), block.rowStart(row), block.rowEnds()[row] - block.rowStart(row));
+						}
+					} else {
+						out.write(block.bytes(), block.rowStart(position), block.rowEnds()[position + taken - 1] - block.rowStart(position));
+					}
+					position += taken;
+					left -= taken;
+				}
+				if (sse) {
+					event.write('\n');
+					out.write(event.toByteArray());
+				}
+				out.flush();
+				sent += rows;
+				rowsSent.add(rows);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("feed interrupted");
+		} finally {
+			LOGGER.info("Feed of {} ended after {} rows in {} ms", type.name().toLowerCase(), sent, System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Subscribers currently streaming
+	 */
+	public int subscribers() {
+		return maxSubscribers - admission.availablePermits();
+	}
+
+	/**
+	 * Pre-generated blocks waiting in the buffers
+	 */
+	public int bufferedBlocks() {
+		return persons.ring.size() + uuids.ring.size();
+	}
+
+	/**
+	 * Rows written to subscribers since startup
+	 */
+	public long rowsSent() {
+		return rowsSent.sum();
+	}
+
+	/**
+	 * Blocks that subscribers generated themselves because the buffer was empty
+	 */
+	public long misses() {
+		return persons.misses.sum() + uuids.misses.sum();
+	}
+
+	/**
+	 * Shared pre-generated blocks of one type
+	 */
+	private final class Buffer {
+		private final MpmcRing<Block> ring;
+		private final Supplier<Block> generator;
+		private final AtomicBoolean refilling = new AtomicBoolean();
+		private final LongAdder misses = new LongAdder();
+
+		Buffer(int blocks, Supplier<Block> generator) {
+			this.ring = new MpmcRing<>(blocks);
+			this.generator = generator;
+		}
+
+		Block take() {
+			Block block = ring.poll();
+			if (ring.size() < ring.capacity() / 2) {
+				refill();
+			}
+			if (block == null) {
+				misses.increment();
+				block = generator.get();
+			}
+			return block;
+		}
+
+		/**
+		 * Top up the ring on the generation pool, unless a refill is already running
+		 */
+		private void refill() {
+			if (!refilling.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				generation.submit(() -> {
+					try {
+						while (ring.size() < ring.capacity()) {
+							if (!ring.offer(generator.get())) {
+								break;
+							}
+						}
+					} finally {
+						refilling.set(false);
+					}
+					return null;
+				});
+			} catch (RejectedExecutionException e) {
+				// The pool is busy: subscribers generate their own blocks until a later refill gets in
+				refilling.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Persons born 18 to 80 years ago, the default birth years of /RandomDataset
+	 */
+	private static Block personBlock(PersonDictionary dictionary, PostalCodeIndex postalCodes) {
+		int currentYear = Year.now().getValue();
+		PersonSpec spec = new PersonSpec(currentYear - 80, currentYear - 18, postalCodes.all(), null, false, null);
+		PersonGenerator generator = new PersonGenerator(dictionary, postalCodes, spec);
+		PersonRecord person = new PersonRecord();
+		OutputFormat.ChunkEncoder encoder = OutputFormat.CSV.newEncoder(BLOCK_ROWS);
+		for (int row = 0; row < BLOCK_ROWS; row++) {
+			generator.next(row, person);
+			encoder.add(person);
+		}
+		return Block.of(encoder.finish());
+	}
+
+	private static Block uuidBlock() {
+		RandomGenerator random = RandomFields.generator(null, false);
+		StringBuilder uuids = new StringBuilder(BLOCK_ROWS * 37);
+		for (int row = 0; row < BLOCK_ROWS; row++) {
+			RandomFields.appendUuid(uuids, random).append('\n');
+		}
+		return Block.of(uuids.toString().getBytes(StandardCharsets.US_ASCII));
+	}
+}
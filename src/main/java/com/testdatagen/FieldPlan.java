@@ -0,0 +1,360 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A dataset schema compiled into one appender per column.
+ * <p>
+ * The schema is a JSON array of columns, each with a {@code type} and an optional {@code name}:
+ * <ul>
+ *     <li>{@code field} - a person field, e.g. {@code {"type":"field","field":"Personnummer"}}</li>
+ *     <li>{@code constant} - the same {@code value} on every row</li>
+ *     <li>{@code int} - a whole number from {@code min} to {@code max}, inclusive</li>
+ *     <li>{@code date} - an ISO date from {@code from} to {@code to}, inclusive</li>
+ *     <li>{@code pattern} - a string matching {@code pattern}, see {@link #compilePattern(String)}</li>
+ *     <li>{@code oneOf} - one of {@code values}</li>
+ *     <li>{@code uuid} - a random UUID</li>
+ *     <li>{@code row} - the row number plus {@code start} (default 1)</li>
+ *     <li>{@code parent} - the parent row's number plus {@code start} (default 1), only in child tables of a
+ *     {@link RelationalPlan}</li>
+ * </ul>
+ * Parsing and validation happen once, in {@link #compile(JSONArray)}; filling a row only runs the
+ * appenders. A plan is immutable and shared by all batches of a request, and by later requests
+ * with the same schema through {@link FieldPlans}.
+ */
+final class FieldPlan {
+
+	private static final int MAX_COLUMNS = 200;
+	private static final int MAX_REPEAT = 1000;
+
+	private static final char[] DIGITS = "0123456789".toCharArray();
+	private static final char[] WORD = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+	private final String[] names;
+	private final Appender[] appenders;
+	private final boolean usesPerson;
+	private final boolean usesParent;
+
+	private FieldPlan(String[] names, Appender[] appenders, boolean usesPerson, boolean usesParent) {
+		this.names = names;
+		this.appenders = appenders;
+		this.usesPerson = usesPerson;
+		this.usesParent = usesParent;
+	}
+
+	/**
+	 * Appends one column's value for a row
+	 */
+	@FunctionalInterface
+	private interface Appender {
+		/**
+		 * @param parent Row number of the parent row, or -1 outside a child table
+		 * @param person The row's person, or null if the plan uses no person fields
+		 */
+		void append(StringBuilder chars, RandomGenerator random, long row, long parent, PersonRecord person);
+	}
+
+	/**
+	 * Compile a schema
+	 * @throws IllegalArgumentException With a message for a 400 response if the schema is invalid
+	 */
+	static FieldPlan compile(JSONArray columns) {
+		if (columns.isEmpty() || columns.length() > MAX_COLUMNS) {
+			throw new IllegalArgumentException("columns must list 1-" + MAX_COLUMNS + " columns");
+		}
+		String[] names = new String[columns.length()];
+		Appender[] appenders = new Appender[columns.length()];
+		boolean usesPerson = false;
+		boolean usesParent = false;
+		for (int column = 0; column < columns.length(); column++) {
+			JSONObject spec = columns.optJSONObject(column);
+			if (spec == null) {
+				throw new IllegalArgumentException("column " + (column + 1) + " must be an object");
+			}
+			try {
+				String type = spec.getString("type");
+				appenders[column] = compileColumn(type, spec);
+				usesPerson |= type.equals("field");
+				usesParent |= type.equals("parent");
+				names[column] = spec.optString("name", defaultName(type, spec));
+			} catch (JSONException | IllegalArgumentException e) {
+				throw new IllegalArgumentException("column " + (column + 1) + ": " + e.getMessage());
+			}
+		}
+		return new FieldPlan(names, appenders, usesPerson, usesParent);
+	}
+
+	private static Appender compileColumn(String type, JSONObject spec) {
+		return switch (type) {
+			case "field" -> personField(spec.getString("field"));
+			case "constant" -> {
+				String value = spec.get("value").toString();
+				yield (chars, random, row, parent, person) -> chars.append(value);
+			}
+			case "int" -> {
+				long min = spec.getLong("min");
+				long max = spec.getLong("max");
+				if (min > max || max == Long.MAX_VALUE) {
+					throw new IllegalArgumentException("min must not be greater than max");
+				}
+				yield (chars, random, row, parent, person) -> chars.append(random.nextLong(min, max + 1));
+			}
+			case "date" -> {
+				long from = parseDate(spec.getString("from"));
+				long to = parseDate(spec.getString("to"));
+				if (from > to) {
+					throw new IllegalArgumentException("from must not be after to");
+				}
+				yield (chars, random, row, parent, person) -> appendDate(chars, random.nextLong(from, to + 1));
+			}
+			case "pattern" -> compilePattern(spec.getString("pattern"));
+			case "oneOf" -> {
+				JSONArray values = spec.getJSONArray("values");
+				if (values.isEmpty()) {
+					throw new IllegalArgumentException("values must not be empty");
+				}
+				String[] choices = new String[values.length()];
+				for (int i = 0; i < choices.length; i++) {
+					choices[i] = values.get(i).toString();
+				}
+				yield (chars, random, row, parent, person) -> chars.append(choices[random.nextInt(choices.length)]);
+			}
+			case "uuid" -> (chars, random, row, parent, person) -> RandomFields.appendUuid(chars, random);
+			case "row" -> {
+				long start = spec.optLong("start", 1);
+				yield (chars, random, row, parent, person) -> chars.append(row + start);
+			}
+			case "parent" -> {
+				long start = spec.optLong("start", 1);
+				yield (chars, random, row, parent, person) -> chars.append(parent + start);
+			}
+			default -> throw new IllegalArgumentException(
+					"type must be field, constant, int, date, pattern, oneOf, uuid, row or parent");
+		};
+	}
+
+	private static Appender personField(String name) {
+		for (int index = 0; index < PersonRecord.FIELDS.length; index++) {
+			if (PersonRecord.FIELDS[index].equals(name)) {
+				int field = index;
+				return (chars, random, row, parent, person) ->
+						chars.append(person.buffer(), person.start(field), person.end(field));
+			}
+		}
+		throw new IllegalArgumentException("field must be one of " + String.join(", ", PersonRecord.FIELDS));
+	}
+
+	private static String defaultName(String type, JSONObject spec) {
+		return type.equals("field") ? spec.getString("field") : type;
+	}
+
+	private static long parseDate(String date) {
+		try {
+			return LocalDate.parse(date).toEpochDay();
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("dates must be in the format yyyy-MM-dd");
+		}
+	}
+
+	private static void appendDate(StringBuilder chars, long epochDay) {
+		LocalDate date = LocalDate.ofEpochDay(epochDay);
+		chars.append(date.getYear()).append('-');
+		if (date.getMonthValue() < 10) chars.append('0');
+		chars.append(date.getMonthValue()).append('-');
+		if (date.getDayOfMonth() < 10) chars.append('0');
+		chars.append(date.getDayOfMonth());
+	}
+
+	/**
+	 * Compile a regex-like pattern into a sequence of character choices. Supported:
+	 * literal characters, {@code \d} (digit), {@code \w} (letter or digit), {@code .} (letter or digit),
+	 * {@code \} to escape any other character, classes such as {@code [A-Z0-9_]}, and the quantifiers
+	 * {@code ?}, {@code {n}} and {@code {n,m}}. Unbounded quantifiers and alternation are not supported.
+	 */
+	private static Appender compilePattern(String pattern) {
+		List<char[]> alphabets = new ArrayList<>();
+		List<int[]> repeats = new ArrayList<>();
+		int i = 0;
+		while (i < pattern.length()) {
+			char c = pattern.charAt(i++);
+			char[] alphabet;
+			if (c == '\\') {
+				if (i == pattern.length()) {
+					throw new IllegalArgumentException("pattern ends with \\");
+				}
+				char escaped = pattern.charAt(i++);
+				alphabet = switch (escaped) {
+					case 'd' -> DIGITS;
+					case 'w' -> WORD;
+					default -> new char[]{escaped};
+				};
+			} else if (c == '[') {
+				int end = pattern.indexOf(']', i);
+				if (end < 0) {
+					throw new IllegalArgumentException("pattern has an unclosed [");
+				}
+				alphabet = characterClass(pattern.substring(i, end));
+				i = end + 1;
+			} else if (c == '.') {
+				alphabet = WORD;
+			} else if ("*+(){}|]".indexOf(c) >= 0) {
+				throw new IllegalArgumentException("pattern supports literals, \\d, \\w, ., [...], ?, {n} and {n,m}, not " + c);
+			} else {
+				alphabet = new char[]{c};
+			}
+
+			int min = 1;
+			int max = 1;
+			if (i < pattern.length() && pattern.charAt(i) == '?') {
+				min = 0;
+				i++;
+			} else if (i < pattern.length() && pattern.charAt(i) == '{') {
+				int end = pattern.indexOf('}', i);
+				if (end < 0) {
+					throw new IllegalArgumentException("pattern has an unclosed {");
+				}
+				String[] bounds = pattern.substring(i + 1, end).split(",", -1);
+				try {
+					min = Integer.parseInt(bounds[0].trim());
+					max = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : min;
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("pattern quantifiers must be {n} or {n,m}");
+				}
+				if (bounds.length > 2 || min < 0 || min > max || max > MAX_REPEAT) {
+					throw new IllegalArgumentException("pattern quantifiers must be {n} or {n,m} with 0 <= n <= m <= " + MAX_REPEAT);
+				}
+				i = end + 1;
+			}
+			alphabets.add(alphabet);
+			repeats.add(new int[]{min, max});
+		}
+
+		char[][] steps = alphabets.toArray(new char[0][]);
+		int[][] counts = repeats.toArray(new int[0][]);
+		return (chars, random, row, parent, person) -> {
+			for (int step = 0; step < steps.length; step++) {
+				char[] alphabet = steps[step];
+				int min = counts[step][0];
+				int max = counts[step][1];
+				int times = min == max ? min : random.nextInt(min, max + 1);
+				for (int n = 0; n < times; n++) {
+					chars.append(alphabet.length == 1 ? alphabet[0] : alphabet[random.nextInt(alphabet.length)]);
+				}
+			}
+		};
+	}
+
+	private static char[] characterClass(String members) {
+		if (members.isEmpty() || members.startsWith("^")) {
+			throw new IllegalArgumentException("pattern classes must list characters and cannot be negated");
+		}
+		StringBuilder alphabet = new StringBuilder();
+		for (int i = 0; i < members.length(); i++) {
+			char c = members.charAt(i);
+			if (c == '\\' && i + 1 < members.length()) {
+				char escaped = members.charAt(++i);
+				alphabet.append(escaped == 'd' ? new String(DIGITS) : escaped == 'w' ? new String(WORD) : String.valueOf(escaped));
+			} else if (i + 2 < members.length() && members.charAt(i + 1) == '-') {
+				char last = members.charAt(i + 2);
+				if (last < c) {
+					throw new IllegalArgumentException("pattern has an invalid range " + c + "-" + last);
+				}
+				for (char member = c; member <= last; member++) {
+					alphabet.append(member);
+				}
+				i += 2;
+			} else {
+				alphabet.append(c);
+			}
+		}
+		return alphabet.chars().distinct().collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+				.toString().toCharArray();
+	}
+
+	/**
+	 * Column names, in output order
+	 */
+	String[] names() {
+		return names.clone();
+	}
+
+	int size() {
+		return appenders.length;
+	}
+
+	/**
+	 * Whether the plan has a {@code parent} column, which only child tables of a {@link RelationalPlan} can fill
+	 */
+	boolean usesParent() {
+		return usesParent;
+	}
+
+	/**
+	 * Row source for one batch, to be used on the thread that generates the batch
+	 */
+	Rows rows(PersonSpec spec, PersonDictionary dictionary, PostalCodeIndex postalCodes) {
+		return new Rows(spec, dictionary, postalCodes);
+	}
+
+	/**
+	 * Generates the rows of a plan, together with the persons behind its {@code field} columns
+	 */
+	final class Rows {
+		private final PersonGenerator persons;
+		private final PersonRecord person;
+		private final RandomGenerator random;
+		private final PersonRecord row = new PersonRecord(appenders.length);
+
+		private Rows(PersonSpec spec, PersonDictionary dictionary, PostalCodeIndex postalCodes) {
+			this.persons = usesPerson ? new PersonGenerator(dictionary, postalCodes, spec) : null;
+			this.person = usesPerson ? new PersonRecord() : null;
+			// Own stream for the schema columns, so person fields stay equal to /RandomPerson with the same seed
+			this.random = RandomFields.generator(spec.seed() == null ? null : ~spec.seed(), spec.secure());
+		}
+
+		/**
+		 * Generate a row
+		 * @param rowNumber Row number, which together with the seed determines the values of a seeded request
+		 * @return The row, overwritten by the next call
+		 */
+		PersonRecord next(long rowNumber) {
+			return next(rowNumber, -1);
+		}
+
+		/**
+		 * Generate a row of a child table
+		 * @param parentRow Row number of the parent row, for {@code parent} columns
+		 * @return The row, overwritten by the next call
+		 */
+		PersonRecord next(long rowNumber, long parentRow) {
+			if (persons != null) {
+				persons.next(rowNumber, person);
+			}
+			if (random instanceof SeededRandom seeded) {
+				seeded.seek(rowNumber);
+			}
+			row.clear();
+			StringBuilder chars = row.chars();
+			for (Appender appender : appenders) {
+				appender.append(chars, random, rowNumber, parentRow, person);
+				row.endField();
+			}
+			return row;
+		}
+
+		/**
+		 * See {@link PersonGenerator#rejectedDraws()}
+		 */
+		long rejectedDraws() {
+			return persons != null ? persons.rejectedDraws() : 0;
+		}
+	}
+}
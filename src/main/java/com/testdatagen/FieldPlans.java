@@ -0,0 +1,66 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled dataset schemas, kept in a least recently used cache keyed by a SHA-256 hash of the
+ * schema, so load tests posting the same schema over and over compile it only once.
+ */
+@Component
+public class FieldPlans {
+
+	private final Map<String, FieldPlan> plans;
+
+	public FieldPlans(@Value("${testdatagen.schema.cache-size:100}") int cacheSize) {
+		this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, FieldPlan> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * The compiled plan of a schema, compiling it on first use
+	 * @throws IllegalArgumentException With a message for a 400 response if the schema is invalid
+	 */
+	FieldPlan plan(JSONArray columns) {
+		String key = hash(columns.toString());
+		synchronized (plans) {
+			FieldPlan plan = plans.get(key);
+			if (plan != null) {
+				return plan;
+			}
+		}
+		// Compile outside the lock; two requests racing on a new schema both compile it once
+		FieldPlan plan = FieldPlan.compile(columns);
+		synchronized (plans) {
+			plans.put(key, plan);
+		}
+		return plan;
+	}
+
+	int size() {
+		synchronized (plans) {
+			return plans.size();
+		}
+	}
+
+	private static String hash(String schema) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(schema.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.testdatagen;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application-wide worker pool for CPU-bound data generation.
+ * <p>
+ * All generation endpoints share one fixed-size pool with a bounded queue instead of creating
+ * a thread pool per request. Requests must first be admitted with {@link #tryAcquire()}; when
+ * the configured number of concurrent generation requests is reached, new requests are turned
+ * away up front rather than queueing behind the running ones.
+ */
+@Component
+public class GenerationExecutor {
+
+	private final ThreadPoolExecutor executor;
+	private final Semaphore admission;
+	private final int poolSize;
+	private final int maxConcurrentRequests;
+	private final LongAdder refusedRequests = new LongAdder();
+	private final LongAdder rejectedTasks = new LongAdder();
+
+	public GenerationExecutor(
+			@Value("${testdatagen.generation.pool-size:0}") int poolSize,
+			@Value("${testdatagen.generation.queue-capacity:1000}") int queueCapacity,
+			@Value("${testdatagen.generation.rejection-policy:abort}") String rejectionPolicy,
+			@Value("${testdatagen.generation.max-concurrent-requests:0}") int maxConcurrentRequests) {
+		this.poolSize = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+		this.executor = new ThreadPoolExecutor(this.poolSize, this.poolSize, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new GenerationThreadFactory(), counting(rejectionHandler(rejectionPolicy)));
+		this.maxConcurrentRequests = maxConcurrentRequests > 0 ? maxConcurrentRequests : this.poolSize * 2;
+		this.admission = new Semaphore(this.maxConcurrentRequests);
+	}
+
+	private static RejectedExecutionHandler rejectionHandler(String policy) {
+		return switch (policy) {
+			case "abort" -> new ThreadPoolExecutor.AbortPolicy();
+			case "caller-runs" -> new ThreadPoolExecutor.CallerRunsPolicy();
+			default -> throw new IllegalArgumentException(
+					"testdatagen.generation.rejection-policy must be abort or caller-runs, was: " + policy);
+		};
+	}
+
+	private RejectedExecutionHandler counting(RejectedExecutionHandler handler) {
+		return (task, executor) -> {
+			rejectedTasks.increment();
+			handler.rejectedExecution(task, executor);
+		};
+	}
+
+	/**
+	 * Admit a generation request
+	 * @return false if the maximum number of concurrent generation requests is already running
+	 */
+	public boolean tryAcquire() {
+		if (admission.tryAcquire()) {
+			return true;
+		}
+		refusedRequests.increment();
+		return false;
+	}
+
+	/**
+	 * Admit a background generation request, waiting while the maximum number of
+	 * concurrent generation requests is running
+	 */
+	public void acquire() throws InterruptedException {
+		admission.acquire();
+	}
+
+	/**
+	 * Release a request admitted with {@link #tryAcquire()} or {@link #acquire()}
+	 */
+	public void release() {
+		admission.release();
+	}
+
+	/**
+	 * Submit a generation task
+	 * @throws java.util.concurrent.RejectedExecutionException if the queue is full and the policy is abort
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return executor.submit(task);
+	}
+
+	/**
+	 * Number of worker threads, the upper bound for useful parallelism per request
+	 */
+	public int poolSize() {
+		return poolSize;
+	}
+
+	public int queueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int activeThreads() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * Generation requests currently admitted
+	 */
+	public int activeRequests() {
+		return maxConcurrentRequests - admission.availablePermits();
+	}
+
+	/**
+	 * Requests turned away by {@link #tryAcquire()} since startup
+	 */
+	public long refusedRequests() {
+		return refusedRequests.sum();
+	}
+
+	/**
+	 * Tasks that did not fit in the queue since startup, rejected or run on the caller depending on the policy
+	 */
+	public long rejectedTasks() {
+		return rejectedTasks.sum();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private static class GenerationThreadFactory implements ThreadFactory {
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "generation-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
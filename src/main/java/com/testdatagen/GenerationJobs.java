@@ -0,0 +1,324 @@
+package com.testdatagen;
+
+import jakarta.annotation.PreDestroy;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background generation jobs whose results are written to files.
+ * <p>
+ * A job runs on one of a few job threads, which write the chunks produced by the generation pool
+ * sequentially to a file channel. The result is downloaded once the job is done, with range
+ * requests if wanted. Jobs with a cache key (seeded requests) are reused when the same key is
+ * submitted again. Finished jobs and their files are kept until deleted, or until the maximum
+ * number of jobs is reached and the oldest finished job is evicted. A download holds a lease on
+ * its job: leased jobs are not evicted, and the file of a leased job that is deleted is only
+ * removed when its last download ends.
+ */
+@Component
+public class GenerationJobs {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GenerationJobs.class);
+
+	enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+	private final Map<String, Job> jobs = new LinkedHashMap<>();
+	private final Map<String, Job> cache = new LinkedHashMap<>();
+	private final ExecutorService runners;
+	private final Path directory;
+	private final boolean temporaryDirectory;
+	private final int maxJobs;
+
+	public GenerationJobs(
+			@Value("${testdatagen.jobs.dir:}") String directory,
+			@Value("${testdatagen.jobs.concurrency:1}") int concurrency,
+			@Value("${testdatagen.jobs.max-jobs:50}") int maxJobs) throws IOException {
+		this.temporaryDirectory = directory.isBlank();
+		this.directory = temporaryDirectory
+				? Files.createTempDirectory("testdatagen-jobs")
+				: Files.createDirectories(Path.of(directory));
+		this.maxJobs = maxJobs;
+		AtomicInteger counter = new AtomicInteger();
+		this.runners = Executors.newFixedThreadPool(concurrency, runnable -> {
+			Thread thread = new Thread(runnable, "generation-job-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Writes the result of a job
+	 */
+	@FunctionalInterface
+	interface JobBody {
+		void writeTo(OutputStream out, Job job) throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Start a job, or return the job already started for the same cache key
+	 * @param cacheKey Identifies the result for reuse, or null if the result is random
+	 * @return The job, or null if the maximum number of jobs is reached and none has finished
+	 */
+	synchronized Job submit(String cacheKey, OutputFormat format, long rows, JobBody body) {
+		if (cacheKey != null) {
+			Job cached = cache.get(cacheKey);
+			if (cached != null && cached.status != Status.FAILED) {
+				cached.hits.incrementAndGet();
+				return cached;
+			}
+		}
+		if (jobs.size() >= maxJobs && !evictOldestFinished()) {
+			return null;
+		}
+
+		String id = UUID.randomUUID().toString();
+		Job job = new Job(id, cacheKey, format, rows, directory.resolve(id + "." + format.extension()));
+		jobs.put(id, job);
+		if (cacheKey != null) {
+			cache.put(cacheKey, job);
+		}
+		job.runner = runners.submit(() -> run(job, body));
+		return job;
+	}
+
+	private void run(Job job, JobBody body) {
+		Path part = job.file.resolveSibling(job.file.getFileName() + ".part");
+		job.status = Status.RUNNING;
+		job.started = Instant.now();
+		try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			OutputStream out = Channels.newOutputStream(channel);
+			body.writeTo(out, job);
+			out.flush();
+			job.bytes = channel.size();
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			fail(job, part, e);
+			return;
+		}
+
+		try {
+			Files.move(part, job.file, StandardCopyOption.ATOMIC_MOVE);
+			job.finished = Instant.now();
+			job.status = Status.DONE;
+			LOGGER.info("Job {} done: {} rows, {} bytes", job.id, job.rows, job.bytes);
+		} catch (IOException e) {
+			fail(job, part, e);
+		}
+	}
+
+	private void fail(Job job, Path part, Exception e) {
+		job.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+		job.finished = Instant.now();
+		job.status = Status.FAILED;
+		deleteQuietly(part);
+		// Deleted jobs are cancelled by interrupting the job thread
+		if (!Thread.currentThread().isInterrupted()) {
+			LOGGER.warn("Job {} failed: {}", job.id, job.error);
+		}
+	}
+
+	/**
+	 * Evict the oldest finished job that is not being downloaded, to make room
+	 * @return false if every job is still queued, running or being downloaded
+	 */
+	private boolean evictOldestFinished() {
+		Iterator<Job> iterator = jobs.values().iterator();
+		while (iterator.hasNext()) {
+			Job job = iterator.next();
+			if ((job.status == Status.DONE || job.status == Status.FAILED) && job.downloads == 0) {
+				iterator.remove();
+				discard(job);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	synchronized Job get(String id) {
+		return jobs.get(id);
+	}
+
+	/**
+	 * Get a job and lease its result for a download, so that the file is not deleted while it is read
+	 * @return The job, or null if there is no such job; every lease must be given back with {@link #release(Job)}
+	 */
+	synchronized Job lease(String id) {
+		Job job = jobs.get(id);
+		if (job != null) {
+			job.downloads++;
+		}
+		return job;
+	}
+
+	/**
+	 * End a download leased with {@link #lease(String)}, deleting the file if the job was deleted meanwhile
+	 */
+	synchronized void release(Job job) {
+		if (--job.downloads == 0 && job.discarded) {
+			deleteQuietly(job.file);
+		}
+	}
+
+	/**
+	 * Cancel a job if it is running and delete its result
+	 * @return false if there was no such job
+	 */
+	synchronized boolean remove(String id) {
+		Job job = jobs.remove(id);
+		if (job == null) {
+			return false;
+		}
+		discard(job);
+		return true;
+	}
+
+	private void discard(Job job) {
+		if (job.cacheKey != null) {
+			cache.remove(job.cacheKey, job);
+		}
+		job.runner.cancel(true);
+		job.discarded = true;
+		if (job.downloads == 0) {
+			deleteQuietly(job.file);
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			LOGGER.warn("Could not delete {}: {}", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * All jobs as a JSON array, oldest first
+	 */
+	synchronized JSONArray stats() {
+		JSONArray result = new JSONArray();
+		jobs.values().forEach(job -> result.put(job.toJson()));
+		return result;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		runners.shutdownNow();
+		jobs.values().forEach(this::discard);
+		// Downloads still running at shutdown are cut off
+		jobs.values().forEach(job -> deleteQuietly(job.file));
+		jobs.clear();
+		if (temporaryDirectory) {
+			deleteQuietly(directory);
+		}
+	}
+
+	/**
+	 * One generation job. Status and progress are written by the job thread and read by requests.
+	 */
+	static final class Job {
+		private final String id;
+		private final String cacheKey;
+		private final OutputFormat format;
+		private final long rows;
+		private final Path file;
+		private final Instant created = Instant.now();
+		private final AtomicLong rowsGenerated = new AtomicLong();
+		private final AtomicLong hits = new AtomicLong();
+		private Future<?> runner;
+		private volatile Status status = Status.QUEUED;
+		private volatile Instant started;
+		private volatile Instant finished;
+		private volatile long bytes;
+		private volatile String error;
+		// Guarded by GenerationJobs
+		private int downloads;
+		private boolean discarded;
+
+		private Job(String id, String cacheKey, OutputFormat format, long rows, Path file) {
+			this.id = id;
+			this.cacheKey = cacheKey;
+			this.format = format;
+			this.rows = rows;
+			this.file = file;
+		}
+
+		/**
+		 * Report progress
+		 */
+		void addRows(int generated) {
+			rowsGenerated.addAndGet(generated);
+		}
+
+		String id() {
+			return id;
+		}
+
+		OutputFormat format() {
+			return format;
+		}
+
+		Status status() {
+			return status;
+		}
+
+		Path file() {
+			return file;
+		}
+
+		/**
+		 * Number of times the job was reused for an identical request
+		 */
+		long hits() {
+			return hits.get();
+		}
+
+		JSONObject toJson() {
+			JSONObject json = new JSONObject();
+			json.put("id", id);
+			json.put("status", status.name().toLowerCase());
+			json.put("format", format.extension());
+			json.put("rows", rows);
+			json.put("rowsGenerated", rowsGenerated.get());
+			json.put("progress", rows == 0 ? 1.0 : Math.round(rowsGenerated.get() * 1000.0 / rows) / 1000.0);
+			json.put("reusable", cacheKey != null);
+			json.put("hits", hits.get());
+			json.put("created", created.toString());
+			if (started != null) {
+				json.put("started", started.toString());
+			}
+			if (finished != null) {
+				json.put("finished", finished.toString());
+			}
+			if (status == Status.DONE) {
+				json.put("bytes", bytes);
+				json.put("result", "/jobs/" + id + "/result");
+			}
+			if (error != null) {
+				json.put("error", error);
+			}
+			return json;
+		}
+	}
+}
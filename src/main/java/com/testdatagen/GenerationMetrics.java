@@ -0,0 +1,204 @@
+package com.testdatagen;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for generation throughput and latency, exported at /actuator/prometheus.
+ * <ul>
+ *     <li>{@code testdatagen.rows} - rows generated, counted per batch so rate() follows long streams live</li>
+ *     <li>{@code testdatagen.batch} - latency histogram of one generation batch</li>
+ *     <li>{@code testdatagen.request} / {@code testdatagen.request.rows} - duration and size of each request per endpoint</li>
+ *     <li>{@code testdatagen.personnummer.rejected} - unique-mode personnummer draws thrown away as already taken</li>
+ *     <li>{@code testdatagen.executor.*} - generation pool queue depth, busy threads and turned away work</li>
+ *     <li>{@code testdatagen.person.pool.*} - warm pool of /RandomPersonJson: pooled persons, hits and misses</li>
+ *     <li>{@code testdatagen.feed.*} - /RandomFeed subscribers, buffered blocks, rows sent and buffer misses</li>
+ *     <li>{@code testdatagen.sql.masked} - /SQL values masked, by whether the mapping was cached</li>
+ * </ul>
+ * Connection pool meters of /SQL are registered by Hikari itself as {@code hikaricp.*}.
+ */
+@Component
+public class GenerationMetrics {
+
+	static final String PERSON = "person";
+	static final String UUID = "uuid";
+	static final String DATASET = "dataset";
+	static final String SQL = "sql";
+	static final String INSERT = "insert";
+	static final String VALIDATE = "validate";
+
+	private final MeterRegistry registry;
+	private final Counter personRows;
+	private final Counter uuidRows;
+	private final Counter datasetRows;
+	private final Counter sqlRows;
+	private final Counter insertedRows;
+	private final Counter validatedRows;
+	private final Counter invalidPersonnummer;
+	private final Timer personBatches;
+	private final Timer uuidBatches;
+	private final Timer datasetBatches;
+	private final Counter rejectedDraws;
+	private final Counter maskedHits;
+	private final Counter maskedMisses;
+
+	public GenerationMetrics(MeterRegistry registry, GenerationExecutor generation, PersonPool personPool, DataFeed feed) {
+		this.registry = registry;
+		this.personRows = rows(PERSON);
+		this.uuidRows = rows(UUID);
+		this.datasetRows = rows(DATASET);
+		this.sqlRows = rows(SQL);
+		this.insertedRows = rows(INSERT);
+		this.validatedRows = rows(VALIDATE);
+		this.invalidPersonnummer = Counter.builder("testdatagen.personnummer.invalid")
+				.description("Lines posted to /ValidatePersonnummer that were not a valid personnummer")
+				.register(registry);
+		this.personBatches = batches(PERSON);
+		this.uuidBatches = batches(UUID);
+		this.datasetBatches = batches(DATASET);
+		this.rejectedDraws = Counter.builder("testdatagen.personnummer.rejected")
+				.description("Unique-mode personnummer draws rejected because they were already taken")
+				.register(registry);
+		this.maskedHits = masked("hit");
+		this.maskedMisses = masked("miss");
+
+		Gauge.builder("testdatagen.executor.queue.depth", generation, GenerationExecutor::queueDepth)
+				.description("Generation batches waiting for a worker")
+				.register(registry);
+		Gauge.builder("testdatagen.executor.active.threads", generation, GenerationExecutor::activeThreads)
+				.description("Workers generating a batch")
+				.register(registry);
+		Gauge.builder("testdatagen.executor.pool.size", generation, GenerationExecutor::poolSize)
+				.register(registry);
+		Gauge.builder("testdatagen.executor.active.requests", generation, GenerationExecutor::activeRequests)
+				.description("Generation requests currently admitted")
+				.register(registry);
+		FunctionCounter.builder("testdatagen.executor.refused.requests", generation, GenerationExecutor::refusedRequests)
+				.description("Requests answered 429 because too many generation requests were running")
+				.register(registry);
+		FunctionCounter.builder("testdatagen.executor.rejected.tasks", generation, GenerationExecutor::rejectedTasks)
+				.description("Batches that did not fit in the queue")
+				.register(registry);
+
+		Gauge.builder("testdatagen.person.pool.size", personPool, PersonPool::size)
+				.description("Pre-generated persons waiting in the pool")
+				.register(registry);
+		FunctionCounter.builder("testdatagen.person.pool.requests", personPool, PersonPool::hits)
+				.description("Single-person requests by whether the pool had a person ready")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("testdatagen.person.pool.requests", personPool, PersonPool::misses)
+				.description("Single-person requests by whether the pool had a person ready")
+				.tag("result", "miss")
+				.register(registry);
+
+		Gauge.builder("testdatagen.feed.subscribers", feed, DataFeed::subscribers)
+				.description("Clients connected to /RandomFeed")
+				.register(registry);
+		Gauge.builder("testdatagen.feed.buffer.blocks", feed, DataFeed::bufferedBlocks)
+				.description("Pre-generated feed blocks waiting in the shared buffers")
+				.register(registry);
+		FunctionCounter.builder("testdatagen.feed.rows", feed, DataFeed::rowsSent)
+				.description("Rows written to /RandomFeed subscribers")
+				.register(registry);
+		FunctionCounter.builder("testdatagen.feed.misses", feed, DataFeed::misses)
+				.description("Feed blocks generated by a subscriber because the shared buffer was empty")
+				.register(registry);
+	}
+
+	private Counter rows(String type) {
+		return Counter.builder("testdatagen.rows")
+				.description("Rows generated")
+				.tag("type", type)
+				.register(registry);
+	}
+
+	private Counter masked(String result) {
+		return Counter.builder("testdatagen.sql.masked")
+				.description("Values masked in /SQL results, by whether the mapping was in the column's cache")
+				.tag("result", result)
+				.register(registry);
+	}
+
+	private Timer batches(String type) {
+		return Timer.builder("testdatagen.batch")
+				.description("Time to generate and encode one batch of rows")
+				.tag("type", type)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	/**
+	 * Record one generated batch
+	 * @param type {@link #PERSON}, {@link #UUID} or {@link #DATASET}
+	 */
+	void batch(String type, long nanos, int rows) {
+		if (PERSON.equals(type)) {
+			personBatches.record(nanos, TimeUnit.NANOSECONDS);
+			personRows.increment(rows);
+		} else if (DATASET.equals(type)) {
+			datasetBatches.record(nanos, TimeUnit.NANOSECONDS);
+			datasetRows.increment(rows);
+		} else {
+			uuidBatches.record(nanos, TimeUnit.NANOSECONDS);
+			uuidRows.increment(rows);
+		}
+	}
+
+	void rejectedDraws(long draws) {
+		if (draws > 0) {
+			rejectedDraws.increment(draws);
+		}
+	}
+
+	void sqlRows(long rows) {
+		sqlRows.increment(rows);
+	}
+
+	/**
+	 * Rows committed by /SQL/insert
+	 */
+	void insertedRows(long rows) {
+		insertedRows.increment(rows);
+	}
+
+	/**
+	 * Values masked in one /SQL result
+	 */
+	void maskedValues(long hits, long misses) {
+		maskedHits.increment(hits);
+		maskedMisses.increment(misses);
+	}
+
+	/**
+	 * Lines checked by /ValidatePersonnummer
+	 */
+	void validatedRows(long rows, long invalid) {
+		validatedRows.increment(rows);
+		invalidPersonnummer.increment(invalid);
+	}
+
+	/**
+	 * Record a finished request
+	 * @param endpoint Endpoint name, such as RandomPerson
+	 */
+	void request(String endpoint, long millis, long rows) {
+		Timer.builder("testdatagen.request")
+				.description("Duration of a generation request, from admission to the last row")
+				.tag("endpoint", endpoint)
+				.register(registry)
+				.record(millis, TimeUnit.MILLISECONDS);
+		DistributionSummary.builder("testdatagen.request.rows")
+				.description("Rows returned per request")
+				.tag("endpoint", endpoint)
+				.register(registry)
+				.record(rows);
+	}
+}
@@ -0,0 +1,101 @@
+package com.testdatagen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a stream in blocks of whole lines, so that the blocks can be processed in parallel.
+ * <p>
+ * A block ends after its last line break and the rest of the bytes are carried over to the start
+ * of the next block. A line longer than a block is cut: its first block of bytes is returned as a
+ * line of its own and the rest is skipped, so memory use is bounded by the block size. Line
+ * numbers count every line, including blank ones.
+ */
+final class LineBlockReader {
+
+	/**
+	 * Bytes [from, to) of bytes hold whole lines, the first of them line firstLine counting from 1
+	 */
+	record Block(byte[] bytes, int from, int to, long firstLine) {
+	}
+
+	private final InputStream in;
+	private final int blockSize;
+	private byte[] tail = new byte[0];
+	private long lines;
+	// Set while discarding the rest of a line longer than a block
+	private boolean skipping;
+	private boolean eof;
+
+	LineBlockReader(InputStream in, int blockSize) {
+		this.in = in;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * @return The next block, or null at the end of the stream
+	 */
+	Block next() throws IOException {
+		while (!eof) {
+			byte[] block = Arrays.copyOf(tail, blockSize);
+			int length = tail.length + in.readNBytes(block, tail.length, block.length - tail.length);
+			eof = length < block.length;
+			int from = 0;
+			if (skipping) {
+				while (from < length && block[from] != '\n') from++;
+				if (from == length) {
+					tail = new byte[0];
+					continue;
+				}
+				from++;
+				skipping = false;
+			}
+			int cut = eof ? length : lastLineEnd(block, from, length);
+			if (cut == from && !eof) {
+				// No line end in a full block: return the start of the line and skip the rest
+				cut = length;
+				skipping = true;
+			}
+			tail = Arrays.copyOfRange(block, cut, length);
+			if (cut == from) {
+				continue;
+			}
+
+			long firstLine = lines + 1;
+			lines += lineCount(block, from, cut);
+			return new Block(block, from, cut, firstLine);
+		}
+		return null;
+	}
+
+	/**
+	 * Number of lines in the blocks returned so far
+	 */
+	long lines() {
+		return lines;
+	}
+
+	/**
+	 * Position after the last '\n' in bytes [from, to), or from if there is none
+	 */
+	private static int lastLineEnd(byte[] bytes, int from, int to) {
+		for (int i = to - 1; i >= from; i--) {
+			if (bytes[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return from;
+	}
+
+	/**
+	 * Number of lines starting in bytes [from, to), including a last line without '\n'
+	 */
+	private static long lineCount(byte[] bytes, int from, int to) {
+		long count = 0;
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == '\n') count++;
+		}
+		return bytes[to - 1] == '\n' ? count : count + 1;
+	}
+}
@@ -0,0 +1,98 @@
+package com.testdatagen;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue on a ring of slots (Vyukov's design).
+ * <p>
+ * Every slot has a sequence number telling whether it is ready to be written (sequence equals
+ * the producer's position) or read (sequence equals the consumer's position + 1). Producers and
+ * consumers claim a position with a single CAS on their own counter and then only touch their
+ * slot, so {@link #offer(Object)} and {@link #poll()} are O(1) and never block. Neither method
+ * waits for room or elements: they return false or null instead.
+ */
+final class MpmcRing<E> {
+
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong producerPosition = new AtomicLong();
+	private final AtomicLong consumerPosition = new AtomicLong();
+
+	/**
+	 * @param capacity Number of slots, rounded up to a power of two
+	 */
+	MpmcRing(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+		this.elements = new AtomicReferenceArray<>(slots);
+		this.sequences = new AtomicLongArray(slots);
+		this.mask = slots - 1;
+		for (int slot = 0; slot < slots; slot++) {
+			sequences.setPlain(slot, slot);
+		}
+	}
+
+	/**
+	 * Add an element
+	 * @return false if the ring is full
+	 */
+	boolean offer(E element) {
+		long position = producerPosition.get();
+		while (true) {
+			int slot = (int) position & mask;
+			long difference = sequences.getAcquire(slot) - position;
+			if (difference == 0) {
+				if (producerPosition.compareAndSet(position, position + 1)) {
+					elements.setPlain(slot, element);
+					sequences.setRelease(slot, position + 1);
+					return true;
+				}
+				position = producerPosition.get();
+			} else if (difference < 0) {
+				// The slot still holds an element from one lap ago
+				return false;
+			} else {
+				position = producerPosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Remove the oldest element
+	 * @return The element, or null if the ring is empty
+	 */
+	E poll() {
+		long position = consumerPosition.get();
+		while (true) {
+			int slot = (int) position & mask;
+			long difference = sequences.getAcquire(slot) - (position + 1);
+			if (difference == 0) {
+				if (consumerPosition.compareAndSet(position, position + 1)) {
+					E element = elements.getPlain(slot);
+					elements.setPlain(slot, null);
+					sequences.setRelease(slot, position + mask + 1);
+					return element;
+				}
+				position = consumerPosition.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = consumerPosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Approximate number of elements, exact when no other thread is offering or polling
+	 */
+	int size() {
+		long size = producerPosition.get() - consumerPosition.get();
+		return (int) Math.max(0, Math.min(size, mask + 1));
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+}
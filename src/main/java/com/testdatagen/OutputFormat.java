@@ -0,0 +1,490 @@
+package com.testdatagen;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output formats of the bulk person and dataset endpoints.
+ * <p>
+ * A response is an optional prologue, independently encoded chunks joined by an optional
+ * separator, and an optional epilogue, so workers can encode (and compress) their chunks in
+ * parallel and the writer only concatenates them:
+ * <ul>
+ *     <li>csv - semicolon-separated, no header, the original format</li>
+ *     <li>json - one JSON array of objects with the keys of /RandomPersonJson</li>
+ *     <li>jsonl - one JSON object per line, with the keys of /RandomPersonJson</li>
+ *     <li>csv.gz - the csv format gzip-compressed; every chunk is a complete gzip member, and
+ *     concatenated members are one valid gzip file</li>
+ *     <li>columnar - binary column blocks, see {@link Columnar}</li>
+ * </ul>
+ * Which columns are written, and how CSV separates them, is given by {@link Columns}.
+ */
+enum OutputFormat {
+
+	CSV("csv", "text/csv; charset=UTF-8", false),
+	JSON("json", "application/json", false),
+	JSONL("jsonl", "application/x-ndjson", false),
+	CSV_GZIP("csv.gz", "application/gzip", true),
+	COLUMNAR("columnar", "application/vnd.testdatagen.columnar", true);
+
+	private final String parameter;
+	private final String contentType;
+	private final MediaType mediaType;
+	private final boolean binary;
+
+	OutputFormat(String parameter, String contentType, boolean binary) {
+		this.parameter = parameter;
+		this.contentType = contentType;
+		this.mediaType = MediaType.parseMediaType(contentType);
+		this.binary = binary;
+	}
+
+	/**
+	 * Pick the format from the format parameter, or else from the Accept header.
+	 * <p>
+	 * The media type with the highest quality wins. CSV stays the default: it wins whenever the
+	 * header accepts it, directly or through a wildcard like {@code text/*}, as much as any other
+	 * format, and when the header names no format at all or cannot be parsed.
+	 * @return The format, or null if the format parameter is not a known format
+	 */
+	static OutputFormat negotiate(String format, String accept) {
+		if (format != null) {
+			for (OutputFormat candidate : values()) {
+				if (candidate.parameter.equals(format.toLowerCase(Locale.ROOT))) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+		if (accept == null || accept.isBlank()) {
+			return CSV;
+		}
+		List<MediaType> mediaTypes;
+		try {
+			mediaTypes = MediaType.parseMediaTypes(accept);
+			// Highest quality first, then the most specific
+			MimeTypeUtils.sortBySpecificity(mediaTypes);
+		} catch (IllegalArgumentException e) {
+			return CSV;
+		}
+		OutputFormat chosen = null;
+		double quality = 0;
+		for (MediaType mediaType : mediaTypes) {
+			if (chosen != null && mediaType.getQualityValue() < quality) {
+				break;
+			}
+			OutputFormat candidate = forMediaType(mediaType);
+			if (candidate == null || mediaType.getQualityValue() == 0) {
+				continue;
+			}
+			if (chosen == null) {
+				chosen = candidate;
+				quality = mediaType.getQualityValue();
+			} else if (candidate == CSV) {
+				return CSV;
+			}
+		}
+		return chosen == null ? CSV : chosen;
+	}
+
+	/**
+	 * @return The format of a media type from an Accept header, CSV for wildcards that include it, or null
+	 */
+	private static OutputFormat forMediaType(MediaType mediaType) {
+		if (mediaType.includes(CSV.mediaType)) {
+			return CSV;
+		}
+		if (mediaType.isWildcardType() || mediaType.isWildcardSubtype()) {
+			return null;
+		}
+		for (OutputFormat candidate : values()) {
+			if (candidate.mediaType.equalsTypeAndSubtype(mediaType)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	String contentType() {
+		return contentType;
+	}
+
+	/**
+	 * File name extension of the format
+	 */
+	String extension() {
+		return this == COLUMNAR ? "tdgc" : parameter;
+	}
+
+	/**
+	 * Download file name for binary formats, or null
+	 * @param baseName File name without extension
+	 */
+	String fileName(String baseName) {
+		return binary ? baseName + "." + extension() : null;
+	}
+
+	/**
+	 * Bytes written once at the start of a person response
+	 */
+	byte[] prologue() {
+		return prologue(Columns.PERSON);
+	}
+
+	/**
+	 * Bytes written once at the start of the response
+	 */
+	byte[] prologue(Columns columns) {
+		return switch (this) {
+			case CSV -> columns.header ? columns.csvHeader() : new byte[0];
+			case CSV_GZIP -> columns.header ? Gzip.compress(columns.csvHeader()) : new byte[0];
+			case JSON -> new byte[]{'['};
+			case COLUMNAR -> Columnar.header(columns);
+			default -> new byte[0];
+		};
+	}
+
+	/**
+	 * Bytes written between two chunks
+	 */
+	byte[] separator() {
+		return this == JSON ? new byte[]{','} : new byte[0];
+	}
+
+	/**
+	 * Bytes written once at the end of the response
+	 */
+	byte[] epilogue() {
+		return this == JSON ? new byte[]{']'} : new byte[0];
+	}
+
+	/**
+	 * New encoder for one chunk of persons
+	 */
+	ChunkEncoder newEncoder(int rows) {
+		return newEncoder(rows, Columns.PERSON);
+	}
+
+	/**
+	 * New encoder for one chunk of rows
+	 */
+	ChunkEncoder newEncoder(int rows, Columns columns) {
+		return switch (this) {
+			case CSV -> new Csv(rows, columns);
+			case JSON -> new Json(rows, columns, ',', false);
+			case JSONL -> new Json(rows, columns, '\n', true);
+			case CSV_GZIP -> new Gzip(new Csv(rows, columns));
+			case COLUMNAR -> new Columnar(rows, columns);
+		};
+	}
+
+	/**
+	 * Encodes rows into one chunk of the response
+	 */
+	interface ChunkEncoder {
+		void add(PersonRecord row);
+
+		byte[] finish();
+	}
+
+	/**
+	 * Names of the columns an encoder writes, and how CSV writes them
+	 */
+	static final class Columns {
+		/**
+		 * The person columns: semicolon-separated, no header, never quoted since no person field contains a semicolon
+		 */
+		static final Columns PERSON = new Columns(PersonRecord.FIELDS, ';', false, false);
+
+		private final String[] names;
+		private final SerializableString[] jsonKeys;
+		private final char separator;
+		private final boolean header;
+		private final boolean quote;
+
+		/**
+		 * @param separator CSV separator
+		 * @param header Start CSV with a header row
+		 * @param quote Quote CSV values containing the separator, a quote or a line break
+		 */
+		Columns(String[] names, char separator, boolean header, boolean quote) {
+			this.names = names.clone();
+			this.jsonKeys = new SerializableString[names.length];
+			for (int column = 0; column < names.length; column++) {
+				jsonKeys[column] = new SerializedString(names[column]);
+			}
+			this.separator = separator;
+			this.header = header;
+			this.quote = quote;
+		}
+
+		int count() {
+			return names.length;
+		}
+
+		private byte[] csvHeader() {
+			ByteSink out = new ByteSink(names.length * 16);
+			for (int column = 0; column < names.length; column++) {
+				if (column > 0) out.writeUtf8(String.valueOf(separator));
+				writeCsv(out, names[column], 0, names[column].length());
+			}
+			out.write('\n');
+			return out.toByteArray();
+		}
+
+		private void writeCsv(ByteSink out, CharSequence chars, int start, int end) {
+			if (quote && needsQuotes(chars, start, end)) {
+				out.write('"');
+				int run = start;
+				for (int i = start; i < end; i++) {
+					if (chars.charAt(i) == '"') {
+						out.writeUtf8(chars, run, i + 1);
+						run = i;
+					}
+				}
+				out.writeUtf8(chars, run, end);
+				out.write('"');
+			} else {
+				out.writeUtf8(chars, start, end);
+			}
+		}
+
+		private boolean needsQuotes(CharSequence chars, int start, int end) {
+			for (int i = start; i < end; i++) {
+				char c = chars.charAt(i);
+				if (c == separator || c == '"' || c == '\n' || c == '\r') {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final class Csv implements ChunkEncoder {
+		private final ByteSink out;
+		private final Columns columns;
+		private final byte[] separator;
+
+		Csv(int rows, Columns columns) {
+			this.out = new ByteSink(rows * 170);
+			this.columns = columns;
+			this.separator = String.valueOf(columns.separator).getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void add(PersonRecord row) {
+			CharSequence chars = row.buffer();
+			for (int column = 0; column < columns.count(); column++) {
+				if (column > 0) out.write(separator);
+				columns.writeCsv(out, chars, row.start(column), row.end(column));
+			}
+			out.write('\n');
+		}
+
+		@Override
+		public byte[] finish() {
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Shared by all encoders; root values are separated by the encoders themselves
+	 */
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().setRootValueSeparator(null);
+
+	/**
+	 * JSON objects written with a Jackson streaming generator, separated by a character that is
+	 * written either between the objects (array elements) or after each object (JSON Lines)
+	 */
+	private static final class Json implements ChunkEncoder {
+		private final ByteSink out;
+		private final JsonGenerator generator;
+		private final Columns columns;
+		private final char separator;
+		private final boolean separatorAfterEach;
+		private char[] chars = new char[256];
+		private boolean empty = true;
+
+		Json(int rows, Columns columns, char separator, boolean separatorAfterEach) {
+			this.out = new ByteSink(rows * 400);
+			this.generator = newGenerator(out);
+			this.columns = columns;
+			this.separator = separator;
+			this.separatorAfterEach = separatorAfterEach;
+		}
+
+		@Override
+		public void add(PersonRecord row) {
+			try {
+				if (!separatorAfterEach && !empty) {
+					generator.writeRaw(separator);
+				}
+				chars = writeJson(row, columns, generator, chars);
+				if (separatorAfterEach) {
+					generator.writeRaw(separator);
+				}
+				empty = false;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public byte[] finish() {
+			try {
+				generator.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static JsonGenerator newGenerator(ByteSink out) {
+		try {
+			return JSON_FACTORY.createGenerator(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Write a person as one JSON object
+	 */
+	static void writeJson(PersonRecord person, ByteSink out) {
+		try (JsonGenerator generator = newGenerator(out)) {
+			writeJson(person, Columns.PERSON, generator, new char[256]);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @param chars Scratch buffer for the field values
+	 * @return The scratch buffer, replaced by a larger one if it was too small
+	 */
+	private static char[] writeJson(PersonRecord row, Columns columns, JsonGenerator generator, char[] chars) throws IOException {
+		chars = row.copyChars(chars);
+		generator.writeStartObject();
+		for (int column = 0; column < columns.count(); column++) {
+			int start = row.start(column);
+			generator.writeFieldName(columns.jsonKeys[column]);
+			generator.writeString(chars, start, row.end(column) - start);
+		}
+		generator.writeEndObject();
+		return chars;
+	}
+
+	private static final class Gzip implements ChunkEncoder {
+		private final ChunkEncoder encoder;
+
+		Gzip(ChunkEncoder encoder) {
+			this.encoder = encoder;
+		}
+
+		@Override
+		public void add(PersonRecord row) {
+			encoder.add(row);
+		}
+
+		@Override
+		public byte[] finish() {
+			return compress(encoder.finish());
+		}
+
+		/**
+		 * Compress bytes into one complete gzip member
+		 */
+		static byte[] compress(byte[] raw) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4);
+			// Fastest level: random test data gains little from harder compression
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 64 * 1024) {
+				{
+					def.setLevel(Deflater.BEST_SPEED);
+				}
+			}) {
+				gzip.write(raw);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return compressed.toByteArray();
+		}
+	}
+
+	/**
+	 * Column-oriented binary format. All integers are unsigned LEB128 varints, strings are a
+	 * varint byte length followed by UTF-8.
+	 * <pre>
+	 * file   = "TDGC" version:byte columnCount name{columnCount} block*
+	 * block  = rowCount column{columnCount}
+	 * column = byteLength string{rowCount}
+	 * </pre>
+	 * The byte length in front of each column lets a reader skip columns it does not need.
+	 */
+	private static final class Columnar implements ChunkEncoder {
+		private static final int VERSION = 1;
+
+		private final ByteSink[] columns;
+		private int rows;
+
+		Columnar(int rows, Columns layout) {
+			columns = new ByteSink[layout.count()];
+			for (int column = 0; column < columns.length; column++) {
+				columns[column] = new ByteSink(rows * 16);
+			}
+		}
+
+		static byte[] header(Columns layout) {
+			ByteSink out = new ByteSink(256);
+			out.write(new byte[]{'T', 'D', 'G', 'C', VERSION});
+			out.writeVarint(layout.count());
+			for (String name : layout.names) {
+				ByteSink utf8 = new ByteSink(name.length());
+				utf8.writeUtf8(name);
+				out.writeVarint(utf8.size());
+				out.write(utf8);
+			}
+			return out.toByteArray();
+		}
+
+		@Override
+		public void add(PersonRecord row) {
+			CharSequence chars = row.buffer();
+			for (int column = 0; column < columns.length; column++) {
+				int start = row.start(column);
+				int end = row.end(column);
+				columns[column].writeVarint(ByteSink.utf8Length(chars, start, end));
+				columns[column].writeUtf8(chars, start, end);
+			}
+			rows++;
+		}
+
+		@Override
+		public byte[] finish() {
+			int size = 10;
+			for (ByteSink column : columns) {
+				size += column.size() + 10;
+			}
+			ByteSink out = new ByteSink(size);
+			out.writeVarint(rows);
+			for (ByteSink column : columns) {
+				out.writeVarint(column.size());
+				out.write(column);
+			}
+			return out.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package com.testdatagen;
+
+import com.github.javafaker.service.FakeValuesService;
+import com.github.javafaker.service.RandomService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Faker's name, street, phone and job data, resolved once and shared by all generators.
+ * <p>
+ * Each field is compiled from Faker's locale files into a small template tree: a field picks
+ * one of its templates, and a template appends literals, random digits ('#') and nested fields.
+ * This gives the same values and distribution as calling Faker, without constructing a Faker,
+ * looking up YAML keys or evaluating expressions per value.
+ * <p>
+ * Loading Faker's locale files is a large part of startup, so the fields are compiled on first
+ * use, or in the background once the application is ready. After that they never change.
+ */
+@Component
+public class PersonDictionary {
+
+	/**
+	 * Locale the generators have always used with Faker, which loads sv-SE.yml with sv.yml and en.yml as fallbacks
+	 */
+	static final Locale LOCALE = Locale.forLanguageTag("sv-SE");
+
+	private final Locale locale;
+	private volatile Fields fields;
+
+	private record Fields(Field firstName, Field lastName, Field streetAddress, Field phoneNumber, Field cellPhone,
+			Field jobPosition, Field jobTitle) {
+	}
+
+	public PersonDictionary() {
+		this(LOCALE);
+	}
+
+	PersonDictionary(Locale locale) {
+		this.locale = locale;
+	}
+
+	/**
+	 * Compile the fields on a background thread, so the first request does not have to wait
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		Thread thread = new Thread(this::fields, "person-dictionary-warmup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private Fields fields() {
+		Fields compiled = fields;
+		if (compiled == null) {
+			synchronized (this) {
+				compiled = fields;
+				if (compiled == null) {
+					fields = compiled = compile();
+				}
+			}
+		}
+		return compiled;
+	}
+
+	private Fields compile() {
+		Compiler compiler = new Compiler(new FakeValuesService(locale, new RandomService()));
+		return new Fields(
+				compiler.field("name.first_name", ""),
+				compiler.field("name.last_name", ""),
+				compiler.field("address.street_address", ""),
+				// Phone numbers are returned without dashes
+				compiler.field("phone_number.formats", "-"),
+				compiler.field("cell_phone.formats", "-"),
+				compiler.field("job.position", ""),
+				compiler.field("job.title", ""));
+	}
+
+	public Field firstName() {
+		return fields().firstName();
+	}
+
+	public Field lastName() {
+		return fields().lastName();
+	}
+
+	public Field streetAddress() {
+		return fields().streetAddress();
+	}
+
+	public Field phoneNumber() {
+		return fields().phoneNumber();
+	}
+
+	public Field cellPhone() {
+		return fields().cellPhone();
+	}
+
+	public Field jobPosition() {
+		return fields().jobPosition();
+	}
+
+	public Field jobTitle() {
+		return fields().jobTitle();
+	}
+
+	/**
+	 * One generated field, e.g. first name. Thread-safe; all randomness comes from the caller.
+	 */
+	public static final class Field {
+		// Each template is a sequence of String literals, Integer digit counts and nested Fields
+		private Object[][] templates;
+
+		/**
+		 * Append a random value
+		 */
+		public StringBuilder append(StringBuilder sb, RandomGenerator random) {
+			Object[] template = templates.length == 1 ? templates[0] : templates[random.nextInt(templates.length)];
+			for (Object part : template) {
+				if (part instanceof String literal) {
+					sb.append(literal);
+				} else if (part instanceof Integer digits) {
+					for (int i = 0; i < digits; i++) {
+						sb.append((char) ('0' + random.nextInt(10)));
+					}
+				} else {
+					((Field) part).append(sb, random);
+				}
+			}
+			return sb;
+		}
+
+		/**
+		 * A random value as a string
+		 */
+		public String next(RandomGenerator random) {
+			return append(new StringBuilder(32), random).toString();
+		}
+	}
+
+	/**
+	 * Turns Faker keys into fields, resolving #{...} references the way Faker does
+	 */
+	private static final class Compiler {
+		private final FakeValuesService values;
+		private final Map<String, Field> fields = new HashMap<>();
+
+		Compiler(FakeValuesService values) {
+			this.values = values;
+		}
+
+		Field field(String key, String removeChars) {
+			String cacheKey = key + "/" + removeChars;
+			Field field = fields.get(cacheKey);
+			if (field != null) {
+				return field;
+			}
+			field = new Field();
+			fields.put(cacheKey, field);
+
+			Object value = values.fetchObject(key);
+			if (value == null) {
+				throw new IllegalStateException("Faker has no data for " + key);
+			}
+			List<?> alternatives = value instanceof List<?> list ? list : List.of(value);
+			String section = key.substring(0, key.indexOf('.'));
+
+			Object[][] templates = new Object[alternatives.size()][];
+			for (int i = 0; i < templates.length; i++) {
+				templates[i] = template(String.valueOf(alternatives.get(i)), section, removeChars);
+			}
+			field.templates = templates;
+			return field;
+		}
+
+		private Object[] template(String template, String section, String removeChars) {
+			List<Object> parts = new ArrayList<>();
+			StringBuilder literal = new StringBuilder();
+			int i = 0;
+			while (i < template.length()) {
+				char c = template.charAt(i);
+				if (c == '#' && template.startsWith("#{", i)) {
+					int end = template.indexOf('}', i);
+					flush(parts, literal);
+					parts.add(field(reference(template.substring(i + 2, end), section), removeChars));
+					i = end + 1;
+				} else if (c == '#') {
+					flush(parts, literal);
+					int digits = 0;
+					while (i < template.length() && template.charAt(i) == '#' && !template.startsWith("#{", i)) {
+						digits++;
+						i++;
+					}
+					parts.add(digits);
+				} else {
+					if (removeChars.indexOf(c) < 0) {
+						literal.append(c);
+					}
+					i++;
+				}
+			}
+			flush(parts, literal);
+			return parts.toArray();
+		}
+
+		private static void flush(List<Object> parts, StringBuilder literal) {
+			if (!literal.isEmpty()) {
+				parts.add(literal.toString());
+				literal.setLength(0);
+			}
+		}
+
+		/**
+		 * "street_suffix" within address.* is address.street_suffix; "Name.first_name" is name.first_name
+		 */
+		private static String reference(String expression, String section) {
+			int dot = expression.indexOf('.');
+			if (dot < 0) {
+				return section + "." + expression;
+			}
+			String type = expression.substring(0, dot).replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+			return type + expression.substring(dot);
+		}
+	}
+}
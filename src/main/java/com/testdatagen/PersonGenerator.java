@@ -0,0 +1,82 @@
+package com.testdatagen;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Fills {@link PersonRecord}s for one batch of a request. Holds the batch's random generator and
+ * personnummer state, so an instance belongs to the thread that generates the batch.
+ */
+final class PersonGenerator {
+
+	private final PersonDictionary dictionary;
+	private final PostalCodeIndex postalCodes;
+	private final PersonSpec spec;
+	private final RandomGenerator random;
+	private final PersonnummerGenerator personnummer;
+	private long rejectedDraws;
+
+	PersonGenerator(PersonDictionary dictionary, PostalCodeIndex postalCodes, PersonSpec spec) {
+		this.dictionary = dictionary;
+		this.postalCodes = postalCodes;
+		this.spec = spec;
+		this.random = RandomFields.generator(spec.seed(), spec.secure());
+		this.personnummer = new PersonnummerGenerator(spec.fromYear(), spec.toYear());
+	}
+
+	/**
+	 * Generate a person into the record
+	 * @param row Row number, which together with the seed determines the values of a seeded request
+	 */
+	void next(long row, PersonRecord person) {
+		if (random instanceof SeededRandom seeded) {
+			seeded.seek(row);
+		}
+		ConcurrentBitSet claimed = spec.claimed();
+		if (claimed != null) {
+			rejectedDraws += personnummer.nextUnique(random, claimed);
+		} else {
+			personnummer.next(random);
+		}
+		int postalRow = spec.postal().randomRow(random);
+
+		person.clear();
+		StringBuilder chars = person.chars();
+		personnummer.appendShort(chars);
+		person.endField();
+		personnummer.appendLong(chars);
+		person.endField();
+		dictionary.firstName().append(chars, random);
+		person.endField();
+		dictionary.lastName().append(chars, random);
+		person.endField();
+		dictionary.streetAddress().append(chars, random);
+		person.endField();
+		chars.append(postalCodes.ort(postalRow));
+		person.endField();
+		chars.append(postalCodes.postnummer(postalRow));
+		person.endField();
+		dictionary.phoneNumber().append(chars, random);
+		person.endField();
+		dictionary.cellPhone().append(chars, random);
+		person.endField();
+		dictionary.jobPosition().append(chars, random);
+		person.endField();
+		dictionary.jobTitle().append(chars, random);
+		person.endField();
+		if (claimed != null) {
+			RandomFields.appendUniqueEmail(chars, random, personnummer.slot());
+		} else {
+			RandomFields.appendEmail(chars, random);
+		}
+		person.endField();
+		chars.append(postalCodes.kommun(postalRow));
+		person.endField();
+	}
+
+	/**
+	 * Personnummer draws thrown away so far because they were already taken (unique mode only)
+	 */
+	long rejectedDraws() {
+		return rejectedDraws;
+	}
+}
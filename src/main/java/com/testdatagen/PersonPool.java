@@ -0,0 +1,153 @@
+package com.testdatagen;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Warm pool of pre-generated /RandomPersonJson responses.
+ * <p>
+ * Background refill threads keep a {@link MpmcRing} of encoded persons topped up, so a request
+ * only takes one from the ring instead of generating it. When a request leaves the pool below
+ * the low watermark it wakes the refill threads, which fill the ring up again; otherwise they
+ * sleep. If the pool is empty, or disabled with size 0, the person is generated on the request
+ * thread as before. Pooled persons are random, never seeded, so handing them out in any order is fine.
+ */
+@Component
+public class PersonPool {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PersonPool.class);
+
+	/**
+	 * How long an idle refill thread sleeps before checking the pool again without being woken
+	 */
+	private static final long IDLE_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final PersonDictionary dictionary;
+	private final PostalCodeIndex postalCodes;
+	private final MpmcRing<String> ring;
+	private final int lowWatermark;
+	private final List<Thread> refillThreads = new ArrayList<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private volatile boolean running = true;
+
+	public PersonPool(PersonDictionary dictionary, PostalCodeIndex postalCodes,
+			@Value("${testdatagen.person-pool.size:0}") int size,
+			@Value("${testdatagen.person-pool.refill-threads:1}") int refillThreadCount) {
+		this.dictionary = dictionary;
+		this.postalCodes = postalCodes;
+		this.ring = size > 0 ? new MpmcRing<>(size) : null;
+		this.lowWatermark = ring != null ? ring.capacity() / 2 : 0;
+		if (ring == null) {
+			return;
+		}
+		for (int index = 1; index <= refillThreadCount; index++) {
+			Thread thread = new Thread(this::refill, "person-pool-refill-" + index);
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			refillThreads.add(thread);
+		}
+	}
+
+	/**
+	 * Start filling the pool once the application is ready, so it does not compete with startup
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (ring == null) {
+			return;
+		}
+		refillThreads.forEach(Thread::start);
+		LOGGER.info("Person pool of {} with {} refill threads", ring.capacity(), refillThreads.size());
+	}
+
+	/**
+	 * A person as a /RandomPersonJson response body, from the pool if it has one
+	 */
+	String next() {
+		if (ring == null) {
+			return generate(newGenerator());
+		}
+		String person = ring.poll();
+		if (ring.size() < lowWatermark) {
+			refillThreads.forEach(LockSupport::unpark);
+		}
+		if (person == null) {
+			misses.increment();
+			return generate(newGenerator());
+		}
+		hits.increment();
+		return person;
+	}
+
+	private void refill() {
+		while (running) {
+			if (ring.size() < lowWatermark) {
+				PersonGenerator generator = newGenerator();
+				while (running && ring.size() < ring.capacity()) {
+					if (!ring.offer(generate(generator))) {
+						break;
+					}
+				}
+			}
+			LockSupport.parkNanos(this, IDLE_CHECK_NANOS);
+		}
+	}
+
+	/**
+	 * Generator for persons born over the last hundred years, always with the '-' delimiter
+	 */
+	private PersonGenerator newGenerator() {
+		int currentYear = Year.now().getValue();
+		PersonSpec spec = new PersonSpec(currentYear - 99, currentYear, postalCodes.all(), null, false, null);
+		return new PersonGenerator(dictionary, postalCodes, spec);
+	}
+
+	private static String generate(PersonGenerator generator) {
+		PersonRecord person = new PersonRecord();
+		generator.next(0, person);
+		ByteSink json = new ByteSink(512);
+		OutputFormat.writeJson(person, json);
+		return new String(json.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Persons currently pooled
+	 */
+	public int size() {
+		return ring != null ? ring.size() : 0;
+	}
+
+	/**
+	 * Requests served from the pool since startup
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Requests that found the pool empty and generated their person themselves
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		running = false;
+		refillThreads.forEach(LockSupport::unpark);
+	}
+}
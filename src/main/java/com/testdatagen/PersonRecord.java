@@ -0,0 +1,88 @@
+package com.testdatagen;
+
+/**
+ * One generated person, reused for every row of a batch.
+ * <p>
+ * All field values are appended to one char buffer and only their end offsets are recorded,
+ * so filling and encoding a row creates no strings. Fields must be written in the order of
+ * {@link #FIELDS}, each one followed by {@link #endField()}. Dataset rows of a {@link FieldPlan}
+ * use the same layout with their own columns.
+ */
+final class PersonRecord {
+
+	/**
+	 * Field names, as used by the JSON and columnar formats; CSV has the same column order
+	 */
+	static final String[] FIELDS = {
+			"Personnummer", "longPersonnummer", "namn", "efterNamn", "Address", "postAdress", "zip",
+			"telefon", "mobil", "jobPosition", "jobTitel", "email", "kommun"
+	};
+
+	private final StringBuilder chars = new StringBuilder(256);
+	private final int[] ends;
+	private int fields;
+
+	PersonRecord() {
+		this(FIELDS.length);
+	}
+
+	/**
+	 * Record for rows with a different number of fields than a person
+	 */
+	PersonRecord(int fieldCount) {
+		ends = new int[fieldCount];
+	}
+
+	/**
+	 * Start a new row
+	 */
+	void clear() {
+		chars.setLength(0);
+		fields = 0;
+	}
+
+	/**
+	 * Buffer to append the current field's value to
+	 */
+	StringBuilder chars() {
+		return chars;
+	}
+
+	/**
+	 * Mark the end of the current field
+	 */
+	void endField() {
+		ends[fields++] = chars.length();
+	}
+
+	CharSequence buffer() {
+		return chars;
+	}
+
+	int start(int field) {
+		return field == 0 ? 0 : ends[field - 1];
+	}
+
+	int end(int field) {
+		return ends[field];
+	}
+
+	/**
+	 * Copy all field values into dest, for APIs that take a char array
+	 * @return dest, or a larger array if dest is too small
+	 */
+	char[] copyChars(char[] dest) {
+		if (dest.length < chars.length()) {
+			dest = new char[Math.max(chars.length(), dest.length * 2)];
+		}
+		chars.getChars(0, chars.length(), dest, 0);
+		return dest;
+	}
+
+	/**
+	 * Field value as a string, for callers outside the encoders
+	 */
+	String get(int field) {
+		return chars.substring(start(field), end(field));
+	}
+}
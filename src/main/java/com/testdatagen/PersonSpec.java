@@ -0,0 +1,13 @@
+package com.testdatagen;
+
+/**
+ * Parameters of a person generation request, shared read-only by all of its batches
+ * @param fromYear First birth year, inclusive
+ * @param toYear Last birth year, inclusive
+ * @param postal Postal codes to draw zip, ort and kommun from
+ * @param seed Seed for reproducible output, or null
+ * @param secure Use a cryptographically strong random generator
+ * @param claimed Personnummer slots already used, for unique personnummer and emails, or null
+ */
+record PersonSpec(int fromYear, int toYear, PostalCodeIndex.Selection postal, Long seed, boolean secure, ConcurrentBitSet claimed) {
+}
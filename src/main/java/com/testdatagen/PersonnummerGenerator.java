@@ -0,0 +1,196 @@
+package com.testdatagen;
+
+import java.time.LocalDate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Synthesizes valid Swedish personnummer for a birth year range.
+ * <p>
+ * The birth date is drawn uniformly over the days in the range and the Luhn check digit is
+ * computed directly, so every call yields a valid number and narrow ranges cost the same as
+ * wide ones. The current number is held in one char buffer (YYYYMMDDNNNC) that both the short
+ * and the long format are appended from. Instances are mutable and meant to be used by one
+ * thread at a time.
+ */
+public final class PersonnummerGenerator {
+
+	/**
+	 * Birth numbers per day, 001-999
+	 */
+	static final int SERIALS = 999;
+
+	/**
+	 * First day of the slot numbering shared by all ranges, see {@link #slot()}
+	 */
+	static final long SLOT_EPOCH_DAY = LocalDate.of(1800, 1, 1).toEpochDay();
+
+	/**
+	 * Number of slots from 1800-01-01 through 2199-12-31
+	 */
+	static final long SLOT_COUNT = (LocalDate.of(2200, 1, 1).toEpochDay() - SLOT_EPOCH_DAY) * SERIALS;
+
+	private final long firstDay;
+	private final int dayCount;
+	private final int currentYear;
+
+	private final char[] buffer = new char[12];
+	private int day;
+	private int serial;
+	private int year;
+	private char delimiter;
+
+	/**
+	 * @param fromYear First birth year, inclusive
+	 * @param toYear Last birth year, inclusive; dates after today are never generated
+	 */
+	public PersonnummerGenerator(int fromYear, int toYear) {
+		LocalDate today = LocalDate.now();
+		LocalDate last = LocalDate.of(toYear, 12, 31);
+		if (last.isAfter(today)) {
+			last = today;
+		}
+		this.firstDay = LocalDate.of(fromYear, 1, 1).toEpochDay();
+		this.dayCount = (int) (last.toEpochDay() - firstDay + 1);
+		this.currentYear = today.getYear();
+		if (dayCount <= 0) {
+			throw new IllegalArgumentException("Birth year range " + fromYear + "-" + toYear + " contains no past dates");
+		}
+	}
+
+	/**
+	 * Number of distinct birth dates in the range
+	 */
+	public int dayCount() {
+		return dayCount;
+	}
+
+	/**
+	 * Generate the next personnummer
+	 */
+	public void next(RandomGenerator random) {
+		set(random.nextInt(dayCount), 1 + random.nextInt(999));
+	}
+
+	/**
+	 * Set the current personnummer
+	 * @param day Birth date as an offset from the first day of the range
+	 * @param serial Birth number, 1-999
+	 */
+	public void set(int day, int serial) {
+		this.day = day;
+		this.serial = serial;
+
+		// Days to civil date (H. Hinnant), without going through LocalDate
+		long z = firstDay + day + 719468;
+		long era = Math.floorDiv(z, 146097);
+		int doe = (int) (z - era * 146097);
+		int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		int mp = (5 * doy + 2) / 153;
+		int dd = doy - (153 * mp + 2) / 5 + 1;
+		int mm = mp < 10 ? mp + 3 : mp - 9;
+		year = (int) (yoe + era * 400) + (mm <= 2 ? 1 : 0);
+
+		putTwoDigits(0, year / 100);
+		putTwoDigits(2, year % 100);
+		putTwoDigits(4, mm);
+		putTwoDigits(6, dd);
+		buffer[8] = (char) ('0' + serial / 100);
+		putTwoDigits(9, serial % 100);
+		buffer[11] = (char) ('0' + checkDigit());
+
+		// The delimiter changes to '+' in the year the person turns 100
+		delimiter = currentYear - year >= 100 ? '+' : '-';
+	}
+
+	/**
+	 * Generate the next personnummer that is not yet set in claimed, and set it.
+	 * Safe to call from several threads sharing one set.
+	 * @return Number of draws rejected because the personnummer was already taken
+	 * @throws IllegalStateException if every personnummer in the range is taken
+	 */
+	int nextUnique(RandomGenerator random, ConcurrentBitSet claimed) {
+		for (int attempt = 0; attempt < 16; attempt++) {
+			next(random);
+			if (claimed.set(slot())) {
+				return attempt;
+			}
+		}
+		// The range is nearly full: take the next free slot instead of drawing again
+		long first = firstSlot();
+		long slot = claimed.setNextClear(first, first + slotCount(), first + random.nextLong(slotCount()));
+		if (slot < 0) {
+			throw new IllegalStateException("No unused personnummer left in the birth year range");
+		}
+		set((int) ((slot - first) / SERIALS), (int) ((slot - first) % SERIALS) + 1);
+		return 16;
+	}
+
+	/**
+	 * The current personnummer as a number unique across all ranges: days since 1800-01-01 times 999 plus the birth number
+	 */
+	public long slot() {
+		return (firstDay + day - SLOT_EPOCH_DAY) * SERIALS + serial - 1;
+	}
+
+	/**
+	 * Slot of the first personnummer in the range; the range covers {@link #slotCount()} consecutive slots
+	 */
+	public long firstSlot() {
+		return (firstDay - SLOT_EPOCH_DAY) * SERIALS;
+	}
+
+	/**
+	 * Number of distinct personnummer in the range
+	 */
+	public long slotCount() {
+		return (long) dayCount * SERIALS;
+	}
+
+	private void putTwoDigits(int offset, int value) {
+		buffer[offset] = (char) ('0' + value / 10);
+		buffer[offset + 1] = (char) ('0' + value % 10);
+	}
+
+	/**
+	 * Luhn check digit over YYMMDDNNN
+	 */
+	private int checkDigit() {
+		int sum = 0;
+		for (int i = 0; i < 9; i++) {
+			int digit = buffer[i + 2] - '0';
+			if (i % 2 == 0) {
+				digit *= 2;
+				if (digit > 9) digit -= 9;
+			}
+			sum += digit;
+		}
+		return (10 - sum % 10) % 10;
+	}
+
+	public int birthYear() {
+		return year;
+	}
+
+	/**
+	 * Append the short format, YYMMDD-NNNC or YYMMDD+NNNC
+	 */
+	public StringBuilder appendShort(StringBuilder sb) {
+		return sb.append(buffer, 2, 6).append(delimiter).append(buffer, 8, 4);
+	}
+
+	/**
+	 * Append the long format, YYYYMMDDNNNC
+	 */
+	public StringBuilder appendLong(StringBuilder sb) {
+		return sb.append(buffer, 0, 12);
+	}
+
+	public String shortFormat() {
+		return appendShort(new StringBuilder(11)).toString();
+	}
+
+	public String longFormat() {
+		return new String(buffer);
+	}
+}
@@ -0,0 +1,234 @@
+package com.testdatagen;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Validates and normalises personnummer, one per line, straight from the request bytes.
+ * <p>
+ * Accepts the short format with or without delimiter (YYMMDD-NNNC, YYMMDD+NNNC, YYMMDDNNNC) and
+ * the long format with or without delimiter (YYYYMMDDNNNC, YYYYMMDD-NNNC). The century of a short
+ * number follows from its delimiter the same way {@link PersonnummerGenerator} chooses it: '-'
+ * for persons turning at most 99 this year, '+' from the year they turn 100. Coordination numbers
+ * (day + 60) are accepted. Lines are parsed in place into ints and the result is written as bytes,
+ * so nothing is allocated per line. Instances are immutable and shared by all workers of a request.
+ * <p>
+ * Each result line is {@code line;input;longPersonnummer;personnummer;error}, where the
+ * personnummer columns are empty for invalid input and error is empty for valid input.
+ */
+final class PersonnummerValidator {
+
+	/**
+	 * Longer input is echoed truncated to this many bytes
+	 */
+	static final int MAX_INPUT_ECHO = 40;
+
+	private static final byte[] FORMAT = "format".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] DATE = "date".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FUTURE = "future".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CHECKSUM = "checksum".getBytes(StandardCharsets.US_ASCII);
+
+	private final int currentYear;
+	private final int today;
+	private final boolean invalidOnly;
+
+	/**
+	 * @param today Reference date for the century of short numbers and for rejecting future dates
+	 * @param invalidOnly Write only the lines that are not valid
+	 */
+	PersonnummerValidator(LocalDate today, boolean invalidOnly) {
+		this.currentYear = today.getYear();
+		this.today = currentYear * 10000 + today.getMonthValue() * 100 + today.getDayOfMonth();
+		this.invalidOnly = invalidOnly;
+	}
+
+	boolean invalidOnly() {
+		return invalidOnly;
+	}
+
+	/**
+	 * Validate the lines in bytes [start, end) and write a result line for each non-blank one
+	 * @param firstLine Line number of the first line, counting from 1
+	 * @return Number of invalid lines
+	 */
+	int validate(byte[] bytes, int start, int end, long firstLine, ByteSink out) {
+		int invalid = 0;
+		long line = firstLine;
+		int position = start;
+		while (position < end) {
+			int lineEnd = position;
+			while (lineEnd < end && bytes[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			int from = position;
+			int to = lineEnd;
+			while (from < to && isBlank(bytes[from])) from++;
+			while (to > from && isBlank(bytes[to - 1])) to--;
+			if (from < to && validateLine(bytes, from, to, line, out) != null) {
+				invalid++;
+			}
+			position = lineEnd + 1;
+			line++;
+		}
+		return invalid;
+	}
+
+	/**
+	 * @return The error written, or null if the personnummer is valid
+	 */
+	private byte[] validateLine(byte[] bytes, int from, int to, long line, ByteSink out) {
+		int length = to - from;
+		int yearDigits = length == 12 || length == 13 ? 4 : 2;
+		boolean delimited = length == 11 || length == 13;
+		if (length < 10 || length > 13 || delimited && bytes[from + yearDigits + 4] != '-' && bytes[from + yearDigits + 4] != '+') {
+			return writeInvalid(bytes, from, to, line, FORMAT, out);
+		}
+
+		int year = digits(bytes, from, yearDigits);
+		int month = digits(bytes, from + yearDigits, 2);
+		int day = digits(bytes, from + yearDigits + 2, 2);
+		int serialStart = from + yearDigits + 4 + (delimited ? 1 : 0);
+		int serial = digits(bytes, serialStart, 3);
+		int check = digits(bytes, serialStart + 3, 1);
+		if ((year | month | day | serial | check) < 0) {
+			return writeInvalid(bytes, from, to, line, FORMAT, out);
+		}
+
+		if (yearDigits == 2) {
+			// The latest year ending in these two digits that gives this delimiter
+			int latest = currentYear - (delimited && bytes[from + 6] == '+' ? 100 : 0);
+			year = latest - Math.floorMod(latest - year, 100);
+		}
+		int birthDay = day > 60 ? day - 60 : day;
+		if (month < 1 || month > 12 || birthDay < 1 || birthDay > daysInMonth(year, month)) {
+			return writeInvalid(bytes, from, to, line, DATE, out);
+		}
+		if (year * 10000 + month * 100 + birthDay > today) {
+			return writeInvalid(bytes, from, to, line, FUTURE, out);
+		}
+		if (checkDigit(year % 100, month, day, serial) != check) {
+			return writeInvalid(bytes, from, to, line, CHECKSUM, out);
+		}
+
+		if (!invalidOnly) {
+			writeLineAndInput(bytes, from, to, line, out);
+			writeDigits(year, 4, out);
+			writeDigits(month, 2, out);
+			writeDigits(day, 2, out);
+			writeDigits(serial, 3, out);
+			out.write('0' + check);
+			out.write(';');
+			writeDigits(year % 100, 2, out);
+			writeDigits(month, 2, out);
+			writeDigits(day, 2, out);
+			out.write(currentYear - year >= 100 ? '+' : '-');
+			writeDigits(serial, 3, out);
+			out.write('0' + check);
+			out.write(';');
+			out.write('\n');
+		}
+		return null;
+	}
+
+	private byte[] writeInvalid(byte[] bytes, int from, int to, long line, byte[] error, ByteSink out) {
+		writeLineAndInput(bytes, from, to, line, out);
+		out.write(';');
+		out.write(';');
+		out.write(error);
+		out.write('\n');
+		return error;
+	}
+
+	/**
+	 * Write "line;input;", quoting the input if it contains a separator or quote
+	 */
+	private static void writeLineAndInput(byte[] bytes, int from, int to, long line, ByteSink out) {
+		writeNumber(line, out);
+		out.write(';');
+		int end = Math.min(to, from + MAX_INPUT_ECHO);
+		boolean quote = false;
+		for (int i = from; i < end; i++) {
+			if (bytes[i] == ';' || bytes[i] == '"' || bytes[i] == '\r') {
+				quote = true;
+				break;
+			}
+		}
+		if (quote) {
+			out.write('"');
+			for (int i = from; i < end; i++) {
+				if (bytes[i] == '"') {
+					out.write('"');
+				}
+				out.write(bytes[i]);
+			}
+			out.write('"');
+		} else {
+			out.write(bytes, from, end - from);
+		}
+		out.write(';');
+	}
+
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	/**
+	 * Parse count decimal digits
+	 * @return The value, or -1 if any byte is not a digit
+	 */
+	private static int digits(byte[] bytes, int from, int count) {
+		int value = 0;
+		for (int i = from; i < from + count; i++) {
+			int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		return switch (month) {
+			case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+			case 4, 6, 9, 11 -> 30;
+			default -> 31;
+		};
+	}
+
+	/**
+	 * Luhn check digit over YYMMDDNNN, as in {@link PersonnummerGenerator}
+	 */
+	static int checkDigit(int yy, int month, int day, int serial) {
+		int sum = luhnPair(yy) + luhnPair(month) + luhnPair(day) + doubled(serial / 100) + serial / 10 % 10 + doubled(serial % 10);
+		return (10 - sum % 10) % 10;
+	}
+
+	/**
+	 * Luhn sum of a two-digit group at an even position: the first digit doubled
+	 */
+	private static int luhnPair(int value) {
+		return doubled(value / 10) + value % 10;
+	}
+
+	private static int doubled(int digit) {
+		int value = digit * 2;
+		return value > 9 ? value - 9 : value;
+	}
+
+	private static void writeDigits(int value, int width, ByteSink out) {
+		for (int divisor = width == 4 ? 1000 : width == 3 ? 100 : 10; divisor > 0; divisor /= 10) {
+			out.write('0' + value / divisor % 10);
+		}
+	}
+
+	private static void writeNumber(long value, ByteSink out) {
+		long divisor = 1;
+		while (divisor <= value / 10) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			out.write((int) ('0' + value / divisor % 10));
+		}
+	}
+}
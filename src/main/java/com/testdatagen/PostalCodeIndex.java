@@ -0,0 +1,218 @@
+package com.testdatagen;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * Swedish postal codes parsed once from postnummer.csv and shared by all generators.
+ * Each row is stored as parallel columns: the postnummer string and indexes into the
+ * distinct ort and kommun names, so a lookup never allocates. Rows are ordered by kommun
+ * so that a {@link Selection} can group them without sorting again.
+ */
+@Component
+public class PostalCodeIndex {
+
+	static final String RESOURCE = "static/postnummer.csv";
+
+	private final String[] postnummer;
+	private final int[] ortIndex;
+	private final int[] kommunIndex;
+	private final String[] orter;
+	private final String[] kommuner;
+	private final Selection all;
+
+	public PostalCodeIndex() {
+		this(RESOURCE);
+	}
+
+	PostalCodeIndex(String resource) {
+		InputStream inputStream = PostalCodeIndex.class.getClassLoader().getResourceAsStream(resource);
+		if (inputStream == null) {
+			throw new IllegalStateException("Configuration error: " + resource + " not found");
+		}
+
+		List<String> postnummerColumn = new ArrayList<>();
+		List<Integer> ortColumn = new ArrayList<>();
+		List<Integer> kommunColumn = new ArrayList<>();
+		Map<String, Integer> ortIds = new HashMap<>();
+		Map<String, Integer> kommunIds = new HashMap<>();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] values = line.split(";");
+				if (values.length < 3) continue;
+
+				postnummerColumn.add(values[0].trim());
+				ortColumn.add(ortIds.computeIfAbsent(values[1].trim(), k -> ortIds.size()));
+				kommunColumn.add(kommunIds.computeIfAbsent(values[2].trim(), k -> kommunIds.size()));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read " + resource, e);
+		}
+
+		if (postnummerColumn.isEmpty()) {
+			throw new IllegalStateException("Configuration error: " + resource + " is empty");
+		}
+
+		// Order rows by kommun, keeping file order within each kommun
+		int[] order = IntStream.range(0, postnummerColumn.size()).boxed()
+				.sorted(Comparator.comparingInt(kommunColumn::get))
+				.mapToInt(Integer::intValue)
+				.toArray();
+
+		postnummer = new String[order.length];
+		ortIndex = new int[order.length];
+		kommunIndex = new int[order.length];
+		for (int row = 0; row < order.length; row++) {
+			postnummer[row] = postnummerColumn.get(order[row]);
+			ortIndex[row] = ortColumn.get(order[row]);
+			kommunIndex[row] = kommunColumn.get(order[row]);
+		}
+		orter = names(ortIds);
+		kommuner = names(kommunIds);
+		all = select(null, null, false);
+	}
+
+	private static String[] names(Map<String, Integer> ids) {
+		String[] names = new String[ids.size()];
+		ids.forEach((name, id) -> names[id] = name);
+		return names;
+	}
+
+	/**
+	 * Number of postal codes in the index
+	 */
+	public int size() {
+		return postnummer.length;
+	}
+
+	/**
+	 * Pick a random row, uniformly over all postal codes
+	 */
+	public int randomRow(RandomGenerator random) {
+		return random.nextInt(postnummer.length);
+	}
+
+	/**
+	 * Selection covering every postal code, uniformly weighted
+	 */
+	public Selection all() {
+		return all;
+	}
+
+	/**
+	 * Select the postal codes matching the given filters
+	 * @param kommun Comma-separated kommun names, matched case-insensitively with or without the " kommun"/" Stad" suffix, or null for all
+	 * @param zipPrefix Leading digits of the postnummer (spaces ignored), or null for all
+	 * @param weightByKommun If true every kommun is equally likely, otherwise every postal code is
+	 * @return The selection, empty if nothing matches
+	 */
+	public Selection select(String kommun, String zipPrefix, boolean weightByKommun) {
+		boolean[] kommunMatch = new boolean[kommuner.length];
+		if (kommun == null || kommun.isBlank()) {
+			Arrays.fill(kommunMatch, true);
+		} else {
+			for (String wanted : kommun.split(",")) {
+				String name = normalizeKommun(wanted);
+				for (int id = 0; id < kommuner.length; id++) {
+					if (normalizeKommun(kommuner[id]).equals(name)) {
+						kommunMatch[id] = true;
+					}
+				}
+			}
+		}
+		String prefix = zipPrefix == null ? "" : zipPrefix.replace(" ", "");
+
+		int[] rows = IntStream.range(0, postnummer.length)
+				.filter(row -> kommunMatch[kommunIndex[row]])
+				.filter(row -> prefix.isEmpty() || postnummer[row].replace(" ", "").startsWith(prefix))
+				.toArray();
+
+		// Start offset of each kommun run within rows, plus a trailing end offset
+		int[] groupStart = null;
+		if (weightByKommun && rows.length > 0) {
+			int[] starts = new int[rows.length + 1];
+			int groups = 0;
+			for (int i = 0; i < rows.length; i++) {
+				if (i == 0 || kommunIndex[rows[i]] != kommunIndex[rows[i - 1]]) {
+					starts[groups++] = i;
+				}
+			}
+			starts[groups] = rows.length;
+			groupStart = Arrays.copyOf(starts, groups + 1);
+		}
+		return new Selection(rows, groupStart);
+	}
+
+	/**
+	 * Reduce "Stockholms kommun", "Göteborgs Stad" and "Stockholm" to the same key
+	 */
+	private static String normalizeKommun(String name) {
+		String normalized = name.trim().toLowerCase(Locale.ROOT);
+		for (String suffix : new String[]{" kommun", " stad"}) {
+			if (normalized.endsWith(suffix)) {
+				normalized = normalized.substring(0, normalized.length() - suffix.length());
+			}
+		}
+		if (normalized.endsWith("s")) {
+			normalized = normalized.substring(0, normalized.length() - 1);
+		}
+		return normalized;
+	}
+
+	public String postnummer(int row) {
+		return postnummer[row];
+	}
+
+	public String ort(int row) {
+		return orter[ortIndex[row]];
+	}
+
+	public String kommun(int row) {
+		return kommuner[kommunIndex[row]];
+	}
+
+	/**
+	 * Immutable subset of the index rows that can be sampled in O(1)
+	 */
+	public static final class Selection {
+		private final int[] rows;
+		private final int[] groupStart;
+
+		private Selection(int[] rows, int[] groupStart) {
+			this.rows = rows;
+			this.groupStart = groupStart;
+		}
+
+		public boolean isEmpty() {
+			return rows.length == 0;
+		}
+
+		/**
+		 * Pick a random index row from the selection
+		 */
+		public int randomRow(RandomGenerator random) {
+			if (groupStart == null) {
+				return rows[random.nextInt(rows.length)];
+			}
+			int group = random.nextInt(groupStart.length - 1);
+			return rows[random.nextInt(groupStart[group], groupStart[group + 1])];
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.testdatagen;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Per-thread random sources and the purely random fields (email, UUID).
+ * <p>
+ * Generation uses {@link ThreadLocalRandom} by default: it is lock-free and never shared between
+ * threads. Requests that ask for secure randomness get a {@link SecureRandom} owned by the
+ * current thread instead, so workers do not contend on one shared instance the way
+ * {@link java.util.UUID#randomUUID()} does. Generators must be fetched on the thread that uses them.
+ */
+final class RandomFields {
+
+	private static final ThreadLocal<SecureRandom> SECURE_RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Number of six-letter strings, 26^6
+	 */
+	private static final long LETTER_SPACE = 308_915_776L;
+
+	/**
+	 * Coprime to 26^6, so slot * EMAIL_MULTIPLIER is a permutation of the letter space
+	 */
+	private static final long EMAIL_MULTIPLIER = 122_949_829L;
+
+	private RandomFields() {
+	}
+
+	/**
+	 * Random generator for a batch generated on the current thread
+	 * @param seed Seed for reproducible output; the caller must {@link SeededRandom#seek(long)} to each row. Null for unseeded output
+	 * @param secure Use a cryptographically strong generator
+	 */
+	static RandomGenerator generator(Long seed, boolean secure) {
+		if (seed != null) {
+			return new SeededRandom(seed);
+		}
+		return secure ? SECURE_RANDOM.get() : ThreadLocalRandom.current();
+	}
+
+	/**
+	 * Append a random email address, e.g. abcdef123456@ghijkl789012.com
+	 */
+	static StringBuilder appendEmail(StringBuilder sb, RandomGenerator random) {
+		appendLetters(sb, random, 6);
+		appendDigits(sb, random, 6);
+		sb.append('@');
+		appendLetters(sb, random, 6);
+		appendDigits(sb, random, 6);
+		return sb.append(".com");
+	}
+
+	/**
+	 * Append an email address whose first six letters are a bijection of a personnummer slot,
+	 * so distinct slots always give distinct addresses. The rest is random.
+	 * @param slot {@link PersonnummerGenerator#slot()}, less than 26^6
+	 */
+	static StringBuilder appendUniqueEmail(StringBuilder sb, RandomGenerator random, long slot) {
+		long letters = Math.floorMod(slot * EMAIL_MULTIPLIER + 0x5EED, LETTER_SPACE);
+		for (long divisor = LETTER_SPACE / 26; divisor > 0; divisor /= 26) {
+			sb.append((char) ('a' + letters / divisor % 26));
+		}
+		appendDigits(sb, random, 6);
+		sb.append('@');
+		appendLetters(sb, random, 6);
+		appendDigits(sb, random, 6);
+		return sb.append(".com");
+	}
+
+	private static void appendLetters(StringBuilder sb, RandomGenerator random, int count) {
+		for (int i = 0; i < count; i++) {
+			sb.append((char) ('a' + random.nextInt(26)));
+		}
+	}
+
+	private static void appendDigits(StringBuilder sb, RandomGenerator random, int count) {
+		for (int i = 0; i < count; i++) {
+			sb.append((char) ('0' + random.nextInt(10)));
+		}
+	}
+
+	/**
+	 * Append a random (version 4) UUID in the standard 8-4-4-4-12 format
+	 */
+	static StringBuilder appendUuid(StringBuilder sb, RandomGenerator random) {
+		long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		appendHex(sb, msb >>> 32, 8).append('-');
+		appendHex(sb, msb >>> 16, 4).append('-');
+		appendHex(sb, msb, 4).append('-');
+		appendHex(sb, lsb >>> 48, 4).append('-');
+		return appendHex(sb, lsb, 12);
+	}
+
+	/**
+	 * Append the low digits of value as lowercase hex, most significant first
+	 */
+	static StringBuilder appendHex(StringBuilder sb, long value, int digits) {
+		for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+			sb.append(HEX[(int) (value >>> shift) & 0xF]);
+		}
+		return sb;
+	}
+}
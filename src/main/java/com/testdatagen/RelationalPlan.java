@@ -0,0 +1,233 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Linked dataset tables generated in one run, e.g. persons, their accounts and the accounts' transactions.
+ * <p>
+ * The schema is a JSON array of tables, each with a {@code name} and the {@code columns} of a
+ * {@link FieldPlan}. Every table but the first names an earlier table as its {@code parent} and has
+ * {@code perParent} rows per parent row, a number or {@code {"min":0,"max":5}}.
+ * <p>
+ * Row numbers come from partitioned ranges: child i of parent row p is row p * max + i. How many
+ * children a row has is drawn from (fan-out seed, table, parent row) alone. Any range of root rows
+ * can therefore be expanded into the rows of any table by any thread, without knowing what other
+ * chunks or tables produced, and the {@code parent} column of a child always matches the
+ * {@code row} column of its parent. Row numbers of child tables have gaps when min &lt; max.
+ */
+final class RelationalPlan {
+
+	static final int MAX_TABLES = 20;
+	static final int MAX_PER_PARENT = 10000;
+
+	private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,63}");
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * @param parent Index of the parent table, or -1 for the root table
+	 */
+	record Table(String name, FieldPlan plan, int parent, int minPerParent, int maxPerParent) {
+	}
+
+	private final Table[] tables;
+
+	private RelationalPlan(Table[] tables) {
+		this.tables = tables;
+	}
+
+	/**
+	 * Compile a schema
+	 * @param plans Compiles the columns of one table
+	 * @throws IllegalArgumentException With a message for a 400 response if the schema is invalid
+	 */
+	static RelationalPlan compile(JSONArray specs, Function<JSONArray, FieldPlan> plans) {
+		if (specs.isEmpty() || specs.length() > MAX_TABLES) {
+			throw new IllegalArgumentException("tables must list 1-" + MAX_TABLES + " tables");
+		}
+		Table[] tables = new Table[specs.length()];
+		Map<String, Integer> indexes = new HashMap<>();
+		for (int index = 0; index < tables.length; index++) {
+			JSONObject spec = specs.optJSONObject(index);
+			if (spec == null) {
+				throw new IllegalArgumentException("table " + (index + 1) + " must be an object");
+			}
+			try {
+				String name = spec.getString("name");
+				if (!NAME.matcher(name).matches() || indexes.containsKey(name)) {
+					throw new IllegalArgumentException("name must be a unique identifier of letters, digits and _");
+				}
+				FieldPlan plan = plans.apply(spec.getJSONArray("columns"));
+
+				int parent = -1;
+				int min = 1;
+				int max = 1;
+				if (index == 0) {
+					if (spec.has("parent") || plan.usesParent()) {
+						throw new IllegalArgumentException("the first table is the root table and cannot have a parent");
+					}
+				} else {
+					Integer parentIndex = indexes.get(spec.getString("parent"));
+					if (parentIndex == null) {
+						throw new IllegalArgumentException("parent must name an earlier table");
+					}
+					parent = parentIndex;
+					Object perParent = spec.get("perParent");
+					if (perParent instanceof JSONObject range) {
+						min = range.getInt("min");
+						max = range.getInt("max");
+					} else {
+						min = max = spec.getInt("perParent");
+					}
+					if (min < 0 || min > max || max < 1 || max > MAX_PER_PARENT) {
+						throw new IllegalArgumentException("perParent must be from 0 to " + MAX_PER_PARENT + " with min <= max and max >= 1");
+					}
+				}
+				tables[index] = new Table(name, plan, parent, min, max);
+				indexes.put(name, index);
+			} catch (JSONException | IllegalArgumentException e) {
+				throw new IllegalArgumentException("table " + (index + 1) + ": " + e.getMessage());
+			}
+		}
+		return new RelationalPlan(tables);
+	}
+
+	int size() {
+		return tables.length;
+	}
+
+	Table table(int index) {
+		return tables[index];
+	}
+
+	/**
+	 * Index of the table with the given name, or -1
+	 */
+	int indexOf(String name) {
+		for (int index = 0; index < tables.length; index++) {
+			if (tables[index].name().equals(name)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Check that every row number stays below Long.MAX_VALUE
+	 * @param rootRows Root row numbers end before this
+	 * @throws IllegalArgumentException If a table would have too many rows
+	 */
+	void checkRange(long rootRows) {
+		for (int index = 0; index < tables.length; index++) {
+			try {
+				long bound = rootRows;
+				for (int table = index; tables[table].parent() >= 0; table = tables[table].parent()) {
+					bound = Math.multiplyExact(bound, (long) tables[table].maxPerParent());
+				}
+			} catch (ArithmeticException e) {
+				throw new IllegalArgumentException("table " + tables[index].name() + " would have too many rows");
+			}
+		}
+	}
+
+	/**
+	 * Average number of rows of a table per root row
+	 */
+	double rowsPerRoot(int index) {
+		double rows = 1;
+		for (int table = index; tables[table].parent() >= 0; table = tables[table].parent()) {
+			rows *= (tables[table].minPerParent() + tables[table].maxPerParent()) / 2.0;
+		}
+		return rows;
+	}
+
+	/**
+	 * Spec for generating a table's rows: the root table uses the request's seed, so it is equal to
+	 * /RandomDataset, and every other table its own seed derived from it
+	 */
+	PersonSpec spec(int index, PersonSpec spec) {
+		if (index == 0 || spec.seed() == null) {
+			return spec;
+		}
+		return new PersonSpec(spec.fromYear(), spec.toYear(), spec.postal(), spec.seed() + GOLDEN_GAMMA * index,
+				spec.secure(), spec.claimed());
+	}
+
+	/**
+	 * Enumerator of one table's rows, to be used on one thread
+	 * @param fanOutSeed Seed of the number of children per row; requests that must give the same keys use the same seed
+	 */
+	Cursor cursor(int index, long fanOutSeed) {
+		return new Cursor(index, fanOutSeed);
+	}
+
+	/**
+	 * Receives the rows of a table
+	 */
+	@FunctionalInterface
+	interface RowVisitor {
+		/**
+		 * @param parentRow Row number of the parent row, or -1 in the root table
+		 */
+		void row(long row, long parentRow);
+	}
+
+	/**
+	 * Expands root rows into the rows of one table, by walking the path from the root table to it
+	 */
+	final class Cursor {
+		private final Table[] path;
+		private final SeededRandom[] fanOut;
+
+		private Cursor(int index, long fanOutSeed) {
+			int depth = 1;
+			for (int table = index; tables[table].parent() >= 0; table = tables[table].parent()) {
+				depth++;
+			}
+			path = new Table[depth];
+			fanOut = new SeededRandom[depth];
+			for (int table = index, level = depth - 1; level >= 0; table = tables[table].parent(), level--) {
+				path[level] = tables[table];
+				fanOut[level] = new SeededRandom(fanOutSeed + GOLDEN_GAMMA * table);
+			}
+		}
+
+		/**
+		 * Visit the table's rows under root rows [firstRoot, endRoot), in order
+		 * @return Number of rows visited
+		 */
+		long forEach(long firstRoot, long endRoot, RowVisitor visitor) {
+			long rows = 0;
+			for (long root = firstRoot; root < endRoot; root++) {
+				rows += visit(0, root, -1, visitor);
+			}
+			return rows;
+		}
+
+		private long visit(int level, long row, long parentRow, RowVisitor visitor) {
+			if (level == path.length - 1) {
+				visitor.row(row, parentRow);
+				return 1;
+			}
+			Table child = path[level + 1];
+			int children = child.minPerParent();
+			if (child.maxPerParent() > children) {
+				SeededRandom random = fanOut[level + 1];
+				random.seek(row);
+				children = random.nextInt(child.minPerParent(), child.maxPerParent() + 1);
+			}
+			long firstChild = row * child.maxPerParent();
+			long rows = 0;
+			for (int i = 0; i < children; i++) {
+				rows += visit(level + 1, firstChild + i, row, visitor);
+			}
+			return rows;
+		}
+	}
+}
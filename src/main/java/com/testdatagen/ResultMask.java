@@ -0,0 +1,220 @@
+package com.testdatagen;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Replaces the values of chosen /SQL result columns with synthetic ones while rows stream through.
+ * <p>
+ * Every rule is a person field of {@link PersonRecord#FIELDS}, or {@link #HASH}. A value is mapped
+ * by hashing it with HMAC-SHA256 under the server's masking key and seeding the generator of that
+ * one field with the hash, so the same input always gives the same output for the same key, in
+ * every request and every column with the same rule. Personnummer are hashed without delimiter and
+ * century, so the short and long form of one number map to the same fake number. Each masked
+ * column keeps a least recently used cache of its recent mappings, which makes repeated values as
+ * cheap as a map lookup.
+ * <p>
+ * Instances belong to the thread that streams one result set.
+ */
+final class ResultMask {
+
+	/**
+	 * Rule that replaces a value with 16 hex digits of its keyed hash, for identifiers and free text
+	 */
+	static final String HASH = "hash";
+
+	/**
+	 * Birth years of fake personnummer; fixed, so that mappings do not change with the calendar
+	 */
+	private static final int FROM_YEAR = 1930;
+	private static final int TO_YEAR = 2005;
+
+	/**
+	 * Appends the fake value of one rule
+	 */
+	@FunctionalInterface
+	private interface Faker {
+		void append(StringBuilder chars, RandomGenerator random);
+	}
+
+	/**
+	 * A column's rule
+	 * @param tag Hashed with the value, so that each kind of value has its own mapping
+	 * @param faker Appends the fake value, or null for {@link #HASH}
+	 */
+	private record Rule(int tag, Faker faker) {
+	}
+
+	private final Mac mac;
+	private final byte[] hash = new byte[32];
+	private final SeededRandom random = new SeededRandom(0);
+	private final StringBuilder chars = new StringBuilder(64);
+	private final Rule[] rules;
+	private final Map<String, String>[] caches;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param rules Rule per column, indexed from 1 as in JDBC, or null for columns left as they are
+	 */
+	@SuppressWarnings("unchecked")
+	private ResultMask(byte[] key, Rule[] rules, int cacheSize) {
+		try {
+			this.mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(key, "HmacSHA256"));
+		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+			throw new IllegalStateException(e);
+		}
+		this.rules = rules;
+		this.caches = new Map[rules.length];
+		for (int column = 0; column < rules.length; column++) {
+			if (rules[column] != null) {
+				caches[column] = new LinkedHashMap<>(Math.min(cacheSize, 1024), 0.75f, true) {
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+						return size() > cacheSize;
+					}
+				};
+			}
+		}
+	}
+
+	/**
+	 * Resolve masking rules against the columns of a result
+	 * @param spec Column name to rule, e.g. {@code {"PNR":"Personnummer","EMAIL":"email"}}; names match case-insensitively
+	 * @param cacheSize Mappings cached per masked column
+	 * @throws IllegalArgumentException With a message for a 400 response if a column or rule is unknown
+	 */
+	static ResultMask compile(Map<String, Object> spec, ResultSetMetaData metadata, byte[] key, PersonDictionary dictionary,
+			PostalCodeIndex postalCodes, int cacheSize) throws SQLException {
+		Map<String, Integer> columns = new LinkedHashMap<>();
+		for (int column = 1; column <= metadata.getColumnCount(); column++) {
+			columns.putIfAbsent(metadata.getColumnName(column).toLowerCase(Locale.ROOT), column);
+		}
+		Rule[] rules = new Rule[metadata.getColumnCount() + 1];
+		for (Map.Entry<String, Object> entry : spec.entrySet()) {
+			Integer column = columns.get(entry.getKey().toLowerCase(Locale.ROOT));
+			if (column == null) {
+				throw new IllegalArgumentException("mask column " + entry.getKey() + " is not in the result");
+			}
+			rules[column] = rule(String.valueOf(entry.getValue()), dictionary, postalCodes);
+		}
+		return new ResultMask(key, rules, cacheSize);
+	}
+
+	private static Rule rule(String name, PersonDictionary dictionary, PostalCodeIndex postalCodes) {
+		if (HASH.equals(name)) {
+			return new Rule(-1, null);
+		}
+		PersonnummerGenerator personnummer = new PersonnummerGenerator(FROM_YEAR, TO_YEAR);
+		Faker faker = switch (name) {
+			case "Personnummer" -> (chars, random) -> {
+				personnummer.next(random);
+				personnummer.appendShort(chars);
+			};
+			case "longPersonnummer" -> (chars, random) -> {
+				personnummer.next(random);
+				personnummer.appendLong(chars);
+			};
+			case "namn" -> dictionary.firstName()::append;
+			case "efterNamn" -> dictionary.lastName()::append;
+			case "Address" -> dictionary.streetAddress()::append;
+			case "postAdress" -> (chars, random) -> chars.append(postalCodes.ort(postalCodes.randomRow(random)));
+			case "zip" -> (chars, random) -> chars.append(postalCodes.postnummer(postalCodes.randomRow(random)));
+			case "telefon" -> dictionary.phoneNumber()::append;
+			case "mobil" -> dictionary.cellPhone()::append;
+			case "jobPosition" -> dictionary.jobPosition()::append;
+			case "jobTitel" -> dictionary.jobTitle()::append;
+			case "email" -> RandomFields::appendEmail;
+			case "kommun" -> (chars, random) -> chars.append(postalCodes.kommun(postalCodes.randomRow(random)));
+			default -> throw new IllegalArgumentException(
+					"mask rules must be " + HASH + " or one of " + String.join(", ", PersonRecord.FIELDS));
+		};
+		// Personnummer rules share one mapping; every other rule has its own
+		int tag = name.equals("longPersonnummer") ? 0 : List.of(PersonRecord.FIELDS).indexOf(name);
+		return new Rule(tag, faker);
+	}
+
+	/**
+	 * The value to write for a column
+	 * @param column Column index, from 1
+	 * @return The masked value, or value itself if the column is not masked or value is null
+	 */
+	String apply(int column, String value) {
+		Rule rule = rules[column];
+		if (rule == null || value == null) {
+			return value;
+		}
+		Map<String, String> cache = caches[column];
+		String masked = cache.get(value);
+		if (masked != null) {
+			hits++;
+			return masked;
+		}
+		misses++;
+		masked = map(rule, value);
+		cache.put(value, masked);
+		return masked;
+	}
+
+	/**
+	 * Mapped values served from the column caches
+	 */
+	long hits() {
+		return hits;
+	}
+
+	/**
+	 * Mapped values that had to be hashed and generated
+	 */
+	long misses() {
+		return misses;
+	}
+
+	private String map(Rule rule, String value) {
+		mac.update((byte) rule.tag());
+		mac.update((rule.tag() == 0 ? personnummerKey(value) : value).getBytes(StandardCharsets.UTF_8));
+		try {
+			mac.doFinal(hash, 0);
+		} catch (ShortBufferException e) {
+			throw new IllegalStateException(e);
+		}
+		long seed = 0;
+		for (int i = 0; i < 8; i++) {
+			seed = seed << 8 | (hash[i] & 0xFF);
+		}
+		if (rule.faker() == null) {
+			return HexFormat.of().toHexDigits(seed);
+		}
+		random.seek(seed);
+		chars.setLength(0);
+		rule.faker().append(chars, random);
+		return chars.toString();
+	}
+
+	/**
+	 * The last ten digits of a personnummer, so YYMMDD-NNNC, YYMMDD+NNNC and YYYYMMDDNNNC of one number agree
+	 */
+	private static String personnummerKey(String value) {
+		StringBuilder digits = new StringBuilder(12);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits.append(c);
+			}
+		}
+		return digits.length() == 12 ? digits.substring(2) : digits.length() > 0 ? digits.toString() : value;
+	}
+}
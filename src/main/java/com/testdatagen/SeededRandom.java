@@ -0,0 +1,42 @@
+package com.testdatagen;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * SplitMix64 generator that can be repositioned to the start of any row.
+ * <p>
+ * {@link #seek(long)} derives the state for row N from (seed, N) alone, so a row is generated
+ * from the same random values no matter which thread, chunk or server generates it, or in
+ * which order. Instances are mutable and meant to be used by one thread at a time.
+ */
+final class SeededRandom implements RandomGenerator {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final long seed;
+	private long state;
+
+	SeededRandom(long seed) {
+		this.seed = seed;
+		seek(0);
+	}
+
+	/**
+	 * Position the generator at the start of a row
+	 */
+	void seek(long row) {
+		state = mix64(seed + GOLDEN_GAMMA * (row + 1));
+	}
+
+	@Override
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
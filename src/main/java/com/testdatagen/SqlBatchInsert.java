@@ -0,0 +1,94 @@
+package com.testdatagen;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Loads generated rows into a table with batched prepared INSERT statements.
+ * <p>
+ * One writer owns one connection and a range of rows. It generates each row, binds its values
+ * as strings, sends them to the database every {@code batchSize} rows with
+ * {@link PreparedStatement#executeBatch()} and commits every {@code commitInterval} rows, so
+ * neither the client nor the database has to hold the whole load in one transaction.
+ */
+final class SqlBatchInsert {
+
+	/**
+	 * Plain, optionally schema-qualified identifiers; names are put into the statement as they are
+	 */
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$#]{0,127}(\\.[A-Za-z_][A-Za-z0-9_$#]{0,127})?");
+
+	private SqlBatchInsert() {
+	}
+
+	/**
+	 * INSERT statement with one parameter per column
+	 * @throws IllegalArgumentException If the table or a column name is not a plain identifier
+	 */
+	static String insertStatement(String table, String[] columns) {
+		if (!IDENTIFIER.matcher(table).matches()) {
+			throw new IllegalArgumentException("table must be a plain table name, optionally with a schema");
+		}
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+		for (int column = 0; column < columns.length; column++) {
+			if (!IDENTIFIER.matcher(columns[column]).matches() || columns[column].contains(".")) {
+				throw new IllegalArgumentException("column names must be plain identifiers, not " + columns[column]);
+			}
+			sql.append(column > 0 ? ", " : "").append(columns[column]);
+		}
+		sql.append(") VALUES (");
+		for (int column = 0; column < columns.length; column++) {
+			sql.append(column > 0 ? ", ?" : "?");
+		}
+		return sql.append(')').toString();
+	}
+
+	/**
+	 * Insert rows [firstRow, firstRow + count) on one connection. Rows not yet committed when
+	 * an error occurs are rolled back.
+	 * @param committed Incremented by the number of rows of each commit
+	 */
+	static void insert(Connection connection, String sql, FieldPlan.Rows rows, int columns, long firstRow, long count,
+			int batchSize, int commitInterval, LongAdder committed) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			int batched = 0;
+			int uncommitted = 0;
+			for (long row = firstRow; row < firstRow + count; row++) {
+				PersonRecord values = rows.next(row);
+				for (int column = 0; column < columns; column++) {
+					statement.setString(column + 1, values.get(column));
+				}
+				statement.addBatch();
+				uncommitted++;
+				if (++batched == batchSize) {
+					statement.executeBatch();
+					batched = 0;
+					// Another writer failed or the request was cancelled
+					if (Thread.currentThread().isInterrupted()) {
+						throw new SQLException("insert cancelled");
+					}
+				}
+				if (uncommitted >= commitInterval && batched == 0) {
+					connection.commit();
+					committed.add(uncommitted);
+					uncommitted = 0;
+				}
+			}
+			if (batched > 0) {
+				statement.executeBatch();
+			}
+			connection.commit();
+			committed.add(uncommitted);
+		} catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+}
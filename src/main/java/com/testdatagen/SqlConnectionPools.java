@@ -0,0 +1,390 @@
+package com.testdatagen;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.pool.HikariPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of JDBC connection pools for the /SQL endpoint, one per (jdbc url, user).
+ * <p>
+ * Pools are created on first use and keep warm connections between requests. A pool that has
+ * not been used for the idle timeout is closed by a background sweeper, and when the maximum
+ * number of pools is reached the least recently used one without borrowed connections is closed
+ * to make room. If every pool has borrowed connections, the new pool is refused with
+ * {@link PoolsExhaustedException}. When the password of a pool changes, the old pool is retired:
+ * it is replaced at once, but only closed by the sweeper once its borrowed connections are back.
+ * Statement caching is switched on through driver properties for the drivers that support it.
+ */
+@Component
+public class SqlConnectionPools {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SqlConnectionPools.class);
+
+	private final Map<PoolKey, Pool> pools = new ConcurrentHashMap<>();
+	// Replaced pools that still had borrowed connections, guarded by this
+	private final Map<Pool, PoolKey> retired = new HashMap<>();
+	private final AtomicInteger poolCounter = new AtomicInteger();
+	private final ScheduledExecutorService sweeper;
+
+	private final int maxPools;
+	private final int poolSize;
+	private final long idleTimeoutMillis;
+	private final int statementCacheSize;
+	private final int defaultFetchSize;
+	private final MeterRegistry meterRegistry;
+
+	public SqlConnectionPools(
+			@Value("${testdatagen.sql.max-pools:20}") int maxPools,
+			@Value("${testdatagen.sql.pool-size:5}") int poolSize,
+			@Value("${testdatagen.sql.idle-timeout-minutes:10}") long idleTimeoutMinutes,
+			@Value("${testdatagen.sql.statement-cache-size:50}") int statementCacheSize,
+			@Value("${testdatagen.sql.fetch-size:1000}") int defaultFetchSize,
+			MeterRegistry meterRegistry) {
+		this.maxPools = maxPools;
+		this.poolSize = poolSize;
+		this.idleTimeoutMillis = TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+		this.statementCacheSize = statementCacheSize;
+		this.defaultFetchSize = defaultFetchSize;
+		this.meterRegistry = meterRegistry;
+
+		this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "sql-pool-sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Borrow a connection from the pool for (jdbc, user), creating the pool if needed.
+	 * Closing the connection returns it to the pool.
+	 */
+	public Connection getConnection(String jdbc, String user, String password) throws SQLException {
+		PoolKey key = new PoolKey(jdbc, user);
+		byte[] fingerprint = fingerprint(password);
+
+		Pool pool = reserve(key, password, fingerprint);
+		if (pool == null) {
+			// The pool was looked up without the lock and closed meanwhile, by the sweeper or to make room
+			pool = reserve(key, password, fingerprint);
+		}
+		if (pool == null) {
+			throw new SQLException("Connection pool for " + jdbc + " was closed while connecting, try again");
+		}
+		return borrow(pool);
+	}
+
+	/**
+	 * Find or create the pool for key and reserve a borrow from it. A reserved pool is not closed,
+	 * because Hikari would leave a thread that borrows from a closing pool waiting for the connection timeout.
+	 * @return The reserved pool, or null if the pool found was closed before it could be reserved
+	 */
+	private Pool reserve(PoolKey key, String password, byte[] fingerprint) throws SQLException {
+		Pool pool = pools.get(key);
+		if (pool == null || !MessageDigest.isEqual(pool.fingerprint, fingerprint)) {
+			return replacePool(key, password, fingerprint);
+		}
+		return pool.reserve() ? pool : null;
+	}
+
+	/**
+	 * Borrow a connection from a reserved pool and end the reservation
+	 */
+	private static Connection borrow(Pool pool) throws SQLException {
+		try {
+			pool.lastUsed = System.currentTimeMillis();
+			pool.borrowed.incrementAndGet();
+			return pool.dataSource.getConnection();
+		} finally {
+			pool.endReservation();
+		}
+	}
+
+	private Pool replacePool(PoolKey key, String password, byte[] fingerprint) throws SQLException {
+		// Credentials are checked by opening the first connection, so a wrong password never replaces a working pool.
+		// This happens outside the lock, so a slow or unreachable database does not hold up requests to other pools.
+		Pool pool = new Pool(createDataSource(key, password), fingerprint);
+		Pool winner;
+		try {
+			winner = register(key, pool);
+		} catch (PoolsExhaustedException e) {
+			pool.dataSource.close();
+			throw e;
+		}
+		if (winner != pool) {
+			// Another request created the same pool meanwhile
+			pool.dataSource.close();
+		}
+		return winner;
+	}
+
+	/**
+	 * Add a validated pool, making room for it if needed
+	 * @return The pool now registered for key, which is an equal one if another request got there first, reserved
+	 */
+	private synchronized Pool register(PoolKey key, Pool pool) throws PoolsExhaustedException {
+		// Pools in the map are only closed under this lock, so reserving them cannot fail
+		Pool existing = pools.get(key);
+		if (existing != null && MessageDigest.isEqual(existing.fingerprint, pool.fingerprint)) {
+			existing.reserve();
+			return existing;
+		}
+		if (existing != null) {
+			retire(key, existing);
+		} else if (pools.size() >= maxPools && !closeLeastRecentlyUsed()) {
+			throw new PoolsExhaustedException("All " + maxPools + " connection pools have borrowed connections, try again later");
+		}
+		pools.put(key, pool);
+		pool.reserve();
+		return pool;
+	}
+
+	/**
+	 * Close the least recently used pool without borrowed connections
+	 * @return false if every pool is in use
+	 */
+	private boolean closeLeastRecentlyUsed() {
+		List<Map.Entry<PoolKey, Pool>> byLastUse = pools.entrySet().stream()
+				.sorted(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+				.toList();
+		for (Map.Entry<PoolKey, Pool> entry : byLastUse) {
+			if (closeIfUnused(entry.getKey(), entry.getValue(), "max pools reached")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private HikariDataSource createDataSource(PoolKey key, String password) throws SQLException {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("sql-" + poolCounter.incrementAndGet());
+		config.setJdbcUrl(key.jdbc());
+		config.setUsername(key.user());
+		config.setPassword(password);
+		config.setMaximumPoolSize(poolSize);
+		config.setMinimumIdle(0);
+		config.setIdleTimeout(idleTimeoutMillis);
+		config.setRegisterMbeans(false);
+		// Pool meters (hikaricp.connections.*) tagged with the pool name; Hikari removes them when the pool closes
+		config.setMetricRegistry(meterRegistry);
+		statementCacheProperties(key.jdbc()).forEach(config::addDataSourceProperty);
+
+		try {
+			HikariDataSource dataSource = new HikariDataSource(config);
+			LOGGER.info("Created connection pool {} for {} as {}", config.getPoolName(), key.jdbc(), key.user());
+			return dataSource;
+		} catch (HikariPool.PoolInitializationException e) {
+			if (e.getCause() instanceof SQLException sqlException) {
+				throw sqlException;
+			}
+			throw new SQLException(e.getMessage(), e);
+		} catch (RuntimeException e) {
+			// Unknown JDBC URL or driver
+			throw new SQLException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Maximum connections per pool
+	 */
+	public int poolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * JDBC fetch size used when a request does not set one
+	 */
+	public int defaultFetchSize() {
+		return defaultFetchSize;
+	}
+
+	/**
+	 * Driver properties that turn on prepared statement caching
+	 */
+	private Map<String, Object> statementCacheProperties(String jdbc) {
+		if (statementCacheSize <= 0) {
+			return Map.of();
+		}
+		if (jdbc.startsWith("jdbc:oracle:")) {
+			return Map.of("oracle.jdbc.implicitStatementCacheSize", String.valueOf(statementCacheSize));
+		}
+		if (jdbc.startsWith("jdbc:mysql:") || jdbc.startsWith("jdbc:mariadb:")) {
+			return Map.of("cachePrepStmts", "true",
+					"prepStmtCacheSize", String.valueOf(statementCacheSize),
+					"prepStmtCacheSqlLimit", "2048");
+		}
+		if (jdbc.startsWith("jdbc:postgresql:")) {
+			return Map.of("preparedStatementCacheQueries", String.valueOf(statementCacheSize));
+		}
+		return Map.of();
+	}
+
+	private static byte[] fingerprint(String password) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	synchronized void evictIdle() {
+		long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+		pools.entrySet().stream()
+				.filter(entry -> entry.getValue().lastUsed < cutoff)
+				.toList()
+				.forEach(entry -> closeIfUnused(entry.getKey(), entry.getValue(), "idle"));
+		retired.entrySet().removeIf(entry -> closeIfUnused(entry.getValue(), entry.getKey(), "retired"));
+	}
+
+	/**
+	 * Replace a pool whose password changed. Closing a Hikari pool aborts its borrowed connections,
+	 * so a pool still in use is kept open until the sweeper finds all its connections returned.
+	 */
+	private void retire(PoolKey key, Pool pool) {
+		if (closeIfUnused(key, pool, "password changed")) {
+			return;
+		}
+		pools.remove(key, pool);
+		retired.put(pool, key);
+		LOGGER.info("Retired connection pool {} for {} as {} (password changed), closing when its connections are returned",
+				pool.dataSource.getPoolName(), key.jdbc(), key.user());
+	}
+
+	/**
+	 * Number of replaced pools waiting for their borrowed connections before they are closed
+	 */
+	synchronized int retiredPools() {
+		return retired.size();
+	}
+
+	private static int activeConnections(Pool pool) {
+		return Optional.ofNullable(pool.dataSource.getHikariPoolMXBean())
+				.map(HikariPoolMXBean::getActiveConnections).orElse(0);
+	}
+
+	/**
+	 * Close a pool unless a connection is borrowed from it or being borrowed
+	 * @return false if the pool is in use and was left open
+	 */
+	private boolean closeIfUnused(PoolKey key, Pool pool, String reason) {
+		synchronized (pool) {
+			if (pool.reservations > 0 || activeConnections(pool) > 0) {
+				return false;
+			}
+			pool.closed = true;
+		}
+		close(key, pool, reason);
+		return true;
+	}
+
+	private void close(PoolKey key, Pool pool, String reason) {
+		synchronized (pool) {
+			pool.closed = true;
+		}
+		pools.remove(key, pool);
+		pool.dataSource.close();
+		LOGGER.info("Closed connection pool {} for {} as {} ({})", pool.dataSource.getPoolName(), key.jdbc(), key.user(), reason);
+	}
+
+	/**
+	 * Per-pool statistics as a JSON array
+	 */
+	public JSONArray stats() {
+		JSONArray result = new JSONArray();
+		pools.forEach((key, pool) -> {
+			HikariPoolMXBean mxBean = pool.dataSource.getHikariPoolMXBean();
+			JSONObject stats = new JSONObject();
+			stats.put("pool", pool.dataSource.getPoolName());
+			stats.put("jdbc", key.jdbc());
+			stats.put("user", key.user());
+			stats.put("borrowed", pool.borrowed.get());
+			stats.put("lastUsed", Instant.ofEpochMilli(pool.lastUsed).toString());
+			if (mxBean != null) {
+				stats.put("active", mxBean.getActiveConnections());
+				stats.put("idle", mxBean.getIdleConnections());
+				stats.put("total", mxBean.getTotalConnections());
+				stats.put("waiting", mxBean.getThreadsAwaitingConnection());
+			}
+			result.put(stats);
+		});
+		return result;
+	}
+
+	@PreDestroy
+	public synchronized void closeAll() {
+		sweeper.shutdownNow();
+		pools.forEach((key, pool) -> close(key, pool, "shutdown"));
+		retired.forEach((pool, key) -> close(key, pool, "shutdown"));
+		retired.clear();
+	}
+
+	/**
+	 * Thrown when a new pool is needed, the maximum number of pools is reached and every pool has
+	 * borrowed connections; a 503 for the client to retry
+	 */
+	public static class PoolsExhaustedException extends SQLException {
+		PoolsExhaustedException(String message) {
+			super(message);
+		}
+	}
+
+	private record PoolKey(String jdbc, String user) {
+	}
+
+	private static class Pool {
+		final HikariDataSource dataSource;
+		final byte[] fingerprint;
+		final AtomicLong borrowed = new AtomicLong();
+		volatile long lastUsed = System.currentTimeMillis();
+		// Borrows in progress, and whether the pool is closed, guarded by the pool
+		int reservations;
+		boolean closed;
+
+		Pool(HikariDataSource dataSource, byte[] fingerprint) {
+			this.dataSource = dataSource;
+			this.fingerprint = fingerprint;
+		}
+
+		/**
+		 * @return false if the pool is closed
+		 */
+		synchronized boolean reserve() {
+			if (closed) {
+				return false;
+			}
+			reservations++;
+			return true;
+		}
+
+		synchronized void endReservation() {
+			reservations--;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.testdatagen;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application-wide threads for the writers of POST /SQL/insert.
+ * <p>
+ * Writers block on the database, so they run on their own threads rather than the generation
+ * pool: virtual threads when {@code spring.threads.virtual.enabled} is set, otherwise a shared
+ * platform pool that shrinks back when idle. A request first takes one permit per writer with
+ * {@link #tryAcquire(int)}, so at most {@code testdatagen.sql.insert.max-writers} writers run at
+ * once and further requests are turned away up front.
+ */
+@Component
+public class SqlInsertWriters {
+
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final int maxWriters;
+
+	public SqlInsertWriters(
+			@Value("${testdatagen.sql.insert.max-writers:16}") int maxWriters,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+		this.maxWriters = Math.max(1, maxWriters);
+		this.permits = new Semaphore(this.maxWriters);
+		if (virtualThreads) {
+			this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sql-insert-", 1).factory());
+		} else {
+			// Permits bound the number of tasks, so the queue only holds tasks briefly while a thread frees up
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(this.maxWriters, this.maxWriters, 60L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), new WriterThreadFactory());
+			pool.allowCoreThreadTimeOut(true);
+			this.executor = pool;
+		}
+	}
+
+	/**
+	 * Admit the writers of an insert request
+	 * @return false if fewer than writers writer threads are free
+	 */
+	public boolean tryAcquire(int writers) {
+		return permits.tryAcquire(writers);
+	}
+
+	/**
+	 * Release writers admitted with {@link #tryAcquire(int)}, once they have finished
+	 */
+	public void release(int writers) {
+		permits.release(writers);
+	}
+
+	/**
+	 * Upper bound for the writers of one request
+	 */
+	public int maxWriters() {
+		return maxWriters;
+	}
+
+	/**
+	 * Writers currently admitted
+	 */
+	public int activeWriters() {
+		return maxWriters - permits.availablePermits();
+	}
+
+	/**
+	 * Run the writers of one request and wait until every one of them has finished. When a writer
+	 * fails, the others are interrupted, and writers that have not started yet do not start.
+	 * @throws ExecutionException With the failure of the first writer that failed
+	 */
+	public void runAll(List<Callable<Void>> writers) throws ExecutionException, InterruptedException {
+		Set<Thread> running = new HashSet<>();
+		boolean[] failed = new boolean[1];
+		List<Future<Void>> futures = new ArrayList<>(writers.size());
+		for (Callable<Void> writer : writers) {
+			futures.add(executor.submit(() -> {
+				synchronized (running) {
+					if (failed[0]) {
+						return null;
+					}
+					running.add(Thread.currentThread());
+				}
+				try {
+					return writer.call();
+				} catch (Exception | Error e) {
+					synchronized (running) {
+						failed[0] = true;
+						running.remove(Thread.currentThread());
+						running.forEach(Thread::interrupt);
+					}
+					throw e;
+				} finally {
+					synchronized (running) {
+						running.remove(Thread.currentThread());
+					}
+					// An interrupt meant for this writer must not reach the next task of a pooled thread
+					Thread.interrupted();
+				}
+			}));
+		}
+
+		// Wait for every writer, even after a failure or an interrupt, so that released permits mean finished writers
+		ExecutionException firstFailure = null;
+		boolean interrupted = false;
+		for (Future<Void> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (ExecutionException e) {
+					firstFailure = firstFailure == null ? e : firstFailure;
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					synchronized (running) {
+						failed[0] = true;
+						running.forEach(Thread::interrupt);
+					}
+				}
+			}
+		}
+		if (interrupted) {
+			throw new InterruptedException("insert interrupted");
+		}
+		if (firstFailure != null) {
+			throw firstFailure;
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private static class WriterThreadFactory implements ThreadFactory {
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "sql-insert-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
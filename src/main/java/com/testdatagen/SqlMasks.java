@@ -0,0 +1,54 @@
+package com.testdatagen;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Masking key and settings for the {@code mask} rules of /SQL, see {@link ResultMask}.
+ * <p>
+ * Masked values are only stable across restarts and between servers that share
+ * {@code testdatagen.sql.mask-key}. Without one, a random key is made at startup, so mappings
+ * are consistent across the requests of one process only.
+ */
+@Component
+public class SqlMasks {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SqlMasks.class);
+
+	private final PersonDictionary dictionary;
+	private final PostalCodeIndex postalCodes;
+	private final byte[] key;
+	private final int cacheSize;
+
+	public SqlMasks(PersonDictionary dictionary, PostalCodeIndex postalCodes,
+			@Value("${testdatagen.sql.mask-key:}") String key,
+			@Value("${testdatagen.sql.mask-cache-size:10000}") int cacheSize) {
+		this.dictionary = dictionary;
+		this.postalCodes = postalCodes;
+		this.cacheSize = Math.max(1, cacheSize);
+		if (key.isBlank()) {
+			LOGGER.warn("testdatagen.sql.mask-key is not set: masked /SQL values will change when the server restarts");
+			this.key = new byte[32];
+			new SecureRandom().nextBytes(this.key);
+		} else {
+			this.key = key.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Masker for one result set
+	 * @param rules The request's {@code mask} object, column name to rule
+	 * @throws IllegalArgumentException With a message for a 400 response if a column or rule is unknown
+	 */
+	ResultMask compile(JSONObject rules, ResultSetMetaData metadata) throws SQLException {
+		return ResultMask.compile(rules.toMap(), metadata, key, dictionary, postalCodes, cacheSize);
+	}
+}
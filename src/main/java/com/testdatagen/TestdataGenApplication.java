@@ -10,28 +10,50 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import com.github.javafaker.Faker;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.Year;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static java.lang.Integer.parseInt;
 
@@ -46,7 +68,9 @@ import static java.lang.Integer.parseInt;
 						"1. **GET /healthcheck** - API health check and service status verification.\n\n" +
 						"**Test Data Generation**\n" +
 						"2. **GET /RandomPerson** - Generate Swedish persons with personnummer (CSV format).\n" +
-						"   - Parameters: `antal` (1-25000), `from` (birth year), `to` (birth year)\n" +
+						"   - Parameters: `antal` (1-25000), `from` (birth year), `to` (birth year), optional `kommun`, `zipPrefix`, `weighting`\n" +
+						"   - `unique=true` or `dataset=<name>` guarantee distinct personnummer and emails (datasets: **GET /datasets**, **DELETE /datasets/{name}**)\n" +
+						"   - `format=json`, `jsonl`, `csv.gz` or `columnar` for a JSON array, JSON Lines, gzip-compressed CSV or binary columns\n" +
 						"   - Generates: Personnummer, name, address, phone, email, job info\n" +
 						"   - Age range: Configurable via from/to parameters\n" +
 						"   - Correctly handles 100+ year old persons with '+' delimiter\n" +
@@ -54,15 +78,33 @@ import static java.lang.Integer.parseInt;
 						"3. **GET /RandomPersonJson** - Generate single Swedish person (JSON format).\n" +
 						"   - Returns one person with complete details in JSON\n" +
 						"   - Includes both short and long personnummer formats\n" +
-						"   - Perfect for single record testing\n\n" +
+						"   - Perfect for single record testing\n" +
+						"   - **GET /RandomPersonJsonBulk** returns many persons as a JSON array (or JSON Lines) in one call\n\n" +
 						"4. **GET /RandomUUID** - Generate random UUIDs.\n" +
 						"   - Parameters: `antal` (1-50000) - Number of UUIDs\n" +
 						"   - Returns: Line-separated UUIDs in CSV format\n" +
+						"   - `version` 4 (random, default), 7 (time-ordered UUIDv7) or ulid\n" +
 						"   - High-performance generation\n\n" +
+						"**Streaming Generation**\n" +
+						"5. **GET /RandomPersonStream** - Stream Swedish persons (CSV format) without the 25000 limit.\n" +
+						"   - Parameters: `antal`, `from`, `to` and the same optional filters as /RandomPerson\n" +
+						"   - Rows are written to the response as worker batches finish\n" +
+						"   - **POST /RandomDataset** streams rows with the columns of a posted schema: person fields, constants, ranges, patterns\n" +
+						"   - **POST /RandomRelationalDataset** streams linked tables (e.g. persons, accounts, transactions) with matching keys\n" +
+						"   - **POST /ValidatePersonnummer** validates and normalises a streamed body of personnummer, one per line\n\n" +
+						"6. **GET /RandomUUIDStream** - Stream UUIDs without the 50000 limit.\n" +
+						"   - Parameters: `antal` - Number of UUIDs\n" +
+						"   - **GET /RandomFeed** emits persons or UUIDs at a fixed rate (CSV or server-sent events) for load generator feeders\n\n" +
+						"**Background Jobs**\n" +
+						"7. **POST /jobs** - Generate persons to a file in the background, with the parameters of /RandomPersonStream.\n" +
+						"   - Poll **GET /jobs/{id}**, then download **GET /jobs/{id}/result** (supports Range requests)\n" +
+						"   - Seeded jobs are cached: the same request returns the finished file again\n\n" +
 						"**Database Operations**\n" +
-						"5. **POST /SQL** - Execute SQL query and return results.\n" +
+						"8. **POST /SQL** - Execute SQL query and return results.\n" +
 						"   - Accepts: JDBC URL, SQL query, credentials\n" +
 						"   - Returns: CSV formatted results\n" +
+						"   - Connections are pooled per JDBC URL and user (stats: **GET /SQL/pools**)\n" +
+						"   - **POST /SQL/insert** generates persons or a custom schema and inserts them into a table with batched INSERTs\n" +
 						"   - Supports multiple database types (MySQL, PostgreSQL, Oracle, etc.)\n" +
 						"   - ⚠️ Use with caution - executes raw SQL queries\n\n" +
 						"**Swedish Personnummer Format:**\n" +
@@ -73,6 +115,7 @@ import static java.lang.Integer.parseInt;
 						"- Last 4 digits: 3 random + 1 checksum digit\n\n" +
 						"**Performance Features:**\n" +
 						"- Multithreaded generation for bulk operations\n" +
+						"- Streaming endpoints with bounded buffering for very large datasets\n" +
 						"- Optimized for high-volume test data creation\n" +
 						"- Efficient resource utilization\n"
 		),
@@ -86,12 +129,73 @@ import static java.lang.Integer.parseInt;
 @Tag(name = "Test Data Generator", description = "Generate realistic Swedish test data for performance testing with multithreaded processing")
 public class TestdataGenApplication {
 
+	/**
+	 * Rows per chunk handed to a worker by the streaming endpoints
+	 */
+	private static final int STREAM_CHUNK_SIZE = 10000;
+
+	/**
+	 * Bytes of request body per block handed to a worker by /ValidatePersonnummer
+	 */
+	private static final int VALIDATE_BLOCK_SIZE = 256 * 1024;
+	// Request attribute with the release registered by releasingAfter
+	private static final String STREAM_RELEASE_ATTRIBUTE = TestdataGenApplication.class.getName() + ".streamRelease";
+
 	public static void main(String[] args) {
 		SpringApplication.run(TestdataGenApplication.class, args);
 	}
 
+	/**
+	 * Log the threading mode Tomcat actually runs with. With Spring AOT the mode is fixed when the
+	 * jar is built, so the property may say otherwise.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void logThreadMode(ApplicationReadyEvent event) {
+		boolean configured = event.getApplicationContext().getEnvironment()
+				.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+		boolean virtualThreads = event.getApplicationContext() instanceof WebServerApplicationContext web
+				&& web.getWebServer() instanceof TomcatWebServer tomcat
+				&& tomcat.getTomcat().getConnector().getProtocolHandler().getExecutor() instanceof VirtualThreadExecutor;
+		colorLogger.logInfo("Request threads: " + (virtualThreads ? "virtual" : "platform") +
+				", generation pool: " + generation.poolSize() + " platform threads");
+		if (configured != virtualThreads) {
+			colorLogger.logError("spring.threads.virtual.enabled=" + configured + " is ignored: this jar was built with Spring AOT " +
+					"in " + (virtualThreads ? "virtual" : "platform") + " thread mode; rebuild with -Daot.virtual-threads=" + configured);
+		}
+	}
+
 	ColorLogger colorLogger = new ColorLogger();
 
+	private final PostalCodeIndex postalCodes;
+	private final PersonDictionary dictionary;
+	private final UniqueDatasets uniqueDatasets;
+	private final FieldPlans fieldPlans;
+	private final PersonPool personPool;
+	private final DataFeed feed;
+	private final GenerationExecutor generation;
+	private final GenerationJobs jobs;
+	private final GenerationMetrics metrics;
+	private final SqlConnectionPools sqlPools;
+	private final SqlMasks sqlMasks;
+	private final SqlInsertWriters insertWriters;
+
+	public TestdataGenApplication(PostalCodeIndex postalCodes, PersonDictionary dictionary, UniqueDatasets uniqueDatasets,
+			FieldPlans fieldPlans, PersonPool personPool, DataFeed feed, GenerationExecutor generation, GenerationJobs jobs,
+			GenerationMetrics metrics, SqlConnectionPools sqlPools, SqlMasks sqlMasks, SqlInsertWriters insertWriters) {
+		this.postalCodes = postalCodes;
+		this.dictionary = dictionary;
+		this.uniqueDatasets = uniqueDatasets;
+		this.fieldPlans = fieldPlans;
+		this.personPool = personPool;
+		this.feed = feed;
+		this.generation = generation;
+		this.jobs = jobs;
+		this.metrics = metrics;
+		this.sqlPools = sqlPools;
+		this.sqlMasks = sqlMasks;
+		this.insertWriters = insertWriters;
+	}
+
 	@Configuration
 	public class WebMvc implements WebMvcConfigurer {
 		@Override
@@ -100,6 +204,22 @@ public class TestdataGenApplication {
 					.allowedMethods("*")
 					.allowedOrigins("*");
 		}
+
+		/**
+		 * Release what a streaming handler took, when its body never ran, e.g. because the async
+		 * task executor rejected it; see {@link #releasingAfter(Runnable, StreamingResponseBody)}
+		 */
+		@Override
+		public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+			configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+				@Override
+				public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+					if (request.getAttribute(STREAM_RELEASE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Runnable release) {
+						release.run();
+					}
+				}
+			});
+		}
 	}
 
 	@Operation(
@@ -130,6 +250,8 @@ public class TestdataGenApplication {
 					"UUIDs are returned in standard format (e.g., 550e8400-e29b-41d4-a716-446655440000). " +
 					"Each UUID is guaranteed to be unique and follows RFC 4122 standards. " +
 					"Results are returned in CSV format with one UUID per line. " +
+					"`version=7` returns time-ordered UUIDv7 and `version=ulid` ULIDs, which increase within a response and across requests, " +
+					"so they insert at the end of a B-tree primary key index instead of at random pages. " +
 					"**Multithreaded generation for high performance.**"
 	)
 	@ApiResponses(value = {
@@ -145,22 +267,37 @@ public class TestdataGenApplication {
 	@GetMapping(value = "RandomUUID")
 	public ResponseEntity<String> RandomUUID(
 			@Parameter(description = "Number of UUIDs to generate (1-50000)", required = true, example = "100")
-			@RequestParam String antal) {
-
-		if (!antal.matches("[0-9]+")) {
-			return ResponseEntity.status(400)
-					.body("parameter must be an integer");
+			@RequestParam String antal,
+			@Parameter(description = "Use a cryptographically strong random generator (slower)", example = "false")
+			@RequestParam(defaultValue = "false") boolean secure,
+			@Parameter(description = "Seed for reproducible output: the same seed and row number always give the same row", example = "42")
+			@RequestParam(required = false) String seed,
+			@Parameter(description = "Row number of the first row, for generating one shard of a seeded dataset", example = "0")
+			@RequestParam(defaultValue = "0") String offset,
+			@Parameter(description = "4 (random), 7 (time-ordered UUIDv7) or ulid (time-ordered ULID)", example = "4")
+			@RequestParam(defaultValue = "4") String version) {
+
+		String error = validateAntal(antal, 50000);
+		if (error == null) {
+			error = validateSeed(seed, offset, secure);
 		}
-
-		int count = parseInt(antal);
-		if (count > 50000) {
+		if (error == null) {
+			error = validateUuidVersion(version, seed, offset);
+		}
+		if (error != null) {
 			return ResponseEntity.status(400)
-					.body("parameter limit 50000");
+					.body(error);
 		}
 
-		if (count < 1) {
-			return ResponseEntity.status(400)
-					.body("parameter must be at least 1");
+		int count = parseInt(antal);
+		Long seedValue = seed == null ? null : Long.valueOf(seed);
+		long firstRow = Long.parseLong(offset);
+		UuidWriter.Version uuidVersion = UuidWriter.Version.parse(version);
+
+		if (!generation.tryAcquire()) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, "1")
+					.body("too many concurrent generation requests, retry later");
 		}
 
 		long start = System.currentTimeMillis();
@@ -171,59 +308,70 @@ public class TestdataGenApplication {
 		headers.add(HttpHeaders.CONTENT_TYPE, "text/csv");
 		headers.add(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
 
-		// Multithreaded generation
-		int numThreads = Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, count / 100));
-		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-		List<Future<List<String>>> futures = new ArrayList<>();
+		// Multithreaded generation on the shared pool
+		int numThreads = Math.min(generation.poolSize(), Math.max(1, count / 100));
+		List<Future<byte[]>> futures = new ArrayList<>();
+		ByteArrayOutputStream gen = new ByteArrayOutputStream(count * (uuidVersion.length + 1));
 
-		int batchSize = (int) Math.ceil((double) count / numThreads);
+		try {
+			int batchSize = (int) Math.ceil((double) count / numThreads);
+			// One block of sequence numbers for the whole response, so the ids increase across batches
+			long firstSequence = uuidVersion.timeOrdered() ? UuidWriter.reserve(count) : 0;
 
-		for (int thread = 0; thread < numThreads; thread++) {
-			final int startIdx = thread * batchSize;
-			final int endIdx = Math.min(startIdx + batchSize, count);
-			final int itemsToGenerate = endIdx - startIdx;
+			for (int thread = 0; thread < numThreads; thread++) {
+				final int startIdx = thread * batchSize;
+				final int endIdx = Math.min(startIdx + batchSize, count);
+				final int itemsToGenerate = endIdx - startIdx;
 
-			if (itemsToGenerate <= 0) break;
+				if (itemsToGenerate <= 0) break;
 
-			Future<List<String>> future = executor.submit(() -> generateUUIDBatch(itemsToGenerate));
-			futures.add(future);
-		}
+				Future<byte[]> future = generation.submit(() -> generateUUIDBatch(firstRow + startIdx, itemsToGenerate, seedValue, secure,
+						uuidVersion, firstSequence + startIdx));
+				futures.add(future);
+			}
 
-		// Collect results
-		StringBuilder gen = new StringBuilder();
-		try {
-			for (Future<List<String>> future : futures) {
-				List<String> batch = future.get();
-				for (String uuid : batch) {
-					gen.append(uuid).append("\n");
-				}
+			// Collect results
+			for (Future<byte[]> future : futures) {
+				gen.writeBytes(future.get());
 			}
+		} catch (RejectedExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			colorLogger.logError("Generation queue full, rejecting RandomUUID request");
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, "1")
+					.body("generation queue full, retry later");
 		} catch (InterruptedException | ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
 			colorLogger.logError("Error during multithreaded UUID generation: " + e.getMessage());
-			executor.shutdown();
 			return ResponseEntity.status(500).body("Error generating UUIDs");
+		} finally {
+			generation.release();
 		}
 
-		executor.shutdown();
-
 		long finish = System.currentTimeMillis();
 		long timeElapsed = finish - start;
-		colorLogger.logInfo("RandomUUID exec time: " + timeElapsed + "ms (multithreaded with " + numThreads + " threads)");
+		metrics.request("RandomUUID", timeElapsed, count);
+		colorLogger.logInfo(() -> "RandomUUID exec time: " + timeElapsed + "ms (multithreaded with " + numThreads + " threads, " + throughput(count, timeElapsed) + ")");
 
 		return ResponseEntity.ok()
 				.headers(headers)
-				.body(gen.toString());
+				.body(gen.toString(StandardCharsets.US_ASCII));
 	}
 
 	/**
-	 * Generate a batch of UUIDs (helper method for multithreading)
+	 * Generate a batch of UUIDs, one per line, as ASCII (helper method for multithreading)
+	 * @param firstRow Row number of the first UUID, which together with the seed determines its value
+	 * @param seed Seed for reproducible output, or null
+	 * @param secure Use a cryptographically strong random generator
+	 * @param firstSequence Sequence number of the first time-ordered id, from {@link UuidWriter#reserve(int)}
 	 */
-	private List<String> generateUUIDBatch(int count) {
-		List<String> results = new ArrayList<>();
-		for (int i = 0; i < count; i++) {
-			results.add(UUID.randomUUID().toString());
-		}
-		return results;
+	byte[] generateUUIDBatch(long firstRow, int count, Long seed, boolean secure, UuidWriter.Version version, long firstSequence) {
+		long start = System.nanoTime();
+		RandomGenerator random = RandomFields.generator(seed, secure);
+		byte[] batch = UuidWriter.write(version, count, random, random instanceof SeededRandom seeded ? seeded : null,
+				firstRow, firstSequence);
+		metrics.batch(GenerationMetrics.UUID, System.nanoTime() - start, count);
+		return batch;
 	}
 
 	@Operation(
@@ -231,7 +379,8 @@ public class TestdataGenApplication {
 			description = "Generate a single random Swedish person with complete details in JSON format. " +
 					"Includes valid Swedish personnummer (both short and long format), realistic name, address, " +
 					"contact information, and job details. Perfect for single record testing or API integration testing. " +
-					"The personnummer correctly handles age-based delimiter rules (- for under 100 years, + for 100+ years)."
+					"The personnummer correctly handles age-based delimiter rules (- for under 100 years, + for 100+ years). " +
+					"Persons are served from a warm pool of pre-generated persons when `testdatagen.person-pool.size` is set."
 	)
 	@ApiResponses(value = {
 			@ApiResponse(responseCode = "200", description = "Person generated successfully with complete details",
@@ -243,13 +392,13 @@ public class TestdataGenApplication {
 									"  \"efterNamn\": \"Andersson\",\n" +
 									"  \"Address\": \"Storgatan 1\",\n" +
 									"  \"postAdress\": \"Stockholm\",\n" +
-									"  \"zip\": \"11122\",\n" +
+									"  \"zip\": \"111 22\",\n" +
 									"  \"telefon\": \"0812345678\",\n" +
 									"  \"mobil\": \"0701234567\",\n" +
 									"  \"jobPosition\": \"Developer\",\n" +
 									"  \"jobTitel\": \"Software Engineer\",\n" +
 									"  \"email\": \"test123456@example123456.com\",\n" +
-									"  \"kommun\": \"Stockholm\"\n" +
+									"  \"kommun\": \"Stockholms kommun\"\n" +
 									"}")))
 	})
 	@GetMapping(value = "RandomPersonJson")
@@ -260,61 +409,11 @@ public class TestdataGenApplication {
 		headers.add(HttpHeaders.CONTENT_ENCODING, "UTF-8");
 		headers.add(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
 
-		Random randomizer = new Random();
-		InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("static/postnummer.csv");
-
-		if (inputStream == null) {
-			colorLogger.logError("postnummer.csv not found in resources");
-			return ResponseEntity.status(500).body("{\"error\":\"Configuration error: postnummer.csv not found\"}");
-		}
-
 		try {
-			Faker faker = new Faker(new Locale("sv-SE"));
-			String lowerCharacters = "abcdefghijklmnopqrstuvwxyz";
-			String numberCharacters = "0123456789";
-
-			// Parse CSV file
-			String csvContent = IOUtils.toString(inputStream, "UTF-8");
-			String[] lines = csvContent.split("\n");
-			String line = lines[randomizer.nextInt(lines.length)];
-			String[] values = line.split(";");
-
-			String postnummer = values[0].trim();
-			String kommun = values[1].trim();
-
-			// Generate personnummer using Faker
-			String rawPersonnummer = faker.idNumber().validSvSeSsn();
-			String[] formattedPersonnummer = formatPersonnummer(rawPersonnummer);
-			String shortPersonnummer = formattedPersonnummer[0];
-			String longPersonnummer = formattedPersonnummer[1];
-
-			String mail = RandomStringUtils.random(6, lowerCharacters) +
-					RandomStringUtils.random(6, numberCharacters) + "@" +
-					RandomStringUtils.random(6, lowerCharacters) +
-					RandomStringUtils.random(6, numberCharacters) + ".com";
-
-			JSONObject person = new JSONObject();
-			person.put("Personnummer", shortPersonnummer);
-			person.put("longPersonnummer", longPersonnummer);
-			person.put("namn", faker.name().firstName());
-			person.put("efterNamn", faker.name().lastName());
-			person.put("Address", faker.address().streetAddress());
-			person.put("postAdress", faker.address().state());
-			person.put("zip", postnummer);
-			person.put("telefon", faker.phoneNumber().phoneNumber().replace("-", ""));
-			person.put("mobil", faker.phoneNumber().cellPhone().replace("-", ""));
-			person.put("jobPosition", faker.job().position());
-			person.put("jobTitel", faker.job().title());
-			person.put("email", mail);
-			person.put("kommun", kommun);
-
 			return ResponseEntity.ok()
 					.headers(headers)
-					.body(person.toString());
+					.body(personPool.next());
 
-		} catch (IOException e) {
-			colorLogger.logError("Error reading postnummer.csv: " + e.getMessage());
-			return ResponseEntity.status(500).body("{\"error\":\"Failed to read postal code data\"}");
 		} catch (Exception e) {
 			colorLogger.logError("Error generating person: " + e.getMessage());
 			return ResponseEntity.status(500).body("{\"error\":\"Failed to generate person data\"}");
@@ -325,345 +424,1952 @@ public class TestdataGenApplication {
 			summary = "Generate Multiple Random Swedish Persons (CSV)",
 			description = "Generate multiple random Swedish persons with complete details in CSV format using multithreaded processing. " +
 					"Each person includes valid Swedish personnummer (both formats), realistic name, address, contact info, and job details. " +
-					"Supports filtering by birth year range for age-specific test data. " +
+					"Supports filtering by birth year range (inclusive) for age-specific test data; birth dates are drawn " +
+					"uniformly within the range and exactly `antal` rows are always returned. " +
 					"**Performance optimized with parallel processing for bulk generation.**\n\n" +
 					"**CSV Format:** " +
-					"Personnummer;longPersonnummer;FirstName;LastName;Address;State;Zip;Phone;Mobile;JobPosition;JobTitle;Email\n\n" +
+					"Personnummer;longPersonnummer;FirstName;LastName;Address;PostalArea;Zip;Phone;Mobile;JobPosition;JobTitle;Email;Kommun\n\n" +
+					"Zip, postal area and kommun always come from the same row of the Swedish postal code table, " +
+					"optionally filtered with `kommun`/`zipPrefix` and weighted per postal code or per kommun.\n\n" +
+					"**Other formats:** `format=json` (a JSON array of objects with the keys of /RandomPersonJson), " +
+					"`format=jsonl` (one such JSON object per line), " +
+					"`format=csv.gz` (gzip-compressed CSV) or `format=columnar` (binary column blocks, see the README). " +
+					"Without `format` the Accept header picks the format, else CSV.\n\n" +
 					"**Usage Examples:**\n" +
 					"- Generate 100 persons born 1950-2000: `?antal=100&from=1950&to=2000`\n" +
 					"- Generate 1000 young adults: `?antal=1000&from=1995&to=2005`\n" +
-					"- Generate 500 seniors: `?antal=500&from=1940&to=1960`"
+					"- Generate 500 seniors: `?antal=500&from=1940&to=1960`\n" +
+					"- Generate 1000 persons living in Stockholm or Solna: `?antal=1000&from=1950&to=2000&kommun=Stockholm,Solna`\n" +
+					"- Generate 1000 persons with zip codes starting with 41: `?antal=1000&from=1950&to=2000&zipPrefix=41`\n" +
+					"- Generate the same 1000 persons on every call: `?antal=1000&from=1950&to=2000&seed=42`\n" +
+					"- Generate 1000 persons as JSON Lines: `?antal=1000&from=1950&to=2000&format=jsonl`"
 	)
 	@ApiResponses(value = {
 			@ApiResponse(responseCode = "200", description = "Persons generated successfully in CSV format",
 					content = @Content(mediaType = "text/csv",
-							examples = @ExampleObject(value = "501015-1234;195010151234;Erik;Andersson;Storgatan 1;Stockholm;11122;0812345678;0701234567;Developer;Software Engineer;test123@example456.com\n" +
-									"920325-5678;199203255678;Anna;Svensson;Drottninggatan 2;Göteborg;41118;0317654321;0709876543;Manager;Project Manager;user789@test123.com"))),
+							examples = @ExampleObject(value = "501015-1234;195010151234;Erik;Andersson;Storgatan 1;Stockholm;111 22;0812345678;0701234567;Developer;Software Engineer;test123@example456.com;Stockholms kommun\n" +
+									"920325-5678;199203255678;Anna;Svensson;Drottninggatan 2;Göteborg;411 18;0317654321;0709876543;Manager;Project Manager;user789@test123.com;Göteborgs kommun"))),
 			@ApiResponse(responseCode = "400", description = "Invalid parameters",
 					content = @Content(mediaType = "text/plain",
 							examples = @ExampleObject(value = "parameter limit 25000")))
 	})
 	@GetMapping(value = "RandomPerson")
-	public ResponseEntity<String> RandomPerson(
+	public ResponseEntity<?> RandomPerson(
 			@Parameter(description = "Number of persons to generate (1-25000)", required = true, example = "100")
 			@RequestParam String antal,
-			@Parameter(description = "Birth year range start (e.g., 1950)", required = true, example = "1950")
+			@Parameter(description = "Birth year range start, inclusive (e.g., 1950)", required = true, example = "1950")
 			@RequestParam String from,
-			@Parameter(description = "Birth year range end (e.g., 2005)", required = true, example = "2005")
-			@RequestParam String to) {
+			@Parameter(description = "Birth year range end, inclusive (e.g., 2005)", required = true, example = "2005")
+			@RequestParam String to,
+			@Parameter(description = "Only use postal codes in these kommuner (comma-separated, e.g. Stockholm,Solna)", example = "Stockholm")
+			@RequestParam(required = false) String kommun,
+			@Parameter(description = "Only use postal codes starting with these digits (e.g. 11)", example = "11")
+			@RequestParam(required = false) String zipPrefix,
+			@Parameter(description = "Postal code weighting: postnummer (every postal code equally likely) or kommun (every kommun equally likely)", example = "postnummer")
+			@RequestParam(defaultValue = "postnummer") String weighting,
+			@Parameter(description = "Use a cryptographically strong random generator (slower)", example = "false")
+			@RequestParam(defaultValue = "false") boolean secure,
+			@Parameter(description = "Seed for reproducible output: the same seed and row number always give the same row", example = "42")
+			@RequestParam(required = false) String seed,
+			@Parameter(description = "Row number of the first row, for generating one shard of a seeded dataset", example = "0")
+			@RequestParam(defaultValue = "0") String offset,
+			@Parameter(description = "Never repeat a personnummer or email within the response", example = "false")
+			@RequestParam(defaultValue = "false") boolean unique,
+			@Parameter(description = "Never repeat a personnummer or email within this named dataset, across requests (implies unique)", example = "loadtest1")
+			@RequestParam(required = false) String dataset,
+			@Parameter(description = "Output format: csv, json, jsonl, csv.gz or columnar. Defaults to the Accept header, else csv", example = "csv")
+			@RequestParam(required = false) String format,
+			@Parameter(description = "Used when format is not given: application/json, application/x-ndjson, application/gzip or application/vnd.testdatagen.columnar select that format")
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+		String error = validateAntal(antal, 25000);
+		if (error != null) {
+			return ResponseEntity.status(400)
+					.body(error);
+		}
 
-		if (!antal.matches("[0-9]+")) {
+		OutputFormat outputFormat = OutputFormat.negotiate(format, accept);
+		if (outputFormat == null) {
+			return ResponseEntity.status(400)
+					.body("format must be csv, json, jsonl, csv.gz or columnar");
+		}
+
+		String yearError = validateBirthYears(from, to);
+		if (yearError != null) {
+			return ResponseEntity.status(400)
+					.body(yearError);
+		}
+
+		String seedError = validateSeed(seed, offset, secure);
+		if (seedError != null) {
+			return ResponseEntity.status(400)
+					.body(seedError);
+		}
+
+		if (!weighting.equals("postnummer") && !weighting.equals("kommun")) {
+			return ResponseEntity.status(400)
+					.body("weighting must be postnummer or kommun");
+		}
+
+		PostalCodeIndex.Selection postal = postalCodes.select(kommun, zipPrefix, weighting.equals("kommun"));
+		if (postal.isEmpty()) {
 			return ResponseEntity.status(400)
-					.body("parameter must be an integer");
+					.body("no postal codes match kommun/zipPrefix");
 		}
 
 		int count = parseInt(antal);
-		if (count > 25000) {
+		int fromYear = parseInt(from);
+		int toYear = parseInt(to);
+		Long seedValue = seed == null ? null : Long.valueOf(seed);
+		long firstRow = Long.parseLong(offset);
+
+		String uniqueError = validateUnique(unique, dataset, seed, fromYear, toYear);
+		if (uniqueError != null) {
 			return ResponseEntity.status(400)
-					.body("parameter limit 25000");
+					.body(uniqueError);
 		}
 
-		if (count < 1) {
+		ConcurrentBitSet claimed = claimedSlots(unique, dataset);
+		String availableError = validateAvailable(dataset, claimed, count, fromYear, toYear);
+		if (availableError != null) {
 			return ResponseEntity.status(400)
-					.body("parameter must be at least 1");
+					.body(availableError);
+		}
+		PersonSpec spec = new PersonSpec(fromYear, toYear, postal, seedValue, secure, claimed);
+
+		if (!generation.tryAcquire()) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, "1")
+					.body("too many concurrent generation requests, retry later");
 		}
 
 		long start = System.currentTimeMillis();
 		colorLogger.logInfo("Creating RandomPerson: " + antal + " (multithreaded)");
 
-		HttpHeaders headers = new HttpHeaders();
-		headers.add(HttpHeaders.CACHE_CONTROL, "no-cache");
-		headers.add(HttpHeaders.CONTENT_TYPE, "text/csv");
-		headers.add(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+		HttpHeaders headers = formatHeaders(outputFormat, "persons");
 
-		// Multithreaded generation
-		int numThreads = Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, count / 100));
-		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-		List<Future<List<String>>> futures = new ArrayList<>();
+		// Multithreaded generation on the shared pool
+		int numThreads = Math.min(generation.poolSize(), Math.max(1, count / 100));
+		List<Future<byte[]>> futures = new ArrayList<>();
+		ByteSink gen = new ByteSink(count * 170);
+		gen.write(outputFormat.prologue());
 
-		int batchSize = (int) Math.ceil((double) count / numThreads);
+		try {
+			int batchSize = (int) Math.ceil((double) count / numThreads);
 
-		for (int thread = 0; thread < numThreads; thread++) {
-			final int startIdx = thread * batchSize;
-			final int endIdx = Math.min(startIdx + batchSize, count);
-			final int itemsToGenerate = endIdx - startIdx;
+			for (int thread = 0; thread < numThreads; thread++) {
+				final int startIdx = thread * batchSize;
+				final int endIdx = Math.min(startIdx + batchSize, count);
+				final int itemsToGenerate = endIdx - startIdx;
 
-			if (itemsToGenerate <= 0) break;
+				if (itemsToGenerate <= 0) break;
 
-			Future<List<String>> future = executor.submit(() -> generatePersonBatch(itemsToGenerate, from, to));
-			futures.add(future);
-		}
+				Future<byte[]> future = generation.submit(() -> generatePersonBatch(firstRow + startIdx, itemsToGenerate, spec, outputFormat));
+				futures.add(future);
+			}
 
-		// Collect results
-		StringBuilder gen = new StringBuilder();
-		try {
-			for (Future<List<String>> future : futures) {
-				List<String> batch = future.get();
-				for (String person : batch) {
-					gen.append(person);
+			// Collect results
+			for (Future<byte[]> future : futures) {
+				if (future != futures.get(0)) {
+					gen.write(outputFormat.separator());
 				}
+				gen.write(future.get());
 			}
+			gen.write(outputFormat.epilogue());
+		} catch (RejectedExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			colorLogger.logError("Generation queue full, rejecting RandomPerson request");
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, "1")
+					.body("generation queue full, retry later");
 		} catch (InterruptedException | ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
 			colorLogger.logError("Error during multithreaded generation: " + e.getMessage());
-			executor.shutdown();
 			return ResponseEntity.status(500).body("Error generating persons");
+		} finally {
+			generation.release();
 		}
 
-		executor.shutdown();
-
 		long finish = System.currentTimeMillis();
 		long timeElapsed = finish - start;
-		colorLogger.logInfo("RandomPerson exec time: " + timeElapsed + "ms (multithreaded with " + numThreads + " threads)");
+		metrics.request("RandomPerson", timeElapsed, count);
+		colorLogger.logInfo(() -> "RandomPerson exec time: " + timeElapsed + "ms (multithreaded with " + numThreads + " threads, " + throughput(count, timeElapsed) + ")");
 
 		return ResponseEntity.ok()
 				.headers(headers)
-				.body(gen.toString());
+				.body(gen.toByteArray());
 	}
 
 	/**
-	 * Generate a batch of persons (helper method for multithreading)
+	 * Generate a batch of persons as one encoded chunk (helper method for multithreading)
+	 * @param firstRow Row number of the first person, which together with the seed determines its values
 	 */
-	private List<String> generatePersonBatch(int count, String from, String to) {
-		List<String> results = new ArrayList<>();
-		Faker faker = new Faker(new Locale("sv-SE"));
-		String lowerCharacters = "abcdefghijklmnopqrstuvwxyz";
-		String numberCharacters = "0123456789";
-
-		int generated = 0;
-		int attempts = 0;
-		int maxAttempts = count * 10;
-
-		while (generated < count && attempts < maxAttempts) {
-			attempts++;
-
-			String rawPersonnummer = faker.idNumber().validSvSeSsn();
-			String[] formattedPersonnummer = formatPersonnummer(rawPersonnummer);
-			String shortPersonnummer = formattedPersonnummer[0];
-			String longPersonnummer = formattedPersonnummer[1];
-
-			int birthYear = Integer.parseInt(longPersonnummer.substring(0, 4));
-
-			if (birthYear > Integer.parseInt(from) && birthYear < Integer.parseInt(to)) {
-				String mail = RandomStringUtils.random(6, lowerCharacters) +
-						RandomStringUtils.random(6, numberCharacters) + "@" +
-						RandomStringUtils.random(6, lowerCharacters) +
-						RandomStringUtils.random(6, numberCharacters) + ".com";
-
-				StringBuilder person = new StringBuilder();
-				person.append(shortPersonnummer).append(";")
-						.append(longPersonnummer).append(";")
-						.append(faker.name().firstName()).append(";")
-						.append(faker.name().lastName()).append(";")
-						.append(faker.address().streetAddress()).append(";")
-						.append(faker.address().state()).append(";")
-						.append(faker.address().zipCode()).append(";")
-						.append(faker.phoneNumber().phoneNumber().replace("-", "")).append(";")
-						.append(faker.phoneNumber().cellPhone().replace("-", "")).append(";")
-						.append(faker.job().position()).append(";")
-						.append(faker.job().title()).append(";")
-						.append(mail).append("\n");
-
-				results.add(person.toString());
-				generated++;
-			}
+	byte[] generatePersonBatch(long firstRow, int count, PersonSpec spec, OutputFormat format) {
+		long start = System.nanoTime();
+		PersonGenerator generator = new PersonGenerator(dictionary, postalCodes, spec);
+		PersonRecord person = new PersonRecord();
+		OutputFormat.ChunkEncoder encoder = format.newEncoder(count);
+
+		for (int generated = 0; generated < count; generated++) {
+			generator.next(firstRow + generated, person);
+			encoder.add(person);
 		}
 
-		return results;
+		byte[] batch = encoder.finish();
+		metrics.batch(GenerationMetrics.PERSON, System.nanoTime() - start, count);
+		metrics.rejectedDraws(generator.rejectedDraws());
+		return batch;
 	}
 
 	@Operation(
-			summary = "Execute SQL Query",
-			description = "Execute a SQL query against a specified database and return results in CSV format. " +
-					"Supports multiple database types including MySQL, PostgreSQL, Oracle, SQL Server, and more via JDBC. " +
-					"Results are formatted as semicolon-separated CSV with column headers. " +
-					"⚠️ **WARNING:** This endpoint executes raw SQL queries. Use with caution and only in test environments. " +
-					"Never expose this endpoint in production without proper authentication and authorization.\n\n" +
-					"**Supported Databases:**\n" +
-					"- MySQL: `jdbc:mysql://host:port/database`\n" +
-					"- PostgreSQL: `jdbc:postgresql://host:port/database`\n" +
-					"- Oracle: `jdbc:oracle:thin:@host:port:sid`\n" +
-					"- SQL Server: `jdbc:sqlserver://host:port;databaseName=db`\n\n" +
-					"**Security Notes:**\n" +
-					"- Only use in isolated test environments\n" +
-					"- Credentials are transmitted in request body\n" +
-					"- No query validation or sanitization is performed\n" +
-					"- Use read-only database accounts when possible"
+			summary = "Stream Random Swedish Persons (CSV)",
+			description = "Stream random Swedish persons in the same CSV format as /RandomPerson, without the 25000 row limit. " +
+					"Rows are generated in chunks by a worker pool and written to the response as each chunk finishes, " +
+					"in order. Only a few chunks per worker are buffered at a time, so a slow client throttles generation " +
+					"and memory use stays constant regardless of `antal`. Supports the same `format` values as /RandomPerson; " +
+					"with `csv.gz` every chunk is compressed in parallel as its own gzip member.\n\n" +
+					"**Usage Examples:**\n" +
+					"- Stream 10 million persons born 1950-2000: `?antal=10000000&from=1950&to=2000`\n" +
+					"- Stream 10 million persons as gzip-compressed CSV: `?antal=10000000&from=1950&to=2000&format=csv.gz`"
 	)
 	@ApiResponses(value = {
-			@ApiResponse(responseCode = "200", description = "Query executed successfully, results returned in CSV format",
+			@ApiResponse(responseCode = "200", description = "Persons streamed successfully in CSV format",
 					content = @Content(mediaType = "text/csv",
-							examples = @ExampleObject(value = "id;name;email\n1;John Doe;john@example.com\n2;Jane Smith;jane@example.com"))),
-			@ApiResponse(responseCode = "400", description = "Invalid request - missing required fields",
+							examples = @ExampleObject(value = "501015-1234;195010151234;Erik;Andersson;Storgatan 1;Stockholm;111 22;0812345678;0701234567;Developer;Software Engineer;test123@example456.com;Stockholms kommun"))),
+			@ApiResponse(responseCode = "400", description = "Invalid parameters",
 					content = @Content(mediaType = "text/plain",
-							examples = @ExampleObject(value = "Missing required fields: jdbc, sql, user, password"))),
-			@ApiResponse(responseCode = "500", description = "Database connection or query execution error",
+							examples = @ExampleObject(value = "parameter must be an integer")))
+	})
+	@GetMapping(value = "RandomPersonStream")
+	public ResponseEntity<StreamingResponseBody> RandomPersonStream(
+			@Parameter(description = "Number of persons to generate", required = true, example = "1000000")
+			@RequestParam String antal,
+			@Parameter(description = "Birth year range start, inclusive (e.g., 1950)", required = true, example = "1950")
+			@RequestParam String from,
+			@Parameter(description = "Birth year range end, inclusive (e.g., 2005)", required = true, example = "2005")
+			@RequestParam String to,
+			@Parameter(description = "Only use postal codes in these kommuner (comma-separated, e.g. Stockholm,Solna)", example = "Stockholm")
+			@RequestParam(required = false) String kommun,
+			@Parameter(description = "Only use postal codes starting with these digits (e.g. 11)", example = "11")
+			@RequestParam(required = false) String zipPrefix,
+			@Parameter(description = "Postal code weighting: postnummer (every postal code equally likely) or kommun (every kommun equally likely)", example = "postnummer")
+			@RequestParam(defaultValue = "postnummer") String weighting,
+			@Parameter(description = "Use a cryptographically strong random generator (slower)", example = "false")
+			@RequestParam(defaultValue = "false") boolean secure,
+			@Parameter(description = "Seed for reproducible output: the same seed and row number always give the same row", example = "42")
+			@RequestParam(required = false) String seed,
+			@Parameter(description = "Row number of the first row, for generating one shard of a seeded dataset", example = "0")
+			@RequestParam(defaultValue = "0") String offset,
+			@Parameter(description = "Never repeat a personnummer or email within the response", example = "false")
+			@RequestParam(defaultValue = "false") boolean unique,
+			@Parameter(description = "Never repeat a personnummer or email within this named dataset, across requests (implies unique)", example = "loadtest1")
+			@RequestParam(required = false) String dataset,
+			@Parameter(description = "Output format: csv, json, jsonl, csv.gz or columnar. Defaults to the Accept header, else csv", example = "csv")
+			@RequestParam(required = false) String format,
+			@Parameter(description = "Used when format is not given: application/json, application/x-ndjson, application/gzip or application/vnd.testdatagen.columnar select that format")
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+		OutputFormat outputFormat = OutputFormat.negotiate(format, accept);
+		String error = validateAntal(antal, Integer.MAX_VALUE);
+		if (error == null && outputFormat == null) {
+			error = "format must be csv, json, jsonl, csv.gz or columnar";
+		}
+		if (error == null) {
+			error = validateBirthYears(from, to);
+		}
+		if (error == null && !weighting.equals("postnummer") && !weighting.equals("kommun")) {
+			error = "weighting must be postnummer or kommun";
+		}
+		if (error == null) {
+			error = validateSeed(seed, offset, secure);
+		}
+
+		PostalCodeIndex.Selection postal = postalCodes.select(kommun, zipPrefix, "kommun".equals(weighting));
+		if (error == null && postal.isEmpty()) {
+			error = "no postal codes match kommun/zipPrefix";
+		}
+		if (error == null) {
+			error = validateUnique(unique, dataset, seed, parseInt(from), parseInt(to));
+		}
+
+		ConcurrentBitSet claimed = error == null ? claimedSlots(unique, dataset) : null;
+		if (error == null) {
+			error = validateAvailable(dataset, claimed, parseInt(antal), parseInt(from), parseInt(to));
+		}
+
+		if (error != null) {
+			return streamingError(400, error);
+		}
+
+		if (!generation.tryAcquire()) {
+			return streamingError(429, "too many concurrent generation requests, retry later");
+		}
+
+		int count = parseInt(antal);
+		Long seedValue = seed == null ? null : Long.valueOf(seed);
+		long firstRow = Long.parseLong(offset);
+		PersonSpec spec = new PersonSpec(parseInt(from), parseInt(to), postal, seedValue, secure, claimed);
+		colorLogger.logInfo("Streaming RandomPerson: " + antal);
+
+		return ResponseEntity.ok()
+				.headers(formatHeaders(outputFormat, "persons"))
+				.body(releasingAfter(generation::release, streamChunks("RandomPersonStream", count, outputFormat,
+						(chunkStart, chunk) -> generatePersonBatch(firstRow + chunkStart, chunk, spec, outputFormat))));
+	}
+
+	@Operation(
+			summary = "Generate Random Swedish Persons (JSON)",
+			description = "Generate many persons in one call as a JSON array of objects with the keys of /RandomPersonJson, " +
+					"or as JSON Lines (one object per line) with `ndjson=true`. The response is streamed like /RandomPersonStream, " +
+					"so there is no row limit.\n\n" +
+					"**Usage Examples:**\n" +
+					"- 1000 persons born 1950-2000 as a JSON array: `?antal=1000&from=1950&to=2000`\n" +
+					"- The same 1000 persons on every call, as JSON Lines: `?antal=1000&from=1950&to=2000&seed=42&ndjson=true`"
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Persons generated successfully",
+					content = @Content(mediaType = "application/json",
+							examples = @ExampleObject(value = "[{\"Personnummer\":\"501015-1234\",\"longPersonnummer\":\"195010151234\",\"namn\":\"Erik\"," +
+									"\"efterNamn\":\"Andersson\",\"Address\":\"Storgatan 1\",\"postAdress\":\"Stockholm\",\"zip\":\"111 22\"," +
+									"\"telefon\":\"0812345678\",\"mobil\":\"0701234567\",\"jobPosition\":\"Developer\",\"jobTitel\":\"Software Engineer\"," +
+									"\"email\":\"test123@example456.com\",\"kommun\":\"Stockholms kommun\"}]"))),
+			@ApiResponse(responseCode = "400", description = "Invalid parameters",
 					content = @Content(mediaType = "text/plain",
-							examples = @ExampleObject(value = "Database error: Connection refused")))
+							examples = @ExampleObject(value = "parameter must be an integer")))
 	})
-	@PostMapping("/SQL")
-	public ResponseEntity<String> SQL(
+	@GetMapping(value = "RandomPersonJsonBulk")
+	public ResponseEntity<StreamingResponseBody> RandomPersonJsonBulk(
+			@Parameter(description = "Number of persons to generate", required = true, example = "1000")
+			@RequestParam String antal,
+			@Parameter(description = "Birth year range start, inclusive (e.g., 1950)", required = true, example = "1950")
+			@RequestParam String from,
+			@Parameter(description = "Birth year range end, inclusive (e.g., 2005)", required = true, example = "2005")
+			@RequestParam String to,
+			@Parameter(description = "Only use postal codes in these kommuner (comma-separated, e.g. Stockholm,Solna)", example = "Stockholm")
+			@RequestParam(required = false) String kommun,
+			@Parameter(description = "Only use postal codes starting with these digits (e.g. 11)", example = "11")
+			@RequestParam(required = false) String zipPrefix,
+			@Parameter(description = "Seed for reproducible output: the same seed and row number always give the same row", example = "42")
+			@RequestParam(required = false) String seed,
+			@Parameter(description = "Never repeat a personnummer or email within the response", example = "false")
+			@RequestParam(defaultValue = "false") boolean unique,
+			@Parameter(description = "Return JSON Lines (one object per line) instead of a JSON array", example = "false")
+			@RequestParam(defaultValue = "false") boolean ndjson) {
+
+		return RandomPersonStream(antal, from, to, kommun, zipPrefix, "postnummer", false, seed, "0", unique, null,
+				ndjson ? "jsonl" : "json", null);
+	}
+
+	@Operation(
+			summary = "Generate Custom Dataset",
+			description = "Generate rows with the columns of a posted schema: pick, reorder and rename person fields, " +
+					"and add constants, number and date ranges, pattern strings, value lists, UUIDs and row numbers. " +
+					"The schema is compiled once into a field plan, cached by its hash, and run on the generation pool; " +
+					"the response is streamed like /RandomPersonStream, so there is no row limit.\n\n" +
+					"**Request fields:**\n" +
+					"- `antal` (required), `columns` (required)\n" +
+					"- `from`, `to` - birth years of the persons behind `field` columns (default: 80 to 18 years ago)\n" +
+					"- `kommun`, `zipPrefix`, `weighting`, `seed`, `offset`, `secure`, `unique`, `dataset` - as on /RandomPersonStream\n" +
+					"- `format` - csv, json, jsonl, csv.gz or columnar (default csv)\n" +
+					"- `separator` - CSV separator (default `;`), `header` - CSV header row (default true)\n\n" +
+					"**Column types** (each column may also have a `name`):\n" +
+					"- `field`: a person field such as `Personnummer`, `namn`, `email` or `kommun` (`{\"type\":\"field\",\"field\":\"namn\"}`)\n" +
+					"- `constant`: `value`\n" +
+					"- `int`: `min` to `max`, inclusive\n" +
+					"- `date`: `from` to `to` as yyyy-MM-dd, inclusive\n" +
+					"- `pattern`: literals, `\\d`, `\\w`, `.`, classes like `[A-Z0-9]` and `?`, `{n}`, `{n,m}`\n" +
+					"- `oneOf`: `values`\n" +
+					"- `uuid`, and `row` (row number plus `start`, default 1)\n\n" +
+					"With a seed, person fields have the same values as /RandomPerson with the same seed and row."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Rows generated successfully",
+					content = @Content(mediaType = "text/csv",
+							examples = @ExampleObject(value = "id;pnr;namn;status;kundnummer\n" +
+									"1;501015-1234;Erik;active;KN-483920\n" +
+									"2;920325-5678;Anna;closed;KN-105577"))),
+			@ApiResponse(responseCode = "400", description = "Invalid request or schema",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "column 2: type must be field, constant, int, date, pattern, oneOf, uuid, row or parent")))
+	})
+	@PostMapping(value = "RandomDataset")
+	public ResponseEntity<StreamingResponseBody> RandomDataset(
 			@io.swagger.v3.oas.annotations.parameters.RequestBody(
-					description = "SQL query request with JDBC connection details and credentials",
+					description = "Number of rows, options and the columns to generate",
 					required = true,
 					content = @Content(
 							mediaType = "application/json",
 							examples = @ExampleObject(value = "{\n" +
-									"  \"jdbc\": \"jdbc:mysql://localhost:3306/testdb\",\n" +
-									"  \"sql\": \"SELECT * FROM users LIMIT 10\",\n" +
-									"  \"user\": \"dbuser\",\n" +
-									"  \"password\": \"dbpass\"\n" +
+									"  \"antal\": 1000,\n" +
+									"  \"from\": 1950,\n" +
+									"  \"to\": 2000,\n" +
+									"  \"seed\": 42,\n" +
+									"  \"format\": \"csv\",\n" +
+									"  \"columns\": [\n" +
+									"    {\"name\": \"id\", \"type\": \"row\"},\n" +
+									"    {\"name\": \"pnr\", \"type\": \"field\", \"field\": \"Personnummer\"},\n" +
+									"    {\"type\": \"field\", \"field\": \"namn\"},\n" +
+									"    {\"name\": \"status\", \"type\": \"oneOf\", \"values\": [\"active\", \"closed\"]},\n" +
+									"    {\"name\": \"kundnummer\", \"type\": \"pattern\", \"pattern\": \"KN-\\\\d{6}\"}\n" +
+									"  ]\n" +
 									"}")
 					)
 			)
-			@RequestBody String jsonString) {
+			@RequestBody String jsonString,
+			@Parameter(description = "Used when format is not given: application/json, application/x-ndjson, application/gzip or application/vnd.testdatagen.columnar select that format")
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
 
+		JSONObject json;
+		JSONArray columnSpecs;
 		try {
-			colorLogger.logInfo("\nReceived SQL request");
-
-			jsonString = jsonString.replace("'{", "{");
-			jsonString = jsonString.replace("}'", "}");
+			json = new JSONObject(jsonString);
+			columnSpecs = json.getJSONArray("columns");
+		} catch (JSONException e) {
+			colorLogger.logError("Invalid JSON: " + e.getMessage());
+			return streamingError(400, "Invalid JSON format: " + e.getMessage());
+		}
 
-			JSONObject json = new JSONObject(jsonString);
+		String separator = json.optString("separator", ";");
+		OutputFormat outputFormat = OutputFormat.negotiate(json.optString("format", null), accept);
+		if (outputFormat == null) {
+			return streamingError(400, "format must be csv, json, jsonl, csv.gz or columnar");
+		}
+		if (separator.length() != 1 || "\"\r\n".contains(separator)) {
+			return streamingError(400, "separator must be one character other than a quote or line break");
+		}
 
-			if (!json.has("jdbc") || !json.has("sql") || !json.has("user") || !json.has("password")) {
-				return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-						.body("Missing required fields: jdbc, sql, user, password");
-			}
+		DatasetRequest request = datasetRequest(json, columnSpecs);
+		if (request.error() != null) {
+			return streamingError(400, request.error());
+		}
 
-			String jdbc = json.getString("jdbc");
-			String sql = json.getString("sql");
-			String user = json.getString("user");
-			String password = json.getString("password");
+		if (!generation.tryAcquire()) {
+			return streamingError(429, "too many concurrent generation requests, retry later");
+		}
 
-			String result = OraSQL(sql, jdbc, user, password);
-			colorLogger.logInfo("\nQuery executed successfully");
+		FieldPlan plan = request.plan();
+		OutputFormat.Columns columns = new OutputFormat.Columns(plan.names(), separator.charAt(0),
+				json.optBoolean("header", true), true);
+		colorLogger.logInfo("Streaming RandomDataset: " + request.count() + " rows, " + plan.size() + " columns");
 
-			return ResponseEntity.ok()
-					.header(HttpHeaders.CONTENT_TYPE, "text/csv; charset=UTF-8")
-					.body(result);
+		return ResponseEntity.ok()
+				.headers(formatHeaders(outputFormat, "dataset"))
+				.body(releasingAfter(generation::release, streamChunks("RandomDataset", request.count(), outputFormat, columns,
+						(chunkStart, chunk) -> generateDatasetBatch(request.firstRow() + chunkStart, chunk, plan, request.spec(),
+								columns, outputFormat))));
+	}
 
-		} catch (JSONException e) {
-			colorLogger.logError("Invalid JSON: " + e.getMessage());
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-					.body("Invalid JSON format: " + e.getMessage());
-		} catch (SQLException e) {
-			colorLogger.logError("SQL Error: " + e.getMessage());
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-					.body("Database error: " + e.getMessage());
-		} catch (Exception e) {
-			colorLogger.logError("Unexpected error: " + e.getMessage());
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-					.body("Unexpected error: " + e.getMessage());
+	/**
+	 * Rows to generate for /RandomDataset or /SQL/insert
+	 * @param error Message for a 400 response; the other fields are only set when this is null
+	 * @param firstRow Row number of the first row
+	 */
+	private record DatasetRequest(String error, int count, long firstRow, PersonSpec spec, FieldPlan plan) {
+		static DatasetRequest invalid(String error) {
+			return new DatasetRequest(error, 0, 0, null, null);
 		}
 	}
 
 	/**
-	 * Execute SQL query and return results in CSV format
+	 * Validate the generation fields shared by the dataset endpoints and compile the schema
+	 * @param columnSpecs The schema's columns
 	 */
-	private String OraSQL(String query, String jdbc, String user, String password) throws SQLException {
-		try (Connection conn = DriverManager.getConnection(jdbc, user, password);
-			 Statement st = conn.createStatement();
-			 ResultSet rs = st.executeQuery(query)) {
-
-			colorLogger.logInfo("\nData source created: " + jdbc);
-			colorLogger.logInfo("\nRunning query: " + query);
+	private DatasetRequest datasetRequest(JSONObject json, JSONArray columnSpecs) {
+		int currentYear = Year.now().getValue();
+		String antal = String.valueOf(json.opt("antal"));
+		String from = String.valueOf(json.opt("from") != null ? json.get("from") : currentYear - 80);
+		String to = String.valueOf(json.opt("to") != null ? json.get("to") : currentYear - 18);
+		String kommun = json.optString("kommun", null);
+		String zipPrefix = json.optString("zipPrefix", null);
+		String weighting = json.optString("weighting", "postnummer");
+		String seed = json.opt("seed") != null ? json.get("seed").toString() : null;
+		String offset = String.valueOf(json.opt("offset") != null ? json.get("offset") : 0);
+		boolean secure = json.optBoolean("secure", false);
+		boolean unique = json.optBoolean("unique", false);
+		String dataset = json.optString("dataset", null);
+
+		String error = validateAntal(antal, Integer.MAX_VALUE);
+		if (error == null) {
+			error = validateBirthYears(from, to);
+		}
+		if (error == null && !weighting.equals("postnummer") && !weighting.equals("kommun")) {
+			error = "weighting must be postnummer or kommun";
+		}
+		if (error == null) {
+			error = validateSeed(seed, offset, secure);
+		}
 
-			ResultSetMetaData rsmd = rs.getMetaData();
+		PostalCodeIndex.Selection postal = postalCodes.select(kommun, zipPrefix, "kommun".equals(weighting));
+		if (error == null && postal.isEmpty()) {
+			error = "no postal codes match kommun/zipPrefix";
+		}
+		if (error == null) {
+			error = validateUnique(unique, dataset, seed, parseInt(from), parseInt(to));
+		}
 
-			// Build column headers
-			StringBuilder columns = new StringBuilder();
-			for (int i = 1; i <= rsmd.getColumnCount(); i++) {
-				if (i > 1) columns.append(";");
-				columns.append(rsmd.getColumnName(i));
-			}
-			columns.append("\n");
-
-			// Build data rows
-			StringBuilder values = new StringBuilder();
-			while (rs.next()) {
-				for (int j = 1; j <= rsmd.getColumnCount(); j++) {
-					if (j > 1) values.append(";");
-					String value = rs.getString(j);
-					values.append(value != null ? value : "");
-				}
-				values.append("\n");
-			}
+		ConcurrentBitSet claimed = error == null ? claimedSlots(unique, dataset) : null;
+		if (error == null) {
+			error = validateAvailable(dataset, claimed, parseInt(antal), parseInt(from), parseInt(to));
+		}
+		if (error != null) {
+			return DatasetRequest.invalid(error);
+		}
 
-			return columns.toString() + values.toString();
+		FieldPlan plan;
+		try {
+			plan = fieldPlans.plan(columnSpecs);
+		} catch (IllegalArgumentException e) {
+			return DatasetRequest.invalid(e.getMessage());
 		}
+		if (plan.usesParent()) {
+			return DatasetRequest.invalid("parent columns are only allowed in child tables of /RandomRelationalDataset");
+		}
+		Long seedValue = seed == null ? null : Long.valueOf(seed);
+		PersonSpec spec = new PersonSpec(parseInt(from), parseInt(to), postal, seedValue, secure, claimed);
+		return new DatasetRequest(null, parseInt(antal), Long.parseLong(offset), spec, plan);
 	}
 
 	/**
-	 * Correctly formats a Swedish personnummer based on age
-	 * @param rawPersonnummer The personnummer from Faker (with - or +)
-	 * @return Array with [0] = short format (10 digits with - or +), [1] = long format (12 digits)
+	 * Generate a batch of dataset rows as one encoded chunk
+	 * @param firstRow Row number of the first row, which together with the seed determines its values
 	 */
-	private String[] formatPersonnummer(String rawPersonnummer) {
-		// Remove existing delimiter
-		String cleanNumber = rawPersonnummer.replace("-", "").replace("+", "");
-
-		// Determine century and full birth year
-		String birthYear;
-
-		if (cleanNumber.length() == 10) {
-			// Format: YYMMDDXXXX
-			String yy = cleanNumber.substring(0, 2);
-			int yearPart = Integer.parseInt(yy);
-			int currentYear = Year.now().getValue();
-			int currentCentury = currentYear / 100;
-			int currentYY = currentYear % 100;
-
-			// Determine century based on year
-			String century;
-			if (yearPart <= currentYY) {
-				// Born in current century
-				century = String.valueOf(currentCentury);
+	byte[] generateDatasetBatch(long firstRow, int count, FieldPlan plan, PersonSpec spec, OutputFormat.Columns columns,
+			OutputFormat format) {
+		long start = System.nanoTime();
+		FieldPlan.Rows rows = plan.rows(spec, dictionary, postalCodes);
+		OutputFormat.ChunkEncoder encoder = format.newEncoder(count, columns);
+
+		for (int generated = 0; generated < count; generated++) {
+			encoder.add(rows.next(firstRow + generated));
+		}
+
+		byte[] batch = encoder.finish();
+		metrics.batch(GenerationMetrics.DATASET, System.nanoTime() - start, count);
+		metrics.rejectedDraws(rows.rejectedDraws());
+		return batch;
+	}
+
+	@Operation(
+			summary = "Stream Related Tables",
+			description = "Generate several linked tables in one run, e.g. persons with their accounts and the accounts' transactions, " +
+					"with foreign keys that always match. `tables` lists the tables; each has a `name` and the `columns` of /RandomDataset. " +
+					"The first table is the root table with `antal` rows. Every other table names an earlier table as `parent` and has " +
+					"`perParent` rows per parent row, a number or `{\"min\": 0, \"max\": 5}`. A `parent` column holds the parent row's " +
+					"`row` value (use the same `start`).\n\n" +
+					"Child i of parent row p is row p × max + i, and the number of children of a row depends only on the seed, " +
+					"so every table is generated in parallel chunks without coordination. Child row numbers have gaps when min < max.\n\n" +
+					"Without `table` the response is a zip file with one entry per table. With `table` only that table is streamed, " +
+					"so tables can be downloaded by separate, parallel requests; this requires a `seed` so the keys match.\n\n" +
+					"The other fields are those of /RandomDataset: `antal`, `from`, `to`, `kommun`, `zipPrefix`, `weighting`, `seed`, " +
+					"`offset`, `secure`, `unique`, `dataset`, `format`, `separator` and `header`."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Tables streamed successfully, as a zip file or the one table requested",
+					content = @Content(mediaType = "application/zip")),
+			@ApiResponse(responseCode = "400", description = "Invalid schema or parameters",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "table 2: parent must name an earlier table"))),
+			@ApiResponse(responseCode = "429", description = "Too many concurrent generation requests")
+	})
+	@PostMapping(value = "RandomRelationalDataset")
+	public ResponseEntity<StreamingResponseBody> RandomRelationalDataset(
+			@io.swagger.v3.oas.annotations.parameters.RequestBody(
+					description = "Number of root rows, options and the linked tables to generate",
+					required = true,
+					content = @Content(
+							mediaType = "application/json",
+							examples = @ExampleObject(value = "{\n" +
+									"  \"antal\": 100000,\n" +
+									"  \"seed\": 42,\n" +
+									"  \"tables\": [\n" +
+									"    {\"name\": \"person\", \"columns\": [\n" +
+									"      {\"name\": \"id\", \"type\": \"row\"},\n" +
+									"      {\"name\": \"pnr\", \"type\": \"field\", \"field\": \"Personnummer\"},\n" +
+									"      {\"type\": \"field\", \"field\": \"namn\"}]},\n" +
+									"    {\"name\": \"account\", \"parent\": \"person\", \"perParent\": {\"min\": 1, \"max\": 3}, \"columns\": [\n" +
+									"      {\"name\": \"id\", \"type\": \"row\"},\n" +
+									"      {\"name\": \"person_id\", \"type\": \"parent\"},\n" +
+									"      {\"name\": \"iban\", \"type\": \"pattern\", \"pattern\": \"SE\\\\d{22}\"}]},\n" +
+									"    {\"name\": \"transaction\", \"parent\": \"account\", \"perParent\": {\"min\": 0, \"max\": 20}, \"columns\": [\n" +
+									"      {\"name\": \"account_id\", \"type\": \"parent\"},\n" +
+									"      {\"name\": \"amount\", \"type\": \"int\", \"min\": -5000, \"max\": 5000}]}\n" +
+									"  ]\n" +
+									"}")
+					)
+			)
+			@RequestBody String jsonString,
+			@Parameter(description = "Used when format is not given: application/json, application/x-ndjson, application/gzip or application/vnd.testdatagen.columnar select that format")
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+		JSONObject json;
+		JSONArray tableSpecs;
+		JSONArray rootColumns;
+		try {
+			json = new JSONObject(jsonString);
+			tableSpecs = json.getJSONArray("tables");
+			rootColumns = tableSpecs.getJSONObject(0).getJSONArray("columns");
+		} catch (JSONException e) {
+			colorLogger.logError("Invalid JSON: " + e.getMessage());
+			return streamingError(400, "Invalid JSON format: " + e.getMessage());
+		}
+
+		String separator = json.optString("separator", ";");
+		OutputFormat outputFormat = OutputFormat.negotiate(json.optString("format", null), accept);
+		if (outputFormat == null) {
+			return streamingError(400, "format must be csv, json, jsonl, csv.gz or columnar");
+		}
+		if (separator.length() != 1 || "\"\r\n".contains(separator)) {
+			return streamingError(400, "separator must be one character other than a quote or line break");
+		}
+
+		DatasetRequest request = datasetRequest(json, rootColumns);
+		if (request.error() != null) {
+			return streamingError(400, request.error());
+		}
+		RelationalPlan relational;
+		try {
+			relational = RelationalPlan.compile(tableSpecs, fieldPlans::plan);
+			relational.checkRange(request.firstRow() + request.count());
+		} catch (IllegalArgumentException e) {
+			return streamingError(400, e.getMessage());
+		}
+		String tableName = json.optString("table", null);
+		int onlyTable = tableName == null ? -1 : relational.indexOf(tableName);
+		if (tableName != null && onlyTable < 0) {
+			return streamingError(400, "table must be the name of one of the tables");
+		}
+		if (tableName != null && onlyTable > 0 && request.spec().seed() == null) {
+			return streamingError(400, "seed is required with table, so the keys match the other tables");
+		}
+
+		if (!generation.tryAcquire()) {
+			return streamingError(429, "too many concurrent generation requests, retry later");
+		}
+
+		OutputFormat.Columns[] columns = new OutputFormat.Columns[relational.size()];
+		for (int table = 0; table < columns.length; table++) {
+			columns[table] = new OutputFormat.Columns(relational.table(table).plan().names(), separator.charAt(0),
+					json.optBoolean("header", true), true);
+		}
+		// All tables of a request, and all requests with the same seed, need the same number of children per row
+		long fanOutSeed = request.spec().seed() != null ? request.spec().seed() : RandomGenerator.getDefault().nextLong();
+		colorLogger.logInfo("Streaming RandomRelationalDataset: " + request.count() + " root rows, " +
+				(tableName != null ? "table " + tableName : relational.size() + " tables"));
+
+		StreamingResponseBody body = releasingAfter(generation::release, outputStream -> {
+			long start = System.currentTimeMillis();
+			LongAdder rows = new LongAdder();
+			if (onlyTable >= 0) {
+				writeTable(relational, onlyTable, request, fanOutSeed, outputFormat, columns[onlyTable], rows, outputStream);
 			} else {
-				// Born in previous century
-				century = String.valueOf(currentCentury - 1);
+				ZipOutputStream zip = new ZipOutputStream(outputStream);
+				// Fastest level, as for csv.gz: random test data gains little from harder compression
+				zip.setLevel(Deflater.BEST_SPEED);
+				for (int table = 0; table < relational.size(); table++) {
+					zip.putNextEntry(new ZipEntry(relational.table(table).name() + "." + outputFormat.extension()));
+					writeTable(relational, table, request, fanOutSeed, outputFormat, columns[table], rows, zip);
+					zip.closeEntry();
+				}
+				zip.finish();
 			}
 
-			birthYear = century + yy;
-		} else {
-			// Already has century prefix
-			birthYear = cleanNumber.substring(0, 4);
+			long timeElapsed = System.currentTimeMillis() - start;
+			long rowCount = rows.sum();
+			metrics.request("RandomRelationalDataset", timeElapsed, rowCount);
+			colorLogger.logInfo(() -> "RandomRelationalDataset exec time: " + timeElapsed + "ms (" + rowCount + " rows, " +
+					throughput(rowCount, timeElapsed) + ")");
+		});
+
+		if (onlyTable >= 0) {
+			return ResponseEntity.ok()
+					.headers(formatHeaders(outputFormat, tableName))
+					.body(body);
 		}
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.CONTENT_TYPE, "application/zip")
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"dataset.zip\"")
+				.header(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true")
+				.body(body);
+	}
 
-		// Calculate age
-		int birthYearInt = Integer.parseInt(birthYear);
-		int currentYear = Year.now().getValue();
-		int age = currentYear - birthYearInt;
+	/**
+	 * Write all rows of one table of a relational dataset, generated in parallel chunks of root rows
+	 * @param rows Incremented by the number of rows written
+	 */
+	private void writeTable(RelationalPlan relational, int table, DatasetRequest request, long fanOutSeed, OutputFormat format,
+			OutputFormat.Columns columns, LongAdder rows, OutputStream outputStream) throws IOException {
+		// Aim for chunks of about STREAM_CHUNK_SIZE rows whatever the fan-out
+		int chunkRoots = (int) Math.max(1, Math.min(STREAM_CHUNK_SIZE, STREAM_CHUNK_SIZE / relational.rowsPerRoot(table)));
+		PersonSpec spec = relational.spec(table, request.spec());
+		writeChunks("RandomRelationalDataset", request.count(), chunkRoots, format, columns,
+				(chunkStart, chunk) -> generateRelationalBatch(relational, table, request.firstRow() + chunkStart, chunk, spec,
+						fanOutSeed, columns, format, rows),
+				outputStream);
+	}
 
-		// Determine correct delimiter based on age
-		String delimiter = (age >= 100) ? "+" : "-";
+	/**
+	 * Generate the rows of one table under a range of root rows as one encoded chunk
+	 */
+	byte[] generateRelationalBatch(RelationalPlan relational, int table, long firstRoot, int roots, PersonSpec spec,
+			long fanOutSeed, OutputFormat.Columns columns, OutputFormat format, LongAdder rowCount) {
+		long start = System.nanoTime();
+		FieldPlan.Rows rows = relational.table(table).plan().rows(spec, dictionary, postalCodes);
+		int expectedRows = (int) Math.min(STREAM_CHUNK_SIZE * 2L, (long) Math.ceil(roots * relational.rowsPerRoot(table)));
+		OutputFormat.ChunkEncoder encoder = format.newEncoder(expectedRows, columns);
+
+		long generated = relational.cursor(table, fanOutSeed).forEach(firstRoot, firstRoot + roots,
+				(row, parentRow) -> encoder.add(rows.next(row, parentRow)));
+
+		byte[] batch = encoder.finish();
+		metrics.batch(GenerationMetrics.DATASET, System.nanoTime() - start, (int) generated);
+		metrics.rejectedDraws(rows.rejectedDraws());
+		rowCount.add(generated);
+		return batch;
+	}
 
-		// Get the last 8 digits (MMDDXXXX)
-		String lastEight = cleanNumber.substring(cleanNumber.length() - 8);
+	@Operation(
+			summary = "Stream Random UUIDs",
+			description = "Stream random UUIDs, one per line, without the 50000 row limit. " +
+					"UUIDs are generated in chunks by a worker pool and written to the response in order as each chunk finishes, " +
+					"with bounded buffering so memory use stays constant regardless of `antal`."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "UUIDs streamed successfully",
+					content = @Content(mediaType = "text/csv",
+							examples = @ExampleObject(value = "550e8400-e29b-41d4-a716-446655440000\n" +
+									"6ba7b810-9dad-11d1-80b4-00c04fd430c8"))),
+			@ApiResponse(responseCode = "400", description = "Invalid parameter",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "parameter must be an integer")))
+	})
+	@GetMapping(value = "RandomUUIDStream")
+	public ResponseEntity<StreamingResponseBody> RandomUUIDStream(
+			@Parameter(description = "Number of UUIDs to generate", required = true, example = "1000000")
+			@RequestParam String antal,
+			@Parameter(description = "Use a cryptographically strong random generator (slower)", example = "false")
+			@RequestParam(defaultValue = "false") boolean secure,
+			@Parameter(description = "Seed for reproducible output: the same seed and row number always give the same row", example = "42")
+			@RequestParam(required = false) String seed,
+			@Parameter(description = "Row number of the first row, for generating one shard of a seeded dataset", example = "0")
+			@RequestParam(defaultValue = "0") String offset,
+			@Parameter(description = "4 (random), 7 (time-ordered UUIDv7) or ulid (time-ordered ULID)", example = "4")
+			@RequestParam(defaultValue = "4") String version) {
+
+		String error = validateAntal(antal, Integer.MAX_VALUE);
+		if (error == null) {
+			error = validateSeed(seed, offset, secure);
+		}
+		if (error == null) {
+			error = validateUuidVersion(version, seed, offset);
+		}
+		if (error != null) {
+			return streamingError(400, error);
+		}
 
-		// Create short format (YYMMDD-XXXX or YYMMDD+XXXX)
-		String yy = birthYear.substring(2, 4);
-		String shortFormat = yy + lastEight.substring(0, 2) + lastEight.substring(2, 4) +
-				delimiter + lastEight.substring(4);
+		if (!generation.tryAcquire()) {
+			return streamingError(429, "too many concurrent generation requests, retry later");
+		}
 
-		// Create long format (YYYYMMDDXXXX - no delimiter)
-		String longFormat = birthYear + lastEight;
+		int count = parseInt(antal);
+		Long seedValue = seed == null ? null : Long.valueOf(seed);
+		long firstRow = Long.parseLong(offset);
+		UuidWriter.Version uuidVersion = UuidWriter.Version.parse(version);
+		long firstSequence = uuidVersion.timeOrdered() ? UuidWriter.reserve(count) : 0;
+		colorLogger.logInfo("Streaming RandomUUID: " + antal + (uuidVersion.timeOrdered() ? ", version " + version : ""));
 
-		return new String[]{shortFormat, longFormat};
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.CONTENT_TYPE, "text/csv; charset=UTF-8")
+				.header(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true")
+				.body(releasingAfter(generation::release, streamChunks("RandomUUIDStream", count, OutputFormat.CSV,
+						(chunkStart, chunk) -> generateUUIDBatch(firstRow + chunkStart, chunk, seedValue, secure, uuidVersion, firstSequence + chunkStart))));
 	}
 
-	public class ColorLogger {
-		private static final Logger LOGGER = LoggerFactory.getLogger("");
-
-		public void logDebug(String logging) {
-			LOGGER.debug("\u001B[92m" + logging + "\u001B[0m");
+	@Operation(
+			summary = "Paced Data Feed",
+			description = "Emit random persons (CSV rows without header) or UUIDs at a fixed rate until `antal` rows are sent or the client disconnects, " +
+					"for load generator feeders that read test data while a test runs instead of from a file prepared beforehand.\n\n" +
+					"Rows are written in batches of `batch` rows, one flush per batch, paced by a token bucket so the average rate stays at `rate` " +
+					"rows per second. With `format=sse` or `Accept: text/event-stream` each batch is a server-sent event with one `data:` line per row.\n\n" +
+					"Rows come from shared buffers of pre-generated blocks that are refilled in the background, so many paced subscribers cost little CPU. " +
+					"Feed rows are never seeded and no two subscribers get the same row. Persons are born 18 to 80 years ago.\n\n" +
+					"**Usage Examples:**\n" +
+					"- 500 persons per second until stopped: `curl -N '.../RandomFeed?rate=500'`\n" +
+					"- Server-sent events of 10 UUIDs each: `curl -N '.../RandomFeed?type=uuid&rate=100&batch=10&format=sse'`"
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Rows streamed until antal is reached or the client disconnects",
+					content = {
+							@Content(mediaType = "text/csv",
+									examples = @ExampleObject(value = "550e8400-e29b-41d4-a716-446655440000\n" +
+											"6ba7b810-9dad-11d1-80b4-00c04fd430c8")),
+							@Content(mediaType = "text/event-stream",
+									examples = @ExampleObject(value = "data: 550e8400-e29b-41d4-a716-446655440000\n" +
+											"data: 6ba7b810-9dad-11d1-80b4-00c04fd430c8\n\n"))
+					}),
+			@ApiResponse(responseCode = "400", description = "Invalid parameter",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "rate must be from 1 to 1000000 rows per second"))),
+			@ApiResponse(responseCode = "429", description = "Too many feed subscribers")
+	})
+	@GetMapping(value = "RandomFeed")
+	public ResponseEntity<StreamingResponseBody> RandomFeed(
+			@Parameter(description = "What to emit: person or uuid", example = "person")
+			@RequestParam(defaultValue = "person") String type,
+			@Parameter(description = "Rows per second", required = true, example = "500")
+			@RequestParam String rate,
+			@Parameter(description = "Rows per flush, default a tenth of the rate", example = "50")
+			@RequestParam(required = false) String batch,
+			@Parameter(description = "Rows to send before ending the response; without it the feed runs until the client disconnects", example = "10000")
+			@RequestParam(required = false) String antal,
+			@Parameter(description = "Output format: csv or sse (server-sent events); defaults to sse when the Accept header asks for text/event-stream", example = "csv")
+			@RequestParam(required = false) String format,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+		DataFeed.Type feedType = switch (type) {
+			case "person" -> DataFeed.Type.PERSON;
+			case "uuid" -> DataFeed.Type.UUID;
+			default -> null;
+		};
+		if (feedType == null) {
+			return streamingError(400, "type must be person or uuid");
+		}
+		if (validateAntal(rate, DataFeed.MAX_RATE) != null) {
+			return streamingError(400, "rate must be from 1 to " + DataFeed.MAX_RATE + " rows per second");
+		}
+		int rowsPerSecond = parseInt(rate);
+		if (batch != null && validateAntal(batch, DataFeed.MAX_BATCH) != null) {
+			return streamingError(400, "batch must be from 1 to " + DataFeed.MAX_BATCH);
+		}
+		int rowsPerBatch = batch == null ? Math.max(1, Math.min(rowsPerSecond / 10, DataFeed.MAX_BATCH)) : parseInt(batch);
+		if (antal != null) {
+			String error = validateAntal(antal, Integer.MAX_VALUE);
+			if (error != null) {
+				return streamingError(400, error);
+			}
+		}
+		long count = antal == null ? 0 : parseInt(antal);
+		boolean sse;
+		if (format == null) {
+			sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+		} else if (format.equals("csv") || format.equals("sse")) {
+			sse = format.equals("sse");
+		} else {
+			return streamingError(400, "format must be csv or sse");
 		}
 
-		public void logInfo(String logging) {
-			LOGGER.info("\u001B[93m" + logging + "\u001B[0m");
+		if (!feed.trySubscribe()) {
+			return streamingError(429, "too many feed subscribers, retry later");
 		}
 
-		public void logError(String logging) {
-			LOGGER.error("\u001B[91m" + logging + "\u001B[0m");
+		colorLogger.logInfo("Feeding " + type + " at " + rowsPerSecond + " rows/s in batches of " + rowsPerBatch
+				+ (count > 0 ? ", " + count + " rows" : ""));
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+		if (sse) {
+			// Keep reverse proxies from buffering the events
+			response.header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+					.header("X-Accel-Buffering", "no");
+		} else {
+			response.header(HttpHeaders.CONTENT_TYPE, "text/csv; charset=UTF-8");
+		}
+		return response.body(releasingAfter(feed::unsubscribe,
+				outputStream -> feed.stream(feedType, rowsPerSecond, rowsPerBatch, count, sse, outputStream)));
+	}
+
+	@Operation(
+			summary = "Validate Personnummer",
+			description = "Validate and normalise personnummer posted one per line, e.g. identifiers exported from a test environment. " +
+					"Accepts YYMMDD-NNNC, YYMMDD+NNNC, YYMMDDNNNC, YYYYMMDDNNNC and YYYYMMDD-NNNC, and checks the format, " +
+					"the date (coordination numbers with day + 60 are accepted), that the date is not in the future and the check digit. " +
+					"The century of a short number follows from its delimiter, '+' meaning 100 years or older this year.\n\n" +
+					"The body is read incrementally in blocks that are validated in parallel by the worker pool and written back in order, " +
+					"so memory use stays constant regardless of the input size. Send `Content-Encoding: gzip` for a compressed body.\n\n" +
+					"Each result line is `line;input;longPersonnummer;personnummer;error`. Blank lines are skipped but counted. " +
+					"The error is `format`, `date`, `future` or `checksum`, and empty for valid input.\n\n" +
+					"**Usage Examples:**\n" +
+					"- Normalise a file: `curl --data-binary @pnr.txt -H 'Content-Type: text/plain' .../ValidatePersonnummer`\n" +
+					"- Only the invalid lines: `.../ValidatePersonnummer?onlyInvalid=true`"
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Results streamed successfully",
+					content = @Content(mediaType = "text/csv",
+							examples = @ExampleObject(value = "1;8507099805;198507099805;850709-9805;\n" +
+									"2;19121212+1212;191212121212;121212+1212;\n" +
+									"3;850709-9804;;;checksum"))),
+			@ApiResponse(responseCode = "400", description = "Content-Encoding is gzip but the body is not",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "body is not valid gzip: Not in GZIP format"))),
+			@ApiResponse(responseCode = "415", description = "Unsupported Content-Encoding",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "Content-Encoding must be gzip or identity"))),
+			@ApiResponse(responseCode = "429", description = "Too many concurrent generation requests")
+	})
+	@PostMapping(value = "ValidatePersonnummer")
+	public ResponseEntity<StreamingResponseBody> ValidatePersonnummer(
+			@Parameter(description = "Return only the lines that are not a valid personnummer", example = "false")
+			@RequestParam(defaultValue = "false") boolean onlyInvalid,
+			@RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+			InputStream body) {
+
+		boolean gzip = "gzip".equalsIgnoreCase(contentEncoding);
+		if (contentEncoding != null && !gzip && !"identity".equalsIgnoreCase(contentEncoding)) {
+			return streamingError(415, "Content-Encoding must be gzip or identity");
+		}
+		// Read the gzip header before taking a generation permit, so a body that is not gzip gets a 400
+		// and cannot leave a permit behind
+		InputStream in;
+		try {
+			in = gzip ? new GZIPInputStream(body, 65536) : body;
+		} catch (IOException e) {
+			return streamingError(400, "body is not valid gzip" + (e.getMessage() == null ? "" : ": " + e.getMessage()));
+		}
+
+		if (!generation.tryAcquire()) {
+			return streamingError(429, "too many concurrent generation requests, retry later");
+		}
+
+		PersonnummerValidator validator = new PersonnummerValidator(LocalDate.now(), onlyInvalid);
+		colorLogger.logInfo("Validating personnummer" + (onlyInvalid ? ", only invalid lines" : ""));
+
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.CONTENT_TYPE, "text/csv; charset=UTF-8")
+				.header(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true")
+				.body(releasingAfter(generation::release, outputStream -> validateStream(in, validator, outputStream)));
+	}
+
+	/**
+	 * Read the body in blocks cut at line ends, validate the blocks on the shared generation pool and
+	 * write the results in order. At most two blocks per worker are in flight, so neither a large body
+	 * nor a slow client makes memory grow.
+	 */
+	private void validateStream(InputStream in, PersonnummerValidator validator, OutputStream outputStream) throws IOException {
+		long start = System.currentTimeMillis();
+		int maxInFlight = generation.poolSize() * 2;
+		Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+		LongAdder invalid = new LongAdder();
+		LineBlockReader reader = new LineBlockReader(in, VALIDATE_BLOCK_SIZE);
+		boolean eof = false;
+
+		try (in) {
+			while (!eof || !inFlight.isEmpty()) {
+				while (!eof && inFlight.size() < maxInFlight) {
+					LineBlockReader.Block block = reader.next();
+					if (block == null) {
+						eof = true;
+						break;
+					}
+					try {
+						inFlight.add(generation.submit(() -> validateBlock(validator, block, invalid)));
+					} catch (RejectedExecutionException e) {
+						// Queue is full: validate on this thread, which also slows down reading
+						inFlight.add(CompletableFuture.completedFuture(validateBlock(validator, block, invalid)));
+					}
+				}
+				if (!inFlight.isEmpty()) {
+					outputStream.write(inFlight.poll().get());
+					outputStream.flush();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("ValidatePersonnummer interrupted");
+		} catch (ExecutionException e) {
+			colorLogger.logError("Error during personnummer validation: " + e.getCause().getMessage());
+			throw new IOException("Error validating personnummer", e.getCause());
+		} finally {
+			inFlight.forEach(future -> future.cancel(true));
+		}
+
+		long timeElapsed = System.currentTimeMillis() - start;
+		long lineCount = reader.lines();
+		metrics.validatedRows(lineCount, invalid.sum());
+		metrics.request("ValidatePersonnummer", timeElapsed, lineCount);
+		colorLogger.logInfo(() -> "ValidatePersonnummer exec time: " + timeElapsed + "ms (" + lineCount + " lines, " +
+				invalid.sum() + " invalid, " + throughput(lineCount, timeElapsed) + ")");
+	}
+
+	/**
+	 * Validate the lines of a block
+	 * @param invalid Incremented by the number of invalid lines
+	 */
+	private static byte[] validateBlock(PersonnummerValidator validator, LineBlockReader.Block block, LongAdder invalid) {
+		ByteSink sink = new ByteSink(validator.invalidOnly() ? 4096 : (block.to() - block.from()) * 3);
+		invalid.add(validator.validate(block.bytes(), block.from(), block.to(), block.firstLine(), sink));
+		return sink.toByteArray();
+	}
+
+	@Operation(
+			summary = "Start Background Person Job",
+			description = "Generate persons to a file in the background instead of holding a connection open. " +
+					"Takes the same parameters as /RandomPersonStream and returns the job's status, with a `Location` " +
+					"header for polling. Rows are generated by the shared worker pool and written sequentially to a file; " +
+					"once the job is `done` the file is downloaded from /jobs/{id}/result, in parallel slices with Range requests if wanted.\n\n" +
+					"Seeded jobs are cached: submitting the same parameters and seed again returns the " +
+					"existing job (and its finished file) instead of generating again. Persons only depend on today's date " +
+					"when `to` is the current year or later (no birth dates after today) or `from` is at least 100 years ago " +
+					"(the '+' delimiter), so such jobs are reused on the same day or in the same year only.\n\n" +
+					"**Usage Examples:**\n" +
+					"- Generate 50 million persons as gzip-compressed CSV: `?antal=50000000&from=1950&to=2000&seed=42&format=csv.gz`"
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "202", description = "Job queued or running",
+					content = @Content(mediaType = "application/json",
+							examples = @ExampleObject(value = "{\"id\":\"3f1c…\",\"status\":\"queued\",\"format\":\"csv\",\"rows\":50000000,\"rowsGenerated\":0,\"progress\":0}"))),
+			@ApiResponse(responseCode = "200", description = "An identical seeded job has already finished"),
+			@ApiResponse(responseCode = "400", description = "Invalid parameters",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "parameter must be an integer"))),
+			@ApiResponse(responseCode = "429", description = "Maximum number of jobs reached and none has finished")
+	})
+	@PostMapping(value = "jobs")
+	public ResponseEntity<String> startJob(
+			@Parameter(description = "Number of persons to generate", required = true, example = "1000000")
+			@RequestParam String antal,
+			@Parameter(description = "Birth year range start, inclusive (e.g., 1950)", required = true, example = "1950")
+			@RequestParam String from,
+			@Parameter(description = "Birth year range end, inclusive (e.g., 2005)", required = true, example = "2005")
+			@RequestParam String to,
+			@Parameter(description = "Only use postal codes in these kommuner (comma-separated, e.g. Stockholm,Solna)", example = "Stockholm")
+			@RequestParam(required = false) String kommun,
+			@Parameter(description = "Only use postal codes starting with these digits (e.g. 11)", example = "11")
+			@RequestParam(required = false) String zipPrefix,
+			@Parameter(description = "Postal code weighting: postnummer (every postal code equally likely) or kommun (every kommun equally likely)", example = "postnummer")
+			@RequestParam(defaultValue = "postnummer") String weighting,
+			@Parameter(description = "Use a cryptographically strong random generator (slower)", example = "false")
+			@RequestParam(defaultValue = "false") boolean secure,
+			@Parameter(description = "Seed for reproducible output; seeded jobs are cached and reused (see the description for date-dependent ranges)", example = "42")
+			@RequestParam(required = false) String seed,
+			@Parameter(description = "Row number of the first row, for generating one shard of a seeded dataset", example = "0")
+			@RequestParam(defaultValue = "0") String offset,
+			@Parameter(description = "Never repeat a personnummer or email within the result", example = "false")
+			@RequestParam(defaultValue = "false") boolean unique,
+			@Parameter(description = "Never repeat a personnummer or email within this named dataset, across requests (implies unique)", example = "loadtest1")
+			@RequestParam(required = false) String dataset,
+			@Parameter(description = "Output format: csv, json, jsonl, csv.gz or columnar", example = "csv")
+			@RequestParam(defaultValue = "csv") String format) {
+
+		OutputFormat outputFormat = OutputFormat.negotiate(format, null);
+		String error = validateAntal(antal, Integer.MAX_VALUE);
+		if (error == null && outputFormat == null) {
+			error = "format must be csv, json, jsonl, csv.gz or columnar";
+		}
+		if (error == null) {
+			error = validateBirthYears(from, to);
+		}
+		if (error == null && !weighting.equals("postnummer") && !weighting.equals("kommun")) {
+			error = "weighting must be postnummer or kommun";
+		}
+		if (error == null) {
+			error = validateSeed(seed, offset, secure);
+		}
+
+		PostalCodeIndex.Selection postal = postalCodes.select(kommun, zipPrefix, "kommun".equals(weighting));
+		if (error == null && postal.isEmpty()) {
+			error = "no postal codes match kommun/zipPrefix";
+		}
+		if (error == null) {
+			error = validateUnique(unique, dataset, seed, parseInt(from), parseInt(to));
+		}
+
+		ConcurrentBitSet claimed = error == null ? claimedSlots(unique, dataset) : null;
+		if (error == null) {
+			error = validateAvailable(dataset, claimed, parseInt(antal), parseInt(from), parseInt(to));
+		}
+
+		if (error != null) {
+			return ResponseEntity.status(400)
+					.body(error);
+		}
+
+		int count = parseInt(antal);
+		Long seedValue = seed == null ? null : Long.valueOf(seed);
+		long firstRow = Long.parseLong(offset);
+		PersonSpec spec = new PersonSpec(parseInt(from), parseInt(to), postal, seedValue, secure, claimed);
+
+		String cacheKey = seedValue == null ? null : String.join("|", "RandomPerson", String.valueOf(count),
+				String.valueOf(spec.fromYear()), String.valueOf(spec.toYear()), String.valueOf(kommun), String.valueOf(zipPrefix),
+				weighting, String.valueOf(seedValue), String.valueOf(firstRow), outputFormat.extension(),
+				generationDate(spec.fromYear(), spec.toYear(), LocalDate.now()));
+
+		GenerationJobs.Job job = jobs.submit(cacheKey, outputFormat, count, (out, running) -> {
+			// Jobs wait for a generation permit instead of being turned away
+			generation.acquire();
+			try {
+				streamChunks("jobs", count, outputFormat, (chunkStart, chunk) -> {
+					byte[] bytes = generatePersonBatch(firstRow + chunkStart, chunk, spec, outputFormat);
+					running.addRows(chunk);
+					return bytes;
+				}).writeTo(out);
+			} finally {
+				generation.release();
+			}
+		});
+		if (job == null) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.body("maximum number of jobs reached, delete finished jobs or retry later");
+		}
+		colorLogger.logInfo("Job " + job.id() + ": " + antal + " persons as " + outputFormat.extension() +
+				(job.hits() > 0 ? " (cached)" : ""));
+
+		return ResponseEntity.status(job.status() == GenerationJobs.Status.DONE ? HttpStatus.OK : HttpStatus.ACCEPTED)
+				.header(HttpHeaders.LOCATION, "/jobs/" + job.id())
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8")
+				.body(job.toJson().toString());
+	}
+
+	@Operation(
+			summary = "List Background Jobs",
+			description = "List all background jobs, oldest first, with their status and progress."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Job statuses",
+					content = @Content(mediaType = "application/json"))
+	})
+	@GetMapping(value = "jobs")
+	public ResponseEntity<String> listJobs() {
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8")
+				.body(jobs.stats().toString());
+	}
+
+	@Operation(
+			summary = "Background Job Status",
+			description = "Status of a background job: `queued`, `running`, `done` or `failed`, with the number of rows " +
+					"generated so far. When done, `result` is the download path and `bytes` the file size."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Job status",
+					content = @Content(mediaType = "application/json",
+							examples = @ExampleObject(value = "{\"id\":\"3f1c…\",\"status\":\"done\",\"format\":\"csv\",\"rows\":1000000,\"rowsGenerated\":1000000," +
+									"\"progress\":1,\"bytes\":182954112,\"result\":\"/jobs/3f1c…/result\"}"))),
+			@ApiResponse(responseCode = "404", description = "No such job")
+	})
+	@GetMapping(value = "jobs/{id}")
+	public ResponseEntity<String> jobStatus(@PathVariable String id) {
+		GenerationJobs.Job job = jobs.get(id);
+		if (job == null) {
+			return ResponseEntity.status(404).body("no such job");
+		}
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8")
+				.body(job.toJson().toString());
+	}
+
+	@Operation(
+			summary = "Download Background Job Result",
+			description = "Download the file of a finished job. Supports `Range` requests (`206 Partial Content`), " +
+					"so several clients can fetch slices of a large result in parallel."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "The result file"),
+			@ApiResponse(responseCode = "206", description = "The requested byte range of the result file"),
+			@ApiResponse(responseCode = "404", description = "No such job"),
+			@ApiResponse(responseCode = "409", description = "The job has not finished, or failed")
+	})
+	@GetMapping(value = "jobs/{id}/result")
+	public ResponseEntity<?> jobResult(@PathVariable String id) {
+		GenerationJobs.Job job = jobs.lease(id);
+		if (job == null) {
+			return ResponseEntity.status(404).body("no such job");
+		}
+		if (job.status() != GenerationJobs.Status.DONE) {
+			jobs.release(job);
+			return ResponseEntity.status(409).body("job is " + job.status().name().toLowerCase());
+		}
+		// The file is written after this method returns; keep it until the request has completed, also when the client aborts
+		RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+				"jobs.download", () -> jobs.release(job), RequestAttributes.SCOPE_REQUEST);
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_TYPE, job.format().contentType())
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"persons-" + id + "." + job.format().extension() + "\"")
+				.body(new FileSystemResource(job.file()));
+	}
+
+	@Operation(
+			summary = "Delete Background Job",
+			description = "Cancel a job if it is still running and delete its result file."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Job deleted"),
+			@ApiResponse(responseCode = "404", description = "No such job")
+	})
+	@DeleteMapping(value = "jobs/{id}")
+	public ResponseEntity<String> deleteJob(@PathVariable String id) {
+		if (!jobs.remove(id)) {
+			return ResponseEntity.status(404).body("no such job");
+		}
+		colorLogger.logInfo("Deleted job: " + id);
+		return ResponseEntity.ok("deleted");
+	}
+
+	/**
+	 * The part of today's date that persons born in [fromYear, toYear] depend on, for the key of a cached job.
+	 * A range reaching this year is cut at today, and persons turning 100 this year or earlier get '+';
+	 * any other range gives the same persons on every day.
+	 */
+	static String generationDate(int fromYear, int toYear, LocalDate today) {
+		if (toYear >= today.getYear()) {
+			return today.toString();
+		}
+		return today.getYear() - fromYear >= 100 ? String.valueOf(today.getYear()) : "";
+	}
+
+	/**
+	 * Validate the antal parameter
+	 * @return Error message for a 400 response, or null if valid
+	 */
+	private String validateAntal(String antal, int limit) {
+		if (!antal.matches("[0-9]+")) {
+			return "parameter must be an integer";
+		}
+		if (antal.length() > 10 || Long.parseLong(antal) > limit) {
+			return "parameter limit " + limit;
+		}
+		if (parseInt(antal) < 1) {
+			return "parameter must be at least 1";
+		}
+		return null;
+	}
+
+	/**
+	 * Validate the from/to birth year parameters
+	 * @return Error message for a 400 response, or null if valid
+	 */
+	private String validateBirthYears(String from, String to) {
+		if (!from.matches("[0-9]{4}") || !to.matches("[0-9]{4}")) {
+			return "from and to must be four-digit years";
+		}
+		if (parseInt(from) > parseInt(to)) {
+			return "from must not be after to";
+		}
+		if (parseInt(from) < 1800 || parseInt(from) > Year.now().getValue()) {
+			return "from must be between 1800 and " + Year.now().getValue();
+		}
+		return null;
+	}
+
+	/**
+	 * Validate the seed/offset parameters
+	 * @return Error message for a 400 response, or null if valid
+	 */
+	private String validateSeed(String seed, String offset, boolean secure) {
+		if (seed != null) {
+			try {
+				Long.parseLong(seed);
+			} catch (NumberFormatException e) {
+				return "seed must be an integer";
+			}
+			if (secure) {
+				return "seed and secure cannot be combined";
+			}
+		}
+		if (!offset.matches("[0-9]{1,15}")) {
+			return "offset must be a non-negative integer";
+		}
+		return null;
+	}
+
+	/**
+	 * Validate the version parameter of the UUID endpoints
+	 * @return Error message for a 400 response, or null if valid
+	 */
+	private String validateUuidVersion(String version, String seed, String offset) {
+		UuidWriter.Version uuidVersion = UuidWriter.Version.parse(version);
+		if (uuidVersion == null) {
+			return "version must be 4, 7 or ulid";
+		}
+		if (uuidVersion.timeOrdered() && (seed != null || Long.parseLong(offset) != 0)) {
+			return "seed and offset only apply to version 4: time-ordered ids contain the current time";
+		}
+		return null;
+	}
+
+	/**
+	 * Validate the unique/dataset parameters
+	 * @return Error message for a 400 response, or null if valid
+	 */
+	private String validateUnique(boolean unique, String dataset, String seed, int fromYear, int toYear) {
+		if (!unique && dataset == null) {
+			return null;
+		}
+		if (dataset != null && !dataset.matches("[A-Za-z0-9_-]{1,64}")) {
+			return "dataset must be 1-64 letters, digits, - or _";
+		}
+		if (seed != null) {
+			return "seed cannot be combined with unique or dataset";
+		}
+		// Persons born 100 years apart who are both over 100 share the short personnummer
+		if (fromYear + 100 <= Math.min(toYear, Year.now().getValue() - 100)) {
+			return "unique needs from and to less than 100 years apart when both are over 100 years ago";
+		}
+		return null;
+	}
+
+	/**
+	 * Personnummer already used by the dataset, a fresh set for a unique request, or null for non-unique output
+	 */
+	private ConcurrentBitSet claimedSlots(boolean unique, String dataset) {
+		if (dataset != null) {
+			return uniqueDatasets.claimed(dataset);
+		}
+		return unique ? new ConcurrentBitSet(PersonnummerGenerator.SLOT_COUNT) : null;
+	}
+
+	/**
+	 * Check that enough unused personnummer are left in the birth year range
+	 * @return Error message for a 400 response, or null if valid
+	 */
+	private String validateAvailable(String dataset, ConcurrentBitSet claimed, int count, int fromYear, int toYear) {
+		if (dataset != null && claimed == null) {
+			return "too many datasets, delete one with DELETE /datasets/{name}";
+		}
+		if (claimed == null) {
+			return null;
+		}
+		PersonnummerGenerator range = new PersonnummerGenerator(fromYear, toYear);
+		long available = range.slotCount() - claimed.count(range.firstSlot(), range.firstSlot() + range.slotCount());
+		if (count > available) {
+			return "only " + available + " unused personnummer left in the birth year range";
+		}
+		return null;
+	}
+
+	/**
+	 * Rows per second and thread type, for comparing platform and virtual thread mode in the logs
+	 */
+	private static String throughput(long rows, long timeElapsed) {
+		return rows * 1000 / Math.max(1, timeElapsed) + " rows/s, " + threadType() + " thread";
+	}
+
+	private static String threadType() {
+		return Thread.currentThread().isVirtual() ? "virtual" : "platform";
+	}
+
+	/**
+	 * Plain text response for the streaming endpoints
+	 */
+	private ResponseEntity<StreamingResponseBody> streamingError(int status, String message) {
+		byte[] body = message.getBytes(StandardCharsets.UTF_8);
+		ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+				.header(HttpHeaders.CONTENT_TYPE, "text/plain; charset=UTF-8");
+		if (status == 429) {
+			response.header(HttpHeaders.RETRY_AFTER, "1");
+		}
+		return response.body(out -> out.write(body));
+	}
+
+	/**
+	 * Response headers for a bulk response in the given format
+	 * @param baseName Download file name without extension, used for binary formats
+	 */
+	private static HttpHeaders formatHeaders(OutputFormat format, String baseName) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.add(HttpHeaders.CACHE_CONTROL, "no-cache");
+		headers.add(HttpHeaders.CONTENT_TYPE, format.contentType());
+		headers.add(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+		String fileName = format.fileName(baseName);
+		if (fileName != null) {
+			headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+		}
+		return headers;
+	}
+
+	/**
+	 * Generate rows in chunks on the shared generation pool and write each chunk to the response in order.
+	 * At most two chunks per worker are in flight, so a slow client blocks the writer and
+	 * no further chunks are submitted until it catches up. The caller holds the generation permit
+	 * and releases it when the stream ends.
+	 * @param format Framing of the chunks: prologue, separator and epilogue
+	 */
+	private StreamingResponseBody streamChunks(String name, int count, OutputFormat format, ChunkGenerator chunkGenerator) {
+		return streamChunks(name, count, format, OutputFormat.Columns.PERSON, chunkGenerator);
+	}
+
+	/**
+	 * {@link #streamChunks(String, int, OutputFormat, ChunkGenerator)} for rows with other columns than a person
+	 * @param columns Columns named by the prologue, e.g. the CSV header row
+	 */
+	private StreamingResponseBody streamChunks(String name, int count, OutputFormat format, OutputFormat.Columns columns,
+			ChunkGenerator chunkGenerator) {
+		return outputStream -> {
+			long start = System.currentTimeMillis();
+			int numThreads = writeChunks(name, count, STREAM_CHUNK_SIZE, format, columns, chunkGenerator, outputStream);
+
+			long timeElapsed = System.currentTimeMillis() - start;
+			metrics.request(name, timeElapsed, count);
+			colorLogger.logInfo(() -> name + " exec time: " + timeElapsed + "ms (streamed with " + numThreads + " threads, " + throughput(count, timeElapsed) + ")");
+		};
+	}
+
+	/**
+	 * Wrap a streaming body so that release, of a permit or anything else its handler took, runs exactly once:
+	 * when the body ends, or when the async request completes without the body having run because the
+	 * async task executor rejected it or the request failed or timed out first.
+	 */
+	private static StreamingResponseBody releasingAfter(Runnable release, StreamingResponseBody body) {
+		AtomicBoolean released = new AtomicBoolean();
+		Runnable releaseOnce = () -> {
+			if (released.compareAndSet(false, true)) {
+				release.run();
+			}
+		};
+		RequestContextHolder.currentRequestAttributes().setAttribute(STREAM_RELEASE_ATTRIBUTE, releaseOnce, RequestAttributes.SCOPE_REQUEST);
+		return outputStream -> {
+			try {
+				body.writeTo(outputStream);
+			} finally {
+				releaseOnce.run();
+			}
+		};
+	}
+
+	/**
+	 * The generation loop of {@link #streamChunks(String, int, OutputFormat, ChunkGenerator)}, writing one
+	 * framed stream of count rows to outputStream. Chunks that encode to no bytes are left out.
+	 * @param chunkSize Rows per chunk
+	 * @return Number of worker threads used
+	 */
+	private int writeChunks(String name, int count, int chunkSize, OutputFormat format, OutputFormat.Columns columns,
+			ChunkGenerator chunkGenerator, OutputStream outputStream) throws IOException {
+		int numThreads = Math.min(generation.poolSize(), Math.max(1, count / chunkSize));
+		int maxInFlight = numThreads * 2;
+		Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+		int submitted = 0;
+
+		try {
+			outputStream.write(format.prologue(columns));
+			byte[] separator = format.separator();
+			boolean first = true;
+			while (submitted < count || !inFlight.isEmpty()) {
+				while (submitted < count && inFlight.size() < maxInFlight) {
+					int chunkStart = submitted;
+					int chunk = Math.min(chunkSize, count - submitted);
+					try {
+						inFlight.add(generation.submit(() -> chunkGenerator.generate(chunkStart, chunk)));
+					} catch (RejectedExecutionException e) {
+						// Queue is full: generate on this thread, which also slows down submission
+						inFlight.add(CompletableFuture.completedFuture(chunkGenerator.generate(chunkStart, chunk)));
+					}
+					submitted += chunk;
+				}
+				byte[] bytes = inFlight.poll().get();
+				if (bytes.length == 0) {
+					continue;
+				}
+				if (!first) {
+					outputStream.write(separator);
+				}
+				outputStream.write(bytes);
+				first = false;
+				outputStream.flush();
+			}
+			outputStream.write(format.epilogue());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(name + " interrupted");
+		} catch (ExecutionException e) {
+			colorLogger.logError("Error during streamed generation: " + e.getCause().getMessage());
+			throw new IOException("Error generating " + name, e.getCause());
+		} finally {
+			inFlight.forEach(future -> future.cancel(true));
+		}
+		return numThreads;
+	}
+
+	/**
+	 * Generates one chunk of a stream
+	 */
+	@FunctionalInterface
+	interface ChunkGenerator {
+		/**
+		 * @param firstRow Position of the chunk's first row within the stream
+		 * @param count Number of rows
+		 */
+		byte[] generate(int firstRow, int count);
+	}
+
+	@Operation(
+			summary = "Execute SQL Query",
+			description = "Execute a SQL query against a specified database and return results in CSV format. " +
+					"Supports multiple database types including MySQL, PostgreSQL, Oracle, SQL Server, and more via JDBC. " +
+					"Results are formatted as semicolon-separated CSV with column headers and streamed to the client " +
+					"as rows are fetched, so memory use stays constant regardless of the result size. " +
+					"Use `fetchSize` to tune rows per database round trip, `maxRows` to cap the result and `gzip` to compress it. " +
+					"`mask` replaces the values of chosen columns with synthetic ones, e.g. `{\"PNR\":\"Personnummer\",\"EMAIL\":\"email\"}`: " +
+					"each rule is a person field or `hash`, and the same input always gives the same fake value for the server's masking key. " +
+					"⚠️ **WARNING:** This endpoint executes raw SQL queries. Use with caution and only in test environments. " +
+					"Never expose this endpoint in production without proper authentication and authorization.\n\n" +
+					"**Supported Databases:**\n" +
+					"- MySQL: `jdbc:mysql://host:port/database`\n" +
+					"- PostgreSQL: `jdbc:postgresql://host:port/database`\n" +
+					"- Oracle: `jdbc:oracle:thin:@host:port:sid`\n" +
+					"- SQL Server: `jdbc:sqlserver://host:port;databaseName=db`\n\n" +
+					"**Security Notes:**\n" +
+					"- Only use in isolated test environments\n" +
+					"- Credentials are transmitted in request body\n" +
+					"- No query validation or sanitization is performed\n" +
+					"- Use read-only database accounts when possible"
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Query executed successfully, results returned in CSV format",
+					content = @Content(mediaType = "text/csv",
+							examples = @ExampleObject(value = "id;name;email\n1;John Doe;john@example.com\n2;Jane Smith;jane@example.com"))),
+			@ApiResponse(responseCode = "400", description = "Invalid request - missing required fields",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "Missing required fields: jdbc, sql, user, password"))),
+			@ApiResponse(responseCode = "500", description = "Database connection or query execution error " +
+					"(errors after streaming has started abort the response instead)",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "Database error: Connection refused"))),
+			@ApiResponse(responseCode = "503", description = "A new connection pool is needed but every pool has borrowed connections",
+					content = @Content(mediaType = "text/plain"))
+	})
+	@PostMapping("/SQL")
+	public ResponseEntity<StreamingResponseBody> SQL(
+			@io.swagger.v3.oas.annotations.parameters.RequestBody(
+					description = "SQL query request with JDBC connection details and credentials. " +
+							"Optional: `fetchSize` (rows per database round trip), `maxRows` (0 = no limit), `gzip` (gzip-compress the response) " +
+							"and `mask` (column name to masking rule)",
+					required = true,
+					content = @Content(
+							mediaType = "application/json",
+							examples = @ExampleObject(value = "{\n" +
+									"  \"jdbc\": \"jdbc:mysql://localhost:3306/testdb\",\n" +
+									"  \"sql\": \"SELECT * FROM users LIMIT 10\",\n" +
+									"  \"user\": \"dbuser\",\n" +
+									"  \"password\": \"dbpass\",\n" +
+									"  \"fetchSize\": 1000,\n" +
+									"  \"maxRows\": 0,\n" +
+									"  \"gzip\": false,\n" +
+									"  \"mask\": {\"personnummer\": \"Personnummer\", \"email\": \"email\"}\n" +
+									"}")
+					)
+			)
+			@RequestBody String jsonString) {
+
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+
+		try {
+			colorLogger.logInfo("\nReceived SQL request");
+
+			jsonString = jsonString.replace("'{", "{");
+			jsonString = jsonString.replace("}'", "}");
+
+			JSONObject json = new JSONObject(jsonString);
+
+			if (!json.has("jdbc") || !json.has("sql") || !json.has("user") || !json.has("password")) {
+				return streamingError(400, "Missing required fields: jdbc, sql, user, password");
+			}
+
+			String jdbc = json.getString("jdbc");
+			String sql = json.getString("sql");
+			String user = json.getString("user");
+			String password = json.getString("password");
+			int fetchSize = json.optInt("fetchSize", sqlPools.defaultFetchSize());
+			int maxRows = json.optInt("maxRows", 0);
+			boolean gzip = json.optBoolean("gzip", false);
+			JSONObject maskRules = json.optJSONObject("mask");
+
+			if (json.has("mask") && maskRules == null) {
+				return streamingError(400, "mask must be an object of column name to rule");
+			}
+			if (fetchSize < 0 || maxRows < 0) {
+				return streamingError(400, "fetchSize and maxRows must not be negative");
+			}
+
+			// Run the query before streaming starts so that connection and SQL errors still get a proper status
+			long start = System.currentTimeMillis();
+			conn = sqlPools.getConnection(jdbc, user, password);
+			if (jdbc.startsWith("jdbc:postgresql:")) {
+				// PostgreSQL only fetches with a cursor, honouring fetchSize, outside auto-commit
+				conn.setAutoCommit(false);
+			}
+			st = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			st.setFetchSize(fetchSize);
+			st.setMaxRows(maxRows);
+			colorLogger.logInfo("\nRunning query: " + sql);
+			rs = st.executeQuery();
+			ResultMask mask = maskRules == null || maskRules.isEmpty() ? null : sqlMasks.compile(maskRules, rs.getMetaData());
+
+			Connection connection = conn;
+			PreparedStatement statement = st;
+			ResultSet resultSet = rs;
+
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+					.header(HttpHeaders.CONTENT_TYPE, "text/csv; charset=UTF-8");
+			if (gzip) {
+				response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+			}
+
+			// The body closes these when it runs; if it never runs, they are closed when the request completes
+			return response.body(releasingAfter(() -> closeQuietly(resultSet, statement, connection), outputStream -> {
+				try (connection; statement; resultSet) {
+					GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(outputStream, 65536) : null;
+					Writer writer = new BufferedWriter(new OutputStreamWriter(
+							gzip ? gzipStream : outputStream, StandardCharsets.UTF_8), 65536);
+
+					long rows = OraSQL(resultSet, writer, mask);
+					writer.flush();
+					if (gzipStream != null) {
+						gzipStream.finish();
+					}
+
+					long timeElapsed = System.currentTimeMillis() - start;
+					metrics.sqlRows(rows);
+					if (mask != null) {
+						metrics.maskedValues(mask.hits(), mask.misses());
+					}
+					metrics.request("SQL", timeElapsed, rows);
+					colorLogger.logInfo(() -> "\nQuery executed successfully in " + timeElapsed + "ms (" + throughput(rows, timeElapsed) + ")");
+				} catch (SQLException e) {
+					colorLogger.logError("SQL Error while streaming: " + e.getMessage());
+					throw new IOException("Database error: " + e.getMessage(), e);
+				}
+			}));
+
+		} catch (JSONException e) {
+			colorLogger.logError("Invalid JSON: " + e.getMessage());
+			return streamingError(400, "Invalid JSON format: " + e.getMessage());
+		} catch (SqlConnectionPools.PoolsExhaustedException e) {
+			colorLogger.logError(e.getMessage());
+			return streamingError(503, e.getMessage());
+		} catch (SQLException e) {
+			closeQuietly(rs, st, conn);
+			colorLogger.logError("SQL Error: " + e.getMessage());
+			return streamingError(500, "Database error: " + e.getMessage());
+		} catch (IllegalArgumentException e) {
+			closeQuietly(rs, st, conn);
+			return streamingError(400, e.getMessage());
+		} catch (Exception e) {
+			closeQuietly(rs, st, conn);
+			colorLogger.logError("Unexpected error: " + e.getMessage());
+			return streamingError(500, "Unexpected error: " + e.getMessage());
+		}
+	}
+
+	@Operation(
+			summary = "Insert Generated Rows into a Table",
+			description = "Generate persons, or the rows of a /RandomDataset schema, and insert them straight into a database table " +
+					"with batched prepared INSERT statements, without a CSV file in between. The rows are split between " +
+					"parallel writers, each with its own pooled connection, which send `batchSize` rows per round trip " +
+					"and commit every `commitInterval` rows. The response reports the rows inserted and rows per second.\n\n" +
+					"**Request fields:**\n" +
+					"- `jdbc`, `user`, `password`, `table`, `antal` (required)\n" +
+					"- `columns` - a /RandomDataset schema whose column names are the table's columns " +
+					"(default: all person fields, named as in /RandomPersonJson)\n" +
+					"- `batchSize` (default 1000), `commitInterval` (default 10000), " +
+					"`writers` (default 4, at most the SQL pool size and `testdatagen.sql.insert.max-writers`)\n" +
+					"- `from`, `to`, `kommun`, `zipPrefix`, `weighting`, `seed`, `offset`, `unique`, `dataset` - as on /RandomDataset\n\n" +
+					"Values are bound as strings, so the database converts them to the column types. " +
+					"For PostgreSQL, add `stringtype=unspecified` to the JDBC URL for non-text columns. " +
+					"If a writer fails, the other writers stop and roll back their uncommitted rows; rows already committed stay. " +
+					"Writers of all requests share `testdatagen.sql.insert.max-writers` threads; a request that does not fit gets 429.\n\n" +
+					"⚠️ **WARNING:** Writes to the database. Only use in test environments."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Rows inserted",
+					content = @Content(mediaType = "application/json",
+							examples = @ExampleObject(value = "{\"table\":\"persons\",\"rows\":1000000,\"writers\":4,\"batchSize\":1000," +
+									"\"commitInterval\":10000,\"millis\":21500,\"rowsPerSecond\":46511}"))),
+			@ApiResponse(responseCode = "400", description = "Invalid request",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "Missing required fields: jdbc, user, password, table, antal"))),
+			@ApiResponse(responseCode = "429", description = "Too many concurrent generation requests or insert writers",
+					content = @Content(mediaType = "text/plain")),
+			@ApiResponse(responseCode = "500", description = "Database error, with the number of rows committed before it",
+					content = @Content(mediaType = "text/plain",
+							examples = @ExampleObject(value = "Database error: ORA-00942: table or view does not exist (0 rows committed)"))),
+			@ApiResponse(responseCode = "503", description = "A new connection pool is needed but every pool has borrowed connections",
+					content = @Content(mediaType = "text/plain"))
+	})
+	@PostMapping("/SQL/insert")
+	public ResponseEntity<String> SQLInsert(
+			@io.swagger.v3.oas.annotations.parameters.RequestBody(
+					description = "Target database and table, number of rows and optional schema",
+					required = true,
+					content = @Content(
+							mediaType = "application/json",
+							examples = @ExampleObject(value = "{\n" +
+									"  \"jdbc\": \"jdbc:oracle:thin:@localhost:1521:XE\",\n" +
+									"  \"user\": \"dbuser\",\n" +
+									"  \"password\": \"dbpass\",\n" +
+									"  \"table\": \"persons\",\n" +
+									"  \"antal\": 1000000,\n" +
+									"  \"from\": 1950,\n" +
+									"  \"to\": 2000,\n" +
+									"  \"batchSize\": 1000,\n" +
+									"  \"commitInterval\": 10000,\n" +
+									"  \"writers\": 4,\n" +
+									"  \"columns\": [\n" +
+									"    {\"name\": \"pnr\", \"type\": \"field\", \"field\": \"Personnummer\"},\n" +
+									"    {\"name\": \"fornamn\", \"type\": \"field\", \"field\": \"namn\"},\n" +
+									"    {\"name\": \"efternamn\", \"type\": \"field\", \"field\": \"efterNamn\"}\n" +
+									"  ]\n" +
+									"}")
+					)
+			)
+			@RequestBody String jsonString) {
+
+		JSONObject json;
+		JSONArray columnSpecs;
+		try {
+			json = new JSONObject(jsonString);
+			columnSpecs = json.has("columns") ? json.getJSONArray("columns") : personColumns();
+		} catch (JSONException e) {
+			colorLogger.logError("Invalid JSON: " + e.getMessage());
+			return ResponseEntity.status(400).body("Invalid JSON format: " + e.getMessage());
+		}
+
+		if (!json.has("jdbc") || !json.has("user") || !json.has("password") || !json.has("table") || !json.has("antal")) {
+			return ResponseEntity.status(400).body("Missing required fields: jdbc, user, password, table, antal");
+		}
+		String jdbc = json.getString("jdbc");
+		String user = json.getString("user");
+		String password = json.getString("password");
+		String table = json.getString("table");
+		int batchSize = json.optInt("batchSize", 1000);
+		int commitInterval = json.optInt("commitInterval", 10000);
+		int maxWriters = Math.min(sqlPools.poolSize(), insertWriters.maxWriters());
+		int writers = json.optInt("writers", Math.min(4, maxWriters));
+
+		if (batchSize < 1 || batchSize > 100000) {
+			return ResponseEntity.status(400).body("batchSize must be between 1 and 100000");
+		}
+		if (commitInterval < 1) {
+			return ResponseEntity.status(400).body("commitInterval must be at least 1");
+		}
+		if (writers < 1 || writers > maxWriters) {
+			return ResponseEntity.status(400).body("writers must be between 1 and " + maxWriters);
+		}
+
+		DatasetRequest request = datasetRequest(json, columnSpecs);
+		if (request.error() != null) {
+			return ResponseEntity.status(400).body(request.error());
+		}
+		FieldPlan plan = request.plan();
+		String sql;
+		try {
+			sql = SqlBatchInsert.insertStatement(table, plan.names());
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.status(400).body(e.getMessage());
+		}
+
+		if (!generation.tryAcquire()) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, "1")
+					.body("too many concurrent generation requests, retry later");
+		}
+
+		int count = request.count();
+		int writerCount = Math.min(writers, count);
+		if (!insertWriters.tryAcquire(writerCount)) {
+			generation.release();
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, "1")
+					.body("too many concurrent insert writers, retry later");
+		}
+		long start = System.currentTimeMillis();
+		colorLogger.logInfo("Inserting " + count + " rows into " + table + " with " + writerCount + " writers");
+
+		LongAdder committed = new LongAdder();
+		List<Callable<Void>> tasks = new ArrayList<>();
+		try {
+			for (int writer = 0; writer < writerCount; writer++) {
+				long first = (long) count * writer / writerCount;
+				long rows = (long) count * (writer + 1) / writerCount - first;
+				tasks.add(() -> {
+					FieldPlan.Rows source = plan.rows(request.spec(), dictionary, postalCodes);
+					try (Connection connection = sqlPools.getConnection(jdbc, user, password)) {
+						SqlBatchInsert.insert(connection, sql, source, plan.size(), request.firstRow() + first, rows,
+								batchSize, commitInterval, committed);
+					} finally {
+						metrics.rejectedDraws(source.rejectedDraws());
+					}
+					return null;
+				});
+			}
+			insertWriters.runAll(tasks);
+		} catch (ExecutionException e) {
+			String message = e.getCause().getMessage();
+			colorLogger.logError("SQL Error during insert: " + message);
+			metrics.insertedRows(committed.sum());
+			if (e.getCause() instanceof SqlConnectionPools.PoolsExhaustedException) {
+				return ResponseEntity.status(503).body(message + " (" + committed.sum() + " rows committed)");
+			}
+			return ResponseEntity.status(500).body("Database error: " + message + " (" + committed.sum() + " rows committed)");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return ResponseEntity.status(500).body("Insert interrupted (" + committed.sum() + " rows committed)");
+		} finally {
+			insertWriters.release(writerCount);
+			generation.release();
+		}
+
+		long timeElapsed = System.currentTimeMillis() - start;
+		long inserted = committed.sum();
+		metrics.insertedRows(inserted);
+		metrics.request("SQLInsert", timeElapsed, inserted);
+		colorLogger.logInfo(() -> "Inserted " + inserted + " rows into " + table + " in " + timeElapsed + "ms (" + throughput(inserted, timeElapsed) + ")");
+
+		JSONObject result = new JSONObject();
+		result.put("table", table);
+		result.put("rows", inserted);
+		result.put("writers", writerCount);
+		result.put("batchSize", batchSize);
+		result.put("commitInterval", commitInterval);
+		result.put("millis", timeElapsed);
+		result.put("rowsPerSecond", inserted * 1000 / Math.max(1, timeElapsed));
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8")
+				.body(result.toString());
+	}
+
+	/**
+	 * Schema with every person field, named as in /RandomPersonJson
+	 */
+	private static JSONArray personColumns() {
+		JSONArray columns = new JSONArray();
+		for (String field : PersonRecord.FIELDS) {
+			columns.put(new JSONObject().put("type", "field").put("field", field));
+		}
+		return columns;
+	}
+
+	@Operation(
+			summary = "SQL Connection Pool Statistics",
+			description = "List the connection pools kept by POST /SQL, one per JDBC URL and user, " +
+					"with active, idle, total and waiting connections and the number of borrows."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Pool statistics",
+					content = @Content(mediaType = "application/json",
+							examples = @ExampleObject(value = "[{\"pool\":\"sql-1\",\"jdbc\":\"jdbc:mysql://localhost:3306/testdb\",\"user\":\"dbuser\"," +
+									"\"borrowed\":42,\"active\":0,\"idle\":2,\"total\":2,\"waiting\":0,\"lastUsed\":\"2025-01-01T12:00:00Z\"}]")))
+	})
+	@GetMapping(value = "SQL/pools")
+	public ResponseEntity<String> SQLPools() {
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8")
+				.body(sqlPools.stats().toString());
+	}
+
+	@Operation(
+			summary = "List Unique Datasets",
+			description = "List the named datasets used with `dataset=` on /RandomPerson and /RandomPersonStream, " +
+					"with the number of persons generated so far and the memory used to track them."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Dataset statistics",
+					content = @Content(mediaType = "application/json",
+							examples = @ExampleObject(value = "[{\"dataset\":\"loadtest1\",\"persons\":1000000,\"bytes\":2686976}]")))
+	})
+	@GetMapping(value = "datasets")
+	public ResponseEntity<String> datasets() {
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CACHE_CONTROL, "no-cache")
+				.header(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8")
+				.body(uniqueDatasets.stats().toString());
+	}
+
+	@Operation(
+			summary = "Delete Unique Dataset",
+			description = "Forget a named dataset, so that its personnummer and emails can be generated again."
+	)
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Dataset deleted"),
+			@ApiResponse(responseCode = "404", description = "No such dataset")
+	})
+	@DeleteMapping(value = "datasets/{name}")
+	public ResponseEntity<String> deleteDataset(@PathVariable String name) {
+		if (!uniqueDatasets.remove(name)) {
+			return ResponseEntity.status(404).body("no such dataset");
+		}
+		colorLogger.logInfo("Deleted dataset: " + name);
+		return ResponseEntity.ok("deleted");
+	}
+
+	/**
+	 * Write a result set as semicolon-separated CSV with a header row, one row at a time
+	 * @param mask Masks column values, or null to write them as they are
+	 * @return Number of data rows written
+	 */
+	static long OraSQL(ResultSet rs, Writer writer, ResultMask mask) throws SQLException, IOException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+
+		// Column headers
+		for (int i = 1; i <= columnCount; i++) {
+			if (i > 1) writer.write(';');
+			writer.write(rsmd.getColumnName(i));
+		}
+		writer.write('\n');
+
+		// Data rows
+		long rows = 0;
+		while (rs.next()) {
+			for (int j = 1; j <= columnCount; j++) {
+				if (j > 1) writer.write(';');
+				String value = rs.getString(j);
+				if (mask != null) value = mask.apply(j, value);
+				if (value != null) writer.write(value);
+			}
+			writer.write('\n');
+			rows++;
+		}
+		return rows;
+	}
+
+	private void closeQuietly(AutoCloseable... resources) {
+		for (AutoCloseable resource : resources) {
+			if (resource == null) continue;
+			try {
+				resource.close();
+			} catch (Exception e) {
+				colorLogger.logError("Error closing " + resource.getClass().getSimpleName() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Logs in colour. The coloured string is only built when the level is enabled; pass a
+	 * supplier to also skip building the message itself.
+	 */
+	public class ColorLogger {
+		private static final Logger LOGGER = LoggerFactory.getLogger("");
+
+		public void logDebug(String logging) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("\u001B[92m" + logging + "\u001B[0m");
+			}
+		}
+
+		public void logInfo(String logging) {
+			if (LOGGER.isInfoEnabled()) {
+				LOGGER.info("\u001B[93m" + logging + "\u001B[0m");
+			}
+		}
+
+		public void logInfo(Supplier<String> logging) {
+			if (LOGGER.isInfoEnabled()) {
+				LOGGER.info("\u001B[93m" + logging.get() + "\u001B[0m");
+			}
+		}
+
+		public void logError(String logging) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("\u001B[91m" + logging + "\u001B[0m");
+			}
 		}
 	}
 }
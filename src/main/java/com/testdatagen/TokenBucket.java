@@ -0,0 +1,50 @@
+package com.testdatagen;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a stream: tokens accrue at a fixed rate up to a capacity, and taking more tokens than are
+ * available waits until they have accrued. The bucket starts full, so the first batch goes out at
+ * once. Instances are mutable and meant to be used by one thread at a time.
+ */
+final class TokenBucket {
+
+	private final double tokensPerNano;
+	private final double capacity;
+	private double tokens;
+	private long refilledAt;
+
+	/**
+	 * @param ratePerSecond Tokens added per second
+	 * @param capacity Most tokens the bucket holds, and so the largest burst
+	 */
+	TokenBucket(double ratePerSecond, double capacity) {
+		this.tokensPerNano = ratePerSecond / 1e9;
+		this.capacity = capacity;
+		this.tokens = capacity;
+		this.refilledAt = System.nanoTime();
+	}
+
+	/**
+	 * Take count tokens, waiting until they are available
+	 * @throws IllegalArgumentException If count is more than the capacity
+	 */
+	void acquire(int count) throws InterruptedException {
+		if (count > capacity) {
+			throw new IllegalArgumentException("Cannot take " + count + " tokens from a bucket of " + capacity);
+		}
+		while (true) {
+			long now = System.nanoTime();
+			tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+			refilledAt = now;
+			if (tokens >= count) {
+				tokens -= count;
+				return;
+			}
+			LockSupport.parkNanos(this, (long) Math.ceil((count - tokens) / tokensPerNano));
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named datasets whose personnummer and emails stay unique across requests.
+ * <p>
+ * Each dataset keeps one {@link ConcurrentBitSet} over all personnummer slots; pages are only
+ * allocated for the birth years actually generated. Datasets live until they are deleted or the
+ * application restarts.
+ */
+@Component
+public class UniqueDatasets {
+
+	private final Map<String, ConcurrentBitSet> datasets = new ConcurrentHashMap<>();
+	private final int maxDatasets;
+
+	public UniqueDatasets(@Value("${testdatagen.unique.max-datasets:20}") int maxDatasets) {
+		this.maxDatasets = maxDatasets;
+	}
+
+	/**
+	 * Personnummer slots already used by a dataset, creating the dataset if needed
+	 * @return The slots, or null if the dataset does not exist and the maximum number of datasets is reached
+	 */
+	synchronized ConcurrentBitSet claimed(String name) {
+		ConcurrentBitSet claimed = datasets.get(name);
+		if (claimed == null && datasets.size() < maxDatasets) {
+			claimed = new ConcurrentBitSet(PersonnummerGenerator.SLOT_COUNT);
+			datasets.put(name, claimed);
+		}
+		return claimed;
+	}
+
+	/**
+	 * Forget a dataset, so its personnummer can be generated again
+	 * @return false if there was no such dataset
+	 */
+	public boolean remove(String name) {
+		return datasets.remove(name) != null;
+	}
+
+	/**
+	 * Per-dataset statistics as a JSON array
+	 */
+	public JSONArray stats() {
+		JSONArray result = new JSONArray();
+		datasets.forEach((name, claimed) -> {
+			JSONObject stats = new JSONObject();
+			stats.put("dataset", name);
+			stats.put("persons", claimed.cardinality());
+			stats.put("bytes", claimed.allocatedBytes());
+			result.put(stats);
+		});
+		return result;
+	}
+}
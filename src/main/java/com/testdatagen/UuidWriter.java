@@ -0,0 +1,179 @@
+package com.testdatagen;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Writes UUIDs and ULIDs as ASCII straight into a byte array, one per line.
+ * <p>
+ * Time-ordered ids ({@link Version#V7} and {@link Version#ULID}) take their leading 48 bits from
+ * the Unix time in milliseconds, followed by an 18-bit counter within the millisecond, so they sort
+ * in the order they were generated and keep B-tree inserts appending at the right edge of the
+ * index. The time and counter form one sequence number, {@code millis << 18 | counter}, drawn from
+ * a process-wide clock. A request reserves the block of sequence numbers for all of its rows with
+ * one compare-and-set in {@link #reserve(int)}, so its ids are strictly increasing in output order
+ * and greater than those of every earlier request, while the workers that format the block share
+ * no state at all. When more than 2^18 ids per millisecond are reserved, the clock runs ahead of
+ * the wall clock for a while instead of repeating, as RFC 9562 allows. The remaining 56 (UUIDv7)
+ * or 62 (ULID) bits are random.
+ */
+final class UuidWriter {
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Bits of the counter within a millisecond
+	 */
+	static final int COUNTER_BITS = 18;
+
+	/**
+	 * Last sequence number handed out, plus one
+	 */
+	private static final AtomicLong CLOCK = new AtomicLong();
+
+	/**
+	 * Kinds of id, as chosen by the version parameter
+	 */
+	enum Version {
+		V4(36), V7(36), ULID(26);
+
+		/**
+		 * Characters per id, without the line break
+		 */
+		final int length;
+
+		Version(int length) {
+			this.length = length;
+		}
+
+		/**
+		 * @return The version named 4, 7 or ulid, or null
+		 */
+		static Version parse(String name) {
+			return switch (name.toLowerCase(Locale.ROOT)) {
+				case "4" -> V4;
+				case "7" -> V7;
+				case "ulid" -> ULID;
+				default -> null;
+			};
+		}
+
+		boolean timeOrdered() {
+			return this != V4;
+		}
+	}
+
+	private UuidWriter() {
+	}
+
+	/**
+	 * Reserve count consecutive sequence numbers, none of them earlier than the current millisecond
+	 * @return The first of them
+	 */
+	static long reserve(int count) {
+		long now = System.currentTimeMillis() << COUNTER_BITS;
+		while (true) {
+			long next = CLOCK.get();
+			long first = Math.max(next, now);
+			if (CLOCK.compareAndSet(next, first + count)) {
+				return first;
+			}
+		}
+	}
+
+	/**
+	 * Write count ids, each followed by '\n'
+	 * @param firstSequence Sequence number of the first id, from {@link #reserve(int)}; ignored for {@link Version#V4}
+	 * @param seeded Generator to {@link SeededRandom#seek(long) seek} to each row, or null
+	 * @param firstRow Row number of the first id, for seeking
+	 * @return A byte array of exactly count * (length + 1) bytes
+	 */
+	static byte[] write(Version version, int count, RandomGenerator random, SeededRandom seeded, long firstRow, long firstSequence) {
+		byte[] out = new byte[count * (version.length + 1)];
+		int at = 0;
+		for (int i = 0; i < count; i++) {
+			if (seeded != null) {
+				seeded.seek(firstRow + i);
+			}
+			switch (version) {
+				case V4 -> writeV4(out, at, random);
+				case V7 -> writeV7(out, at, firstSequence + i, random);
+				case ULID -> writeUlid(out, at, firstSequence + i, random);
+			}
+			at += version.length;
+			out[at++] = '\n';
+		}
+		return out;
+	}
+
+	/**
+	 * Random (version 4) UUID, drawing the same random values as {@link RandomFields#appendUuid}
+	 */
+	static void writeV4(byte[] out, int at, RandomGenerator random) {
+		long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		writeUuid(out, at, msb, lsb);
+	}
+
+	/**
+	 * Time-ordered (version 7) UUID: 48-bit milliseconds, version, the top 12 counter bits in rand_a,
+	 * variant, the low 6 counter bits and 56 random bits in rand_b
+	 */
+	static void writeV7(byte[] out, int at, long sequence, RandomGenerator random) {
+		long millis = sequence >>> COUNTER_BITS;
+		long counter = sequence & ((1L << COUNTER_BITS) - 1);
+		long msb = millis << 16 | 0x7000L | counter >>> 6;
+		long lsb = 0x8000000000000000L | (counter & 0x3F) << 56 | random.nextLong() >>> 8;
+		writeUuid(out, at, msb, lsb);
+	}
+
+	/**
+	 * ULID: 48-bit milliseconds, the 18 counter bits and 62 random bits, as 26 Crockford base32 digits
+	 */
+	static void writeUlid(byte[] out, int at, long sequence, RandomGenerator random) {
+		long millis = sequence >>> COUNTER_BITS;
+		long counter = sequence & ((1L << COUNTER_BITS) - 1);
+		long hi = millis << 16 | counter >>> 2;
+		long lo = (counter & 0x3) << 62 | random.nextLong() >>> 2;
+		// 128 bits in 26 digits: 3 bits, then 25 digits of 5 bits
+		for (int shift = 125; shift >= 0; shift -= 5) {
+			int digit;
+			if (shift >= 64) {
+				digit = (int) (hi >>> (shift - 64));
+			} else if (shift > 59) {
+				digit = (int) (lo >>> shift | hi << (64 - shift));
+			} else {
+				digit = (int) (lo >>> shift);
+			}
+			out[at++] = CROCKFORD[digit & 0x1F];
+		}
+	}
+
+	/**
+	 * The standard 8-4-4-4-12 format
+	 */
+	private static void writeUuid(byte[] out, int at, long msb, long lsb) {
+		writeHex(out, at, msb >>> 32, 8);
+		out[at + 8] = '-';
+		writeHex(out, at + 9, msb >>> 16, 4);
+		out[at + 13] = '-';
+		writeHex(out, at + 14, msb, 4);
+		out[at + 18] = '-';
+		writeHex(out, at + 19, lsb >>> 48, 4);
+		out[at + 23] = '-';
+		writeHex(out, at + 24, lsb, 12);
+	}
+
+	/**
+	 * Write the low digits of value as lowercase hex, most significant first
+	 */
+	private static void writeHex(byte[] out, int at, long value, int digits) {
+		for (int i = digits - 1; i >= 0; i--) {
+			out[at + i] = HEX[(int) value & 0xF];
+			value >>>= 4;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ConcurrentBitSet} against {@link BitSet}, and unique personnummer drawn from it
+ */
+class ConcurrentBitSetTest {
+
+	private static final long PAGE = 1 << 19;
+
+	@Test
+	void setsAcrossWordAndPageBoundaries() {
+		ConcurrentBitSet bits = new ConcurrentBitSet(3 * PAGE);
+		long[] indexes = {0, 63, 64, 127, 128, PAGE - 1, PAGE, PAGE + 63, PAGE + 64, 2 * PAGE - 1, 2 * PAGE, 3 * PAGE - 1};
+		for (long index : indexes) {
+			assertTrue(bits.set(index), "first set of " + index);
+			assertFalse(bits.set(index), "second set of " + index);
+		}
+		assertEquals(indexes.length, bits.cardinality());
+		assertEquals(indexes.length, bits.count(0, 3 * PAGE));
+		assertEquals(2, bits.count(63, 65));
+		assertEquals(1, bits.count(64, 127));
+		assertEquals(2, bits.count(PAGE - 1, PAGE + 1));
+		assertEquals(0, bits.count(PAGE + 65, 2 * PAGE - 1));
+		// Pages are allocated on first use only
+		assertEquals(3 * PAGE / 8, bits.allocatedBytes());
+		ConcurrentBitSet sparse = new ConcurrentBitSet(3 * PAGE);
+		sparse.set(PAGE + 5);
+		assertEquals(PAGE / 8, sparse.allocatedBytes());
+	}
+
+	@Test
+	void countsPartialWordsLikeBitSet() {
+		long size = 2 * PAGE + 200;
+		ConcurrentBitSet bits = new ConcurrentBitSet(size);
+		BitSet expected = new BitSet();
+		SplittableRandom random = new SplittableRandom(5);
+		for (int i = 0; i < 5000; i++) {
+			// Cluster around the page boundaries so partial words at both ends are common
+			long index = switch (i % 3) {
+				case 0 -> random.nextLong(300);
+				case 1 -> PAGE - 150 + random.nextLong(300);
+				default -> random.nextLong(size);
+			};
+			bits.set(index);
+			expected.set((int) index);
+		}
+		for (int i = 0; i < 5000; i++) {
+			long from = i % 2 == 0 ? random.nextLong(size) : PAGE - 130 + random.nextLong(260);
+			long to = Math.min(size, from + random.nextLong(i % 4 == 0 ? 3 * PAGE : 300));
+			assertEquals(expected.get((int) from, (int) to).cardinality(), bits.count(from, to), "count(" + from + ", " + to + ")");
+		}
+		assertEquals(0, bits.count(10, 10));
+		assertEquals(expected.cardinality(), bits.cardinality());
+	}
+
+	@Test
+	void setNextClearTakesFirstClearBitAtOrAfterStart() {
+		ConcurrentBitSet bits = new ConcurrentBitSet(3 * PAGE);
+		for (long index = 100; index < 300; index++) {
+			bits.set(index);
+		}
+		assertEquals(300, bits.setNextClear(0, 1000, 100));
+		assertEquals(301, bits.setNextClear(0, 1000, 150));
+		assertEquals(99, bits.setNextClear(0, 1000, 99));
+		// Crosses into a page that was never allocated
+		for (long index = PAGE - 70; index < PAGE; index++) {
+			bits.set(index);
+		}
+		assertEquals(PAGE, bits.setNextClear(0, 3 * PAGE, PAGE - 70));
+		assertEquals(PAGE + 1, bits.setNextClear(0, 3 * PAGE, PAGE - 70));
+	}
+
+	@Test
+	void setNextClearWrapsAroundToFrom() {
+		ConcurrentBitSet bits = new ConcurrentBitSet(1000);
+		long from = 10;
+		long to = 200;
+		// Everything from start to the end of the range is taken
+		for (long index = 150; index < to; index++) {
+			bits.set(index);
+		}
+		bits.set(10);
+		bits.set(11);
+		assertEquals(12, bits.setNextClear(from, to, 150));
+		// Fill the rest: 190 bits in the range, 53 of them taken so far
+		for (long i = 0; i < to - from - 53; i++) {
+			long index = bits.setNextClear(from, to, 150);
+			assertTrue(index >= from && index < 150, "wrapped to " + index);
+		}
+		assertEquals(to - from, bits.count(from, to));
+		assertEquals(-1, bits.setNextClear(from, to, 150));
+		assertEquals(-1, bits.setNextClear(from, to, from));
+		// Bits outside [from, to) were never touched
+		assertEquals(0, bits.count(0, from) + bits.count(to, 1000));
+	}
+
+	@Test
+	void setNextClearNeverTakesBitsAtOrAfterTo() {
+		ConcurrentBitSet bits = new ConcurrentBitSet(1000);
+		for (long index = 64; index < 128; index++) {
+			bits.set(index);
+		}
+		assertEquals(-1, bits.setNextClear(64, 128, 100));
+		assertEquals(0, bits.count(128, 1000));
+	}
+
+	@Test
+	void nextUniqueExhaustsTheSlotsOfARange() throws Exception {
+		PersonnummerGenerator range = new PersonnummerGenerator(2001, 2001);
+		long slots = range.slotCount();
+		assertEquals(365L * PersonnummerGenerator.SERIALS, slots);
+		ConcurrentBitSet claimed = new ConcurrentBitSet(PersonnummerGenerator.SLOT_COUNT);
+		BitSet seen = new BitSet();
+
+		int workers = 4;
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<long[]>> results = new ArrayList<>();
+			for (int worker = 0; worker < workers; worker++) {
+				long share = slots / workers + (worker < slots % workers ? 1 : 0);
+				results.add(pool.submit(() -> {
+					PersonnummerGenerator generator = new PersonnummerGenerator(2001, 2001);
+					long[] taken = new long[(int) share];
+					for (int i = 0; i < share; i++) {
+						generator.nextUnique(ThreadLocalRandom.current(), claimed);
+						assertTrue(generator.longFormat().startsWith("2001"));
+						taken[i] = generator.slot();
+					}
+					return taken;
+				}));
+			}
+			for (Future<long[]> result : results) {
+				for (long slot : result.get()) {
+					long offset = slot - range.firstSlot();
+					assertTrue(offset >= 0 && offset < slots, "slot " + slot + " outside the range");
+					assertFalse(seen.get((int) offset), "slot " + slot + " handed out twice");
+					seen.set((int) offset);
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(slots, seen.cardinality());
+		assertEquals(slots, claimed.cardinality());
+		assertEquals(slots, claimed.count(range.firstSlot(), range.firstSlot() + slots));
+		assertThrows(IllegalStateException.class, () -> range.nextUnique(new SplittableRandom(1), claimed));
+	}
+}
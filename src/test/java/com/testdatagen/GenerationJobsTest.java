@@ -0,0 +1,85 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Eviction and deletion of {@link GenerationJobs} while results are being downloaded
+ */
+class GenerationJobsTest {
+
+	private GenerationJobs jobs;
+
+	@AfterEach
+	void shutdown() {
+		jobs.shutdown();
+	}
+
+	private GenerationJobs.Job finished(String cacheKey) throws InterruptedException {
+		GenerationJobs.Job job = jobs.submit(cacheKey, OutputFormat.CSV, 1,
+				(out, running) -> out.write("row\n".getBytes(StandardCharsets.US_ASCII)));
+		assertNotNull(job);
+		while (job.status() != GenerationJobs.Status.DONE) {
+			assertFalse(job.status() == GenerationJobs.Status.FAILED);
+			Thread.sleep(5);
+		}
+		return job;
+	}
+
+	@Test
+	void leasedJobIsNotEvicted() throws Exception {
+		jobs = new GenerationJobs("", 1, 1);
+		GenerationJobs.Job job = finished(null);
+		assertSame(job, jobs.lease(job.id()));
+
+		// The only finished job is being downloaded, so there is no room
+		assertNull(jobs.submit(null, OutputFormat.CSV, 1, (out, running) -> {
+		}));
+		assertTrue(Files.exists(job.file()));
+
+		jobs.release(job);
+		GenerationJobs.Job next = finished(null);
+		assertNull(jobs.get(job.id()));
+		assertFalse(Files.exists(job.file()));
+		assertTrue(Files.exists(next.file()));
+	}
+
+	@Test
+	void deletedJobKeepsItsFileUntilTheLastDownloadEnds() throws Exception {
+		jobs = new GenerationJobs("", 1, 10);
+		GenerationJobs.Job job = finished("key");
+		jobs.lease(job.id());
+		jobs.lease(job.id());
+
+		assertTrue(jobs.remove(job.id()));
+		assertNull(jobs.lease(job.id()));
+		assertTrue(Files.exists(job.file()));
+		jobs.release(job);
+		assertTrue(Files.exists(job.file()));
+		jobs.release(job);
+		assertFalse(Files.exists(job.file()));
+
+		// The cache no longer hands out the deleted job
+		assertFalse(finished("key").id().equals(job.id()));
+	}
+
+	@Test
+	void unleasedJobIsDeletedRightAway() throws Exception {
+		jobs = new GenerationJobs("", 1, 10);
+		GenerationJobs.Job job = finished(null);
+		jobs.release(jobs.lease(job.id()));
+		assertTrue(jobs.remove(job.id()));
+		assertFalse(Files.exists(job.file()));
+		assertEquals(0, jobs.stats().length());
+	}
+}
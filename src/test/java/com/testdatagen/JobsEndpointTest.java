@@ -0,0 +1,45 @@
+package com.testdatagen;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Downloads of /jobs results, with room for one job only
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "testdatagen.jobs.max-jobs=1")
+class JobsEndpointTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	private String finishedJob() throws InterruptedException {
+		ResponseEntity<String> started = rest.postForEntity("/jobs?antal=100&from=1950&to=2000", null, String.class);
+		// 429 if no finished job could be evicted
+		assertTrue(started.getStatusCode().is2xxSuccessful(), started.getBody());
+		String id = new JSONObject(started.getBody()).getString("id");
+		while (!new JSONObject(rest.getForObject("/jobs/" + id, String.class)).getString("status").equals("done")) {
+			Thread.sleep(10);
+		}
+		return id;
+	}
+
+	@Test
+	void finishedDownloadReleasesTheJobForEviction() throws InterruptedException {
+		String first = finishedJob();
+		ResponseEntity<String> result = rest.getForEntity("/jobs/" + first + "/result", String.class);
+		assertEquals(200, result.getStatusCode().value());
+		assertEquals(100, result.getBody().split("\n").length);
+
+		// The download has ended, so the job can make room for the next one
+		String second = finishedJob();
+		assertEquals(404, rest.getForEntity("/jobs/" + first + "/result", String.class).getStatusCode().value());
+		assertEquals(200, rest.getForEntity("/jobs/" + second + "/result", String.class).getStatusCode().value());
+	}
+}
@@ -0,0 +1,214 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Format negotiation, and encoding rows in every format and reading them back
+ */
+class OutputFormatTest {
+
+	private static final String[][] ROWS = {
+			{"500101-1234", "19500101-1234", "Åsa", "Öberg", "Storgatan 1", "Malmö", "211 20",
+					"040-123456", "070-1234567", "Säljare", "Chef", "asa.oberg@example.com", "Malmö"},
+			{"010203+5678", "19010203-5678", "Erik", "Svensson", "Kungsvägen 22", "Kiruna", "981 31",
+					"0980-12345", "073-7654321", "Lärare", "Rektor", "erik@example.se", "Kiruna"},
+			{"121212-1212", "20121212-1212", "Li", "Ng", "Gränd 3", "Lund", "222 22",
+					"046-11111", "076-2222222", "Kock", "Kock", "li.ng@example.com", "Lund"}
+	};
+
+	@ParameterizedTest(name = "Accept: {0} -> {1}")
+	@CsvSource(delimiter = '|', nullValues = "null", value = {
+			"null | CSV",
+			"'' | CSV",
+			"text/csv | CSV",
+			"application/json | JSON",
+			"application/x-ndjson | JSONL",
+			"application/gzip | CSV_GZIP",
+			"application/vnd.testdatagen.columnar | COLUMNAR",
+			"*/* | CSV",
+			"text/* | CSV",
+			"text/html | CSV",
+			"not a media type | CSV",
+			// Clients like axios that accept anything keep getting CSV
+			"'application/json, */*' | CSV",
+			"'application/json, text/plain, */*' | CSV",
+			"'application/json, */*;q=0.8' | JSON",
+			"'text/csv;q=1, application/json;q=0.1' | CSV",
+			"'text/csv;q=0.1, application/json' | JSON",
+			"'application/json;q=0.5, application/x-ndjson' | JSONL",
+			"'application/json, application/x-ndjson' | JSON",
+			"'application/json;q=0, */*' | CSV",
+			"'text/csv;q=0, application/json;q=0.2' | JSON",
+			"'application/*, text/html' | CSV"
+	})
+	void negotiatesAcceptHeader(String accept, OutputFormat expected) {
+		assertEquals(expected, OutputFormat.negotiate(null, accept));
+	}
+
+	@Test
+	void formatParameterWinsOverAcceptHeader() {
+		assertEquals(OutputFormat.CSV_GZIP, OutputFormat.negotiate("CSV.GZ", "application/json"));
+		assertEquals(OutputFormat.COLUMNAR, OutputFormat.negotiate("columnar", null));
+		assertNull(OutputFormat.negotiate("xml", "application/json"));
+	}
+
+	@Test
+	void csvRoundTrip() {
+		assertEquals(rows(), readCsv(encode(OutputFormat.CSV)));
+	}
+
+	@Test
+	void gzipMembersRoundTrip() throws IOException {
+		byte[] compressed = encode(OutputFormat.CSV_GZIP);
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			assertEquals(rows(), readCsv(in.readAllBytes()));
+		}
+	}
+
+	@Test
+	void jsonlRoundTrip() {
+		List<List<String>> read = new ArrayList<>();
+		for (String line : new String(encode(OutputFormat.JSONL), StandardCharsets.UTF_8).split("\n")) {
+			read.add(values(new JSONObject(line)));
+		}
+		assertEquals(rows(), read);
+	}
+
+	@Test
+	void jsonRoundTrip() {
+		JSONArray array = new JSONArray(new String(encode(OutputFormat.JSON), StandardCharsets.UTF_8));
+		List<List<String>> read = new ArrayList<>();
+		for (int i = 0; i < array.length(); i++) {
+			read.add(values(array.getJSONObject(i)));
+		}
+		assertEquals(rows(), read);
+	}
+
+	@Test
+	void columnarRoundTrip() {
+		VarintReader in = new VarintReader(encode(OutputFormat.COLUMNAR));
+		assertArrayEquals(new byte[]{'T', 'D', 'G', 'C', 1}, in.bytes(5));
+		int columnCount = (int) in.varint();
+		String[] names = new String[columnCount];
+		for (int column = 0; column < columnCount; column++) {
+			names[column] = in.string();
+		}
+		assertArrayEquals(PersonRecord.FIELDS, names);
+
+		List<List<String>> read = new ArrayList<>();
+		while (in.remaining()) {
+			int rowCount = (int) in.varint();
+			String[][] block = new String[rowCount][columnCount];
+			for (int column = 0; column < columnCount; column++) {
+				int end = (int) in.varint() + in.position;
+				for (int row = 0; row < rowCount; row++) {
+					block[row][column] = in.string();
+				}
+				assertEquals(end, in.position);
+			}
+			for (String[] row : block) {
+				read.add(List.of(row));
+			}
+		}
+		assertEquals(rows(), read);
+	}
+
+	/**
+	 * The rows in two chunks of two and one rows, as the streaming endpoints write them
+	 */
+	private static byte[] encode(OutputFormat format) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.writeBytes(format.prologue());
+		PersonRecord record = new PersonRecord();
+		for (int[] chunk : new int[][]{{0, 2}, {2, 3}}) {
+			if (chunk[0] > 0) {
+				out.writeBytes(format.separator());
+			}
+			OutputFormat.ChunkEncoder encoder = format.newEncoder(chunk[1] - chunk[0]);
+			for (int row = chunk[0]; row < chunk[1]; row++) {
+				record.clear();
+				for (String value : ROWS[row]) {
+					record.chars().append(value);
+					record.endField();
+				}
+				encoder.add(record);
+			}
+			out.writeBytes(encoder.finish());
+		}
+		out.writeBytes(format.epilogue());
+		return out.toByteArray();
+	}
+
+	private static List<List<String>> rows() {
+		return Arrays.stream(ROWS).map(List::of).toList();
+	}
+
+	private static List<List<String>> readCsv(byte[] csv) {
+		List<List<String>> read = new ArrayList<>();
+		for (String line : new String(csv, StandardCharsets.UTF_8).split("\n")) {
+			read.add(List.of(line.split(";", -1)));
+		}
+		return read;
+	}
+
+	private static List<String> values(JSONObject object) {
+		assertEquals(PersonRecord.FIELDS.length, object.length());
+		List<String> values = new ArrayList<>();
+		for (String field : PersonRecord.FIELDS) {
+			values.add(object.getString(field));
+		}
+		return values;
+	}
+
+	private static final class VarintReader {
+		private final byte[] bytes;
+		private int position;
+
+		VarintReader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		boolean remaining() {
+			return position < bytes.length;
+		}
+
+		byte[] bytes(int length) {
+			byte[] result = Arrays.copyOfRange(bytes, position, position + length);
+			position += length;
+			return result;
+		}
+
+		long varint() {
+			long value = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = bytes[position++];
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		}
+
+		String string() {
+			return new String(bytes((int) varint()), StandardCharsets.UTF_8);
+		}
+	}
+}
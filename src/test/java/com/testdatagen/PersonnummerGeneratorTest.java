@@ -0,0 +1,119 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dates, check digits, delimiters and year ranges of generated personnummer
+ */
+class PersonnummerGeneratorTest {
+
+	private static final int CURRENT_YEAR = LocalDate.now().getYear();
+
+	/**
+	 * A generator whose range starts on the given date's year, set to that date and serial
+	 */
+	private static PersonnummerGenerator at(LocalDate date, int serial) {
+		PersonnummerGenerator generator = new PersonnummerGenerator(date.getYear(), date.getYear());
+		generator.set((int) ChronoUnit.DAYS.between(LocalDate.of(date.getYear(), 1, 1), date), serial);
+		return generator;
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+			"1981-12-28, 987, 811228-9874, 198112289874",
+			"1967-09-19, 953, 670919-9530, 196709199530",
+			"1946-08-06, 227, 460806-2271, 194608062271",
+			"2019-02-28, 1, 190228-0013, 201902280013",
+			"2004-02-29, 999, 040229-9994, 200402299994"
+	})
+	void writesKnownValidNumbers(LocalDate date, int serial, String shortFormat, String longFormat) {
+		PersonnummerGenerator generator = at(date, serial);
+		assertEquals(shortFormat, generator.shortFormat());
+		assertEquals(longFormat, generator.longFormat());
+		assertEquals(date.getYear(), generator.birthYear());
+	}
+
+	@Test
+	void convertsEveryDayToItsCivilDate() {
+		PersonnummerGenerator generator = new PersonnummerGenerator(1800, CURRENT_YEAR);
+		LocalDate date = LocalDate.of(1800, 1, 1);
+		DateTimeFormatter yyyymmdd = DateTimeFormatter.BASIC_ISO_DATE;
+		for (int day = 0; day < generator.dayCount(); day++, date = date.plusDays(1)) {
+			generator.set(day, 1);
+			assertEquals(date.format(yyyymmdd), generator.longFormat().substring(0, 8));
+		}
+		assertEquals(LocalDate.now(), date.minusDays(1));
+	}
+
+	@Test
+	void switchesToPlusInTheYearOfTurning100() {
+		assertEquals('+', at(LocalDate.of(1912, 12, 12), 121).shortFormat().charAt(6));
+		assertEquals("121212+1212", at(LocalDate.of(1912, 12, 12), 121).shortFormat());
+		assertEquals('+', at(LocalDate.of(CURRENT_YEAR - 100, 12, 31), 1).shortFormat().charAt(6));
+		assertEquals('-', at(LocalDate.of(CURRENT_YEAR - 99, 1, 1), 1).shortFormat().charAt(6));
+	}
+
+	@Test
+	void coversBothEndsOfTheYearRange() {
+		PersonnummerGenerator generator = new PersonnummerGenerator(2000, 2001);
+		assertEquals(366 + 365, generator.dayCount());
+		generator.set(0, 1);
+		assertTrue(generator.longFormat().startsWith("20000101001"));
+		generator.set(generator.dayCount() - 1, 999);
+		assertTrue(generator.longFormat().startsWith("20011231999"));
+
+		int lowest = Integer.MAX_VALUE;
+		int highest = Integer.MIN_VALUE;
+		SplittableRandom random = new SplittableRandom(1);
+		for (int i = 0; i < 20_000; i++) {
+			generator.next(random);
+			lowest = Math.min(lowest, generator.birthYear());
+			highest = Math.max(highest, generator.birthYear());
+		}
+		assertEquals(2000, lowest);
+		assertEquals(2001, highest);
+	}
+
+	@Test
+	void neverGeneratesFutureDates() {
+		PersonnummerGenerator generator = new PersonnummerGenerator(CURRENT_YEAR - 1, CURRENT_YEAR + 5);
+		generator.set(generator.dayCount() - 1, 1);
+		assertEquals(LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE), generator.longFormat().substring(0, 8));
+		assertThrows(IllegalArgumentException.class, () -> new PersonnummerGenerator(CURRENT_YEAR + 1, CURRENT_YEAR + 2));
+	}
+
+	@Test
+	void everyGeneratedNumberPassesTheValidator() {
+		PersonnummerGenerator generator = new PersonnummerGenerator(CURRENT_YEAR - 120, CURRENT_YEAR);
+		SplittableRandom random = new SplittableRandom(7);
+		StringBuilder input = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		int count = 50_000;
+		for (int line = 1; line <= count; line++) {
+			generator.next(random);
+			String number = line % 2 == 0 ? generator.shortFormat() : generator.longFormat();
+			input.append(number).append('\n');
+			expected.append(line).append(';').append(number).append(';')
+					.append(generator.longFormat()).append(';').append(generator.shortFormat()).append(";\n");
+		}
+
+		byte[] bytes = input.toString().getBytes(StandardCharsets.US_ASCII);
+		ByteSink out = new ByteSink(bytes.length * 4);
+		int invalid = new PersonnummerValidator(LocalDate.now(), false).validate(bytes, 0, bytes.length, 1, out);
+		assertEquals(0, invalid);
+		// The validator recovers the same long form, and so the same century, from the short form
+		assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.US_ASCII));
+	}
+}
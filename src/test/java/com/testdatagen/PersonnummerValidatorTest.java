@@ -0,0 +1,155 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Parsing, normalising and rejecting personnummer, and reading them in blocks
+ */
+class PersonnummerValidatorTest {
+
+	/**
+	 * Fixed reference date, so the century of short numbers and "future" do not move with the calendar
+	 */
+	private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+	private static String validate(String input, boolean invalidOnly) {
+		byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+		ByteSink out = new ByteSink(256);
+		new PersonnummerValidator(TODAY, invalidOnly).validate(bytes, 0, bytes.length, 1, out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@CsvSource(delimiter = '|', value = {
+			// Short with '-', short without delimiter, long without and with delimiter
+			"811228-9874 | 198112289874 | 811228-9874",
+			"8112289874 | 198112289874 | 811228-9874",
+			"198112289874 | 198112289874 | 811228-9874",
+			"19811228-9874 | 198112289874 | 811228-9874",
+			// '+' puts a short number in the century of persons 100 or older this year
+			"121212+1212 | 191212121212 | 121212+1212",
+			"121212-1212 | 201212121212 | 121212-1212",
+			"19121212-1212 | 191212121212 | 121212+1212",
+			"191212121212 | 191212121212 | 121212+1212",
+			// The year a person turns 100 already gets '+', the year before does not
+			"19240615-0017 | 192406150017 | 240615+0017",
+			"240615-0017 | 202406150017 | 240615-0017",
+			// Coordination number, day + 60
+			"811288-9871 | 198112889871 | 811288-9871",
+			// Leap days
+			"000229-0013 | 200002290013 | 000229-0013",
+			"20000229-0013 | 200002290013 | 000229-0013"
+	})
+	void normalisesValidNumbers(String input, String longForm, String shortForm) {
+		assertEquals("1;" + input + ";" + longForm + ";" + shortForm + ";\n", validate(input, false));
+		assertEquals("", validate(input, true));
+	}
+
+	@ParameterizedTest(name = "{0} -> {1}")
+	@CsvSource(delimiter = '|', value = {
+			"abc | format",
+			"811228 | format",
+			"81122898741234 | format",
+			"811228*9874 | format",
+			"81122a-9874 | format",
+			"811228-987a | format",
+			"8112289874X | format",
+			"1981122898741 | format",
+			"811328-0013 | date",
+			"810229-0015 | date",
+			"811232-0012 | date",
+			"811292-0015 | date",
+			"810000-0012 | date",
+			"19000229-0013 | date",
+			"240616-0016 | future",
+			"20240616-0016 | future",
+			"20990101-0019 | future",
+			"811228-9875 | checksum",
+			"198112289870 | checksum",
+			"121212+1213 | checksum"
+	})
+	void rejectsInvalidNumbers(String input, String error) {
+		assertEquals("1;" + input + ";;;" + error + "\n", validate(input, false));
+		assertEquals("1;" + input + ";;;" + error + "\n", validate(input, true));
+	}
+
+	@Test
+	void countsBlankLinesAndTrimsWhitespace() {
+		String output = validate("811228-9874\n\n  \t\r\n\t8112289874 \r\n811228-9875", false);
+		assertEquals("1;811228-9874;198112289874;811228-9874;\n" +
+				"4;8112289874;198112289874;811228-9874;\n" +
+				"5;811228-9875;;;checksum\n", output);
+		assertEquals("5;811228-9875;;;checksum\n", validate("811228-9874\n\n  \t\r\n\t8112289874 \r\n811228-9875", true));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"81;228-9874", "8\"1228-9874", "81122\"-987"})
+	void quotesEchoedInputWithSeparatorOrQuote(String input) {
+		String quoted = "\"" + input.replace("\"", "\"\"") + "\"";
+		assertEquals("1;" + quoted + ";;;format\n", validate(input, false));
+	}
+
+	@Test
+	void truncatesLongEchoedInput() {
+		String input = "x".repeat(PersonnummerValidator.MAX_INPUT_ECHO) + "tail that is not echoed";
+		assertEquals("1;" + "x".repeat(PersonnummerValidator.MAX_INPUT_ECHO) + ";;;format\n", validate(input, false));
+		String quoted = ";".repeat(PersonnummerValidator.MAX_INPUT_ECHO + 5);
+		assertEquals("1;\"" + ";".repeat(PersonnummerValidator.MAX_INPUT_ECHO) + "\";;;format\n", validate(quoted, false));
+	}
+
+	@Test
+	void sameResultsWhenInputIsSplitAcrossBlocks() throws IOException {
+		StringBuilder input = new StringBuilder();
+		String[] lines = {"811228-9874", "", "198112289874", "121212+1212", "811228-9875", "  8112289874  ", "abc",
+				"19121212-1212", "811288-9871", "240616-0016"};
+		for (int i = 0; i < 200; i++) {
+			input.append(lines[i % lines.length]).append(i % 7 == 0 ? "\r\n" : "\n");
+		}
+		input.append("811228-9874");
+		byte[] bytes = input.toString().getBytes(StandardCharsets.US_ASCII);
+		String whole = validate(input.toString(), false);
+
+		// Every block size from the longest line, with its line break, to longer than the input
+		for (int blockSize = 16; blockSize <= bytes.length + 1; blockSize += blockSize < 64 ? 1 : 97) {
+			assertEquals(whole, validateInBlocks(bytes, blockSize), "block size " + blockSize);
+		}
+	}
+
+	@Test
+	void cutsLinesLongerThanABlock() throws IOException {
+		String longLine = "1".repeat(100);
+		byte[] bytes = ("811228-9874\n" + longLine + "\n811228-9875\n").getBytes(StandardCharsets.US_ASCII);
+		// The long line is reported once, as its first block of bytes, and later line numbers stay right
+		assertEquals("1;811228-9874;198112289874;811228-9874;\n" +
+				"2;" + "1".repeat(32) + ";;;format\n" +
+				"3;811228-9875;;;checksum\n", validateInBlocks(bytes, 32));
+
+		LineBlockReader reader = new LineBlockReader(new ByteArrayInputStream(bytes), 32);
+		int blocks = 0;
+		while (reader.next() != null) {
+			blocks++;
+		}
+		assertEquals(3, blocks);
+		assertEquals(3, reader.lines());
+	}
+
+	private static String validateInBlocks(byte[] bytes, int blockSize) throws IOException {
+		LineBlockReader reader = new LineBlockReader(new ByteArrayInputStream(bytes), blockSize);
+		PersonnummerValidator validator = new PersonnummerValidator(TODAY, false);
+		ByteSink out = new ByteSink(bytes.length * 4);
+		for (LineBlockReader.Block block = reader.next(); block != null; block = reader.next()) {
+			validator.validate(block.bytes(), block.from(), block.to(), block.firstLine(), out);
+		}
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+}
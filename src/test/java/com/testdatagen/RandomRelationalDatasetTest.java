@@ -0,0 +1,136 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keys of the linked tables of /RandomRelationalDataset, in the zip of all tables and one table at a time
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class RandomRelationalDatasetTest {
+
+	/**
+	 * Three levels with a varying number of children, and seeded values besides the keys
+	 */
+	private static final String TABLES = "[" +
+			"{\"name\":\"person\",\"columns\":[{\"name\":\"id\",\"type\":\"row\"},{\"name\":\"pnr\",\"type\":\"field\",\"field\":\"Personnummer\"}]}," +
+			"{\"name\":\"account\",\"parent\":\"person\",\"perParent\":{\"min\":1,\"max\":3},\"columns\":[" +
+			"{\"name\":\"id\",\"type\":\"row\"},{\"name\":\"person_id\",\"type\":\"parent\"}," +
+			"{\"name\":\"iban\",\"type\":\"pattern\",\"pattern\":\"SE\\\\d{22}\"}]}," +
+			"{\"name\":\"transaction\",\"parent\":\"account\",\"perParent\":{\"min\":0,\"max\":5},\"columns\":[" +
+			"{\"name\":\"id\",\"type\":\"row\"},{\"name\":\"account_id\",\"type\":\"parent\"}," +
+			"{\"name\":\"amount\",\"type\":\"int\",\"min\":-5000,\"max\":5000}]}" +
+			"]";
+
+	// Enough root rows for the transaction table to span several chunks
+	private static final int ROOT_ROWS = 5000;
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Test
+	void everyParentKeyIsARowOfTheParentTable() throws IOException {
+		Map<String, byte[]> zip = unzip(generate(null));
+		assertEquals(List.of("person.csv", "account.csv", "transaction.csv"), List.copyOf(zip.keySet()));
+
+		List<List<String[]>> tables = new ArrayList<>();
+		for (byte[] csv : zip.values()) {
+			tables.add(parse(csv));
+		}
+		assertEquals(ROOT_ROWS, tables.get(0).size());
+		for (int table = 1; table < tables.size(); table++) {
+			Set<String> parentRows = new HashSet<>();
+			tables.get(table - 1).forEach(row -> parentRows.add(row[0]));
+			Set<String> usedParents = new HashSet<>();
+			for (String[] row : tables.get(table)) {
+				assertTrue(parentRows.contains(row[1]), "table " + table + " row " + row[0] + " has unknown parent " + row[1]);
+				usedParents.add(row[1]);
+			}
+			// min 0 leaves some accounts without transactions, min 1 gives every person an account
+			if (table == 1) {
+				assertEquals(parentRows, usedParents);
+			} else {
+				assertTrue(usedParents.size() < parentRows.size());
+			}
+		}
+	}
+
+	@Test
+	void oneTableMatchesItsEntryInTheZip() throws IOException {
+		Map<String, byte[]> zip = unzip(generate(null));
+		for (String table : List.of("person", "account", "transaction")) {
+			ResponseEntity<byte[]> response = generate(table);
+			assertEquals(200, response.getStatusCode().value());
+			assertArrayEquals(zip.get(table + ".csv"), response.getBody(), table);
+		}
+	}
+
+	@Test
+	void childTableAloneRequiresASeed() {
+		JSONObject body = new JSONObject().put("antal", 10).put("table", "account").put("tables", new JSONArray(TABLES));
+		ResponseEntity<String> response = rest.postForEntity("/RandomRelationalDataset", json(body), String.class);
+		assertEquals(400, response.getStatusCode().value());
+		assertEquals("seed is required with table, so the keys match the other tables", response.getBody());
+	}
+
+	private ResponseEntity<byte[]> generate(String table) {
+		JSONObject body = new JSONObject().put("antal", ROOT_ROWS).put("seed", 42).put("tables", new JSONArray(TABLES));
+		if (table != null) {
+			body.put("table", table);
+		}
+		return rest.postForEntity("/RandomRelationalDataset", json(body), byte[].class);
+	}
+
+	private static HttpEntity<String> json(JSONObject body) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		return new HttpEntity<>(body.toString(), headers);
+	}
+
+	private static Map<String, byte[]> unzip(ResponseEntity<byte[]> response) throws IOException {
+		assertEquals(200, response.getStatusCode().value());
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getBody()))) {
+			for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+				entries.put(entry.getName(), zip.readAllBytes());
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Rows of a CSV table without its header, split on the default separator
+	 */
+	private static List<String[]> parse(byte[] csv) {
+		String[] lines = new String(csv, StandardCharsets.UTF_8).split("\n");
+		List<String[]> rows = new ArrayList<>();
+		for (int i = 1; i < lines.length; i++) {
+			rows.add(lines[i].split(";"));
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,117 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Row and parent numbers of linked tables
+ */
+class RelationalPlanTest {
+
+	/**
+	 * person -> account (1-3 per person) -> transaction (0-5 per account), and card (0-2 per person)
+	 */
+	static final String SCHEMA = "[" +
+			"{\"name\":\"person\",\"columns\":[{\"name\":\"id\",\"type\":\"row\"}]}," +
+			"{\"name\":\"account\",\"parent\":\"person\",\"perParent\":{\"min\":1,\"max\":3},\"columns\":[" +
+			"{\"name\":\"id\",\"type\":\"row\"},{\"name\":\"person_id\",\"type\":\"parent\"}]}," +
+			"{\"name\":\"transaction\",\"parent\":\"account\",\"perParent\":{\"min\":0,\"max\":5},\"columns\":[" +
+			"{\"name\":\"id\",\"type\":\"row\"},{\"name\":\"account_id\",\"type\":\"parent\"}]}," +
+			"{\"name\":\"card\",\"parent\":\"person\",\"perParent\":{\"min\":0,\"max\":2},\"columns\":[" +
+			"{\"name\":\"id\",\"type\":\"row\"},{\"name\":\"person_id\",\"type\":\"parent\"}]}" +
+			"]";
+
+	private static RelationalPlan plan() {
+		return RelationalPlan.compile(new JSONArray(SCHEMA), FieldPlan::compile);
+	}
+
+	/**
+	 * (row, parent row) pairs of a table under root rows [firstRoot, endRoot)
+	 */
+	private static List<long[]> rows(RelationalPlan plan, int table, long fanOutSeed, long firstRoot, long endRoot) {
+		List<long[]> rows = new ArrayList<>();
+		long count = plan.cursor(table, fanOutSeed).forEach(firstRoot, endRoot, (row, parentRow) -> rows.add(new long[]{row, parentRow}));
+		assertEquals(rows.size(), count);
+		return rows;
+	}
+
+	@Test
+	void everyParentOfAChildIsARowOfItsParentTable() {
+		RelationalPlan plan = plan();
+		long seed = 42;
+		List<Set<Long>> rowsByTable = new ArrayList<>();
+		for (int table = 0; table < plan.size(); table++) {
+			Set<Long> rows = new HashSet<>();
+			long previous = -1;
+			for (long[] row : rows(plan, table, seed, 0, 500)) {
+				assertTrue(row[0] > previous, "rows of " + plan.table(table).name() + " must increase");
+				previous = row[0];
+				rows.add(row[0]);
+				int parent = plan.table(table).parent();
+				if (parent < 0) {
+					assertEquals(-1, row[1]);
+				} else {
+					assertTrue(rowsByTable.get(parent).contains(row[1]),
+							plan.table(table).name() + " row " + row[0] + " has unknown parent " + row[1]);
+				}
+			}
+			rowsByTable.add(rows);
+		}
+		assertEquals(500, rowsByTable.get(0).size());
+	}
+
+	@Test
+	void fanOutVariesBetweenMinAndMax() {
+		RelationalPlan plan = plan();
+		int transaction = plan.indexOf("transaction");
+		int[] childrenPerAccount = new int[6];
+		Set<Long> accounts = new HashSet<>();
+		rows(plan, plan.indexOf("account"), 7, 0, 1000).forEach(row -> accounts.add(row[0]));
+		Map<Long, Integer> children = new HashMap<>();
+		rows(plan, transaction, 7, 0, 1000).forEach(row -> children.merge(row[1], 1, Integer::sum));
+		for (long account : accounts) {
+			childrenPerAccount[children.getOrDefault(account, 0)]++;
+		}
+		// Every count from min to max occurs, so row numbers of the child table have gaps
+		for (int count = 0; count <= 5; count++) {
+			assertTrue(childrenPerAccount[count] > 0, "no account with " + count + " transactions");
+		}
+	}
+
+	@Test
+	void rowsDoNotDependOnHowRootRowsAreSplit() {
+		RelationalPlan plan = plan();
+		int transaction = plan.indexOf("transaction");
+		List<long[]> whole = rows(plan, transaction, 42, 0, 300);
+		List<long[]> split = new ArrayList<>(rows(plan, transaction, 42, 0, 1));
+		split.addAll(rows(plan, transaction, 42, 1, 117));
+		split.addAll(rows(plan, transaction, 42, 117, 300));
+		assertEquals(whole.size(), split.size());
+		for (int i = 0; i < whole.size(); i++) {
+			assertEquals(whole.get(i)[0], split.get(i)[0]);
+			assertEquals(whole.get(i)[1], split.get(i)[1]);
+		}
+	}
+
+	@Test
+	void rejectsInvalidSchemas() {
+		String root = "{\"name\":\"a\",\"columns\":[{\"name\":\"id\",\"type\":\"row\"}]}";
+		String child = "{\"name\":\"b\",\"parent\":\"%s\",\"perParent\":%s,\"columns\":[{\"name\":\"id\",\"type\":\"row\"}]}";
+		assertEquals("table 2: parent must name an earlier table", assertThrows(IllegalArgumentException.class,
+				() -> RelationalPlan.compile(new JSONArray("[" + root + "," + child.formatted("c", "1") + "]"), FieldPlan::compile)).getMessage());
+		assertTrue(assertThrows(IllegalArgumentException.class,
+				() -> RelationalPlan.compile(new JSONArray("[" + root + "," + child.formatted("a", "{\"min\":3,\"max\":2}") + "]"), FieldPlan::compile))
+				.getMessage().startsWith("table 2: perParent must be"));
+	}
+}
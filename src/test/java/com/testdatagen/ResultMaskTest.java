@@ -0,0 +1,143 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mappings of {@link ResultMask} over the columns of an in-memory H2 result
+ */
+class ResultMaskTest {
+
+	private static final byte[] KEY = "first masking key".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] OTHER_KEY = "second masking key".getBytes(StandardCharsets.UTF_8);
+
+	private static PersonDictionary dictionary;
+	private static PostalCodeIndex postalCodes;
+	private static Connection connection;
+
+	@BeforeAll
+	static void createResult() throws SQLException {
+		dictionary = new PersonDictionary();
+		postalCodes = new PostalCodeIndex();
+		connection = DriverManager.getConnection("jdbc:h2:mem:mask", "sa", "");
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE kund (id INT, pnr VARCHAR(13), long_pnr VARCHAR(13), email VARCHAR(64), anteckning VARCHAR(64))");
+		}
+	}
+
+	@AfterAll
+	static void closeConnection() throws SQLException {
+		connection.close();
+	}
+
+	private static ResultMask compile(Map<String, Object> spec, byte[] key) throws SQLException {
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery("SELECT id, pnr, long_pnr, email, anteckning FROM kund")) {
+			ResultSetMetaData metadata = rs.getMetaData();
+			return ResultMask.compile(spec, metadata, key, dictionary, postalCodes, 100);
+		}
+	}
+
+	private static List<String> apply(ResultMask mask, int column, List<String> values) {
+		List<String> masked = new ArrayList<>();
+		values.forEach(value -> masked.add(mask.apply(column, value)));
+		return masked;
+	}
+
+	private static boolean isValidPersonnummer(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+		ByteSink out = new ByteSink(64);
+		new PersonnummerValidator(LocalDate.now(), true).validate(bytes, 0, bytes.length, 1, out);
+		return out.toByteArray().length == 0;
+	}
+
+	private static final List<String> EMAILS = List.of("anna@example.se", "bo@example.se", "carl@example.com", "anna@example.se");
+
+	@Test
+	void sameKeyGivesSameMappingAcrossCompiles() throws SQLException {
+		Map<String, Object> spec = Map.of("EMAIL", "email", "anteckning", ResultMask.HASH);
+		ResultMask first = compile(spec, KEY);
+		ResultMask second = compile(spec, KEY);
+		List<String> masked = apply(first, 4, EMAILS);
+		// A repeated value maps to the same fake one and the second lookup is a cache hit
+		assertEquals(masked.get(0), masked.get(3));
+		assertNotEquals(masked.get(0), masked.get(1));
+		assertEquals(1, first.hits());
+		assertEquals(3, first.misses());
+
+		assertEquals(masked, apply(second, 4, EMAILS));
+		assertEquals(apply(first, 5, EMAILS), apply(second, 5, EMAILS));
+		assertTrue(apply(first, 5, EMAILS).stream().allMatch(hash -> hash.matches("[0-9a-f]{16}")));
+	}
+
+	@Test
+	void columnsWithoutRuleAndNullValuesAreLeftAsTheyAre() throws SQLException {
+		ResultMask mask = compile(Map.of("email", "email"), KEY);
+		assertEquals("anna@example.se", mask.apply(5, "anna@example.se"));
+		assertEquals("42", mask.apply(1, "42"));
+		assertNull(mask.apply(4, null));
+	}
+
+	@Test
+	void shortAndLongFormOfOneNumberMapToTheSamePerson() throws SQLException {
+		ResultMask mask = compile(Map.of("pnr", "Personnummer", "long_pnr", "longPersonnummer"), KEY);
+		String fake = mask.apply(2, "811228-9874");
+		assertTrue(isValidPersonnummer(fake), fake);
+		for (String form : List.of("8112289874", "198112289874", "19811228-9874", "811228+9874")) {
+			assertEquals(fake, mask.apply(2, form), form);
+		}
+		// The long form rule gives the long form of the same fake number
+		String fakeLong = mask.apply(3, "198112289874");
+		assertEquals(12, fakeLong.length());
+		assertEquals(fake.replaceAll("[-+]", ""), fakeLong.substring(2));
+		assertEquals(fakeLong, mask.apply(3, "811228-9874"));
+
+		assertNotEquals(fake, mask.apply(2, "811228-9875"));
+	}
+
+	@Test
+	void differentKeyGivesDifferentMapping() throws SQLException {
+		Map<String, Object> spec = Map.of("pnr", "Personnummer", "email", "email", "anteckning", ResultMask.HASH);
+		ResultMask mask = compile(spec, KEY);
+		ResultMask other = compile(spec, OTHER_KEY);
+		assertNotEquals(mask.apply(2, "811228-9874"), other.apply(2, "811228-9874"));
+		assertNotEquals(apply(mask, 4, EMAILS), apply(other, 4, EMAILS));
+		assertNotEquals(apply(mask, 5, EMAILS), apply(other, 5, EMAILS));
+	}
+
+	@Test
+	void rulesOfDifferentKindsHaveTheirOwnMapping() throws SQLException {
+		ResultMask mask = compile(Map.of("email", ResultMask.HASH, "anteckning", ResultMask.HASH), KEY);
+		// The same rule in two columns agrees
+		assertEquals(mask.apply(4, "x"), mask.apply(5, "x"));
+		ResultMask mixed = compile(Map.of("email", "email", "anteckning", "namn"), KEY);
+		assertNotEquals(mixed.apply(4, "x"), mixed.apply(5, "x"));
+	}
+
+	@Test
+	void unknownColumnOrRuleIsRejected() {
+		assertEquals("mask column telefon is not in the result", assertThrows(IllegalArgumentException.class,
+				() -> compile(Map.of("telefon", "telefon"), KEY)).getMessage());
+		assertEquals("mask rules must be hash or one of " + String.join(", ", PersonRecord.FIELDS),
+				assertThrows(IllegalArgumentException.class, () -> compile(Map.of("email", "ssn"), KEY)).getMessage());
+	}
+}
@@ -0,0 +1,144 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Seeded person rows depend on (seed, row number) only, not on how the rows are split into
+ * chunks, how many workers generate them, or in which order
+ */
+class SeededGenerationTest {
+
+	private static final int ROWS = 2_000;
+
+	private static PersonDictionary dictionary;
+	private static PostalCodeIndex postalCodes;
+
+	@BeforeAll
+	static void loadDictionaries() {
+		dictionary = new PersonDictionary();
+		postalCodes = new PostalCodeIndex();
+	}
+
+	private static PersonSpec spec(Long seed) {
+		return new PersonSpec(1940, 2005, postalCodes.select(null, null, false), seed, false, null);
+	}
+
+	/**
+	 * One chunk of CSV rows, as generatePersonBatch encodes it
+	 */
+	private static byte[] batch(PersonSpec spec, long firstRow, int count) {
+		PersonGenerator generator = new PersonGenerator(dictionary, postalCodes, spec);
+		PersonRecord person = new PersonRecord();
+		OutputFormat.ChunkEncoder encoder = OutputFormat.CSV.newEncoder(count);
+		for (int row = 0; row < count; row++) {
+			generator.next(firstRow + row, person);
+			encoder.add(person);
+		}
+		return encoder.finish();
+	}
+
+	/**
+	 * Rows [firstRow, firstRow + count) in chunks of chunkSize, generated by a pool of workers in shuffled order
+	 */
+	private static byte[] generate(PersonSpec spec, long firstRow, int count, int chunkSize, int workers) throws Exception {
+		List<Integer> starts = new ArrayList<>();
+		for (int start = 0; start < count; start += chunkSize) {
+			starts.add(start);
+		}
+		List<Integer> submitOrder = new ArrayList<>(starts);
+		Collections.shuffle(submitOrder, new Random(workers));
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			Future<?>[] chunks = new Future<?>[starts.size()];
+			for (int start : submitOrder) {
+				int size = Math.min(chunkSize, count - start);
+				chunks[start / chunkSize] = pool.submit(() -> batch(spec, firstRow + start, size));
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			for (Future<?> chunk : chunks) {
+				out.writeBytes((byte[]) chunk.get());
+			}
+			return out.toByteArray();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@ParameterizedTest(name = "chunks of {0} on {1} workers")
+	@CsvSource({"1, 1", "7, 3", "100, 8", "333, 2", "2000, 4"})
+	void sameSeedGivesSameBytesForAnyChunkingAndPoolSize(int chunkSize, int workers) throws Exception {
+		byte[] expected = batch(spec(42L), 0, ROWS);
+		assertArrayEquals(expected, generate(spec(42L), 0, ROWS, chunkSize, workers));
+	}
+
+	@Test
+	void shardsAtAnOffsetMatchTheSameRowsOfTheWhole() throws Exception {
+		byte[] whole = batch(spec(42L), 0, ROWS);
+		ByteArrayOutputStream shards = new ByteArrayOutputStream();
+		shards.writeBytes(generate(spec(42L), 0, 700, 64, 3));
+		shards.writeBytes(generate(spec(42L), 700, 1, 1, 1));
+		shards.writeBytes(generate(spec(42L), 701, ROWS - 701, 250, 5));
+		assertArrayEquals(whole, shards.toByteArray());
+
+		// A single row is the same no matter where its chunk starts
+		List<String> lines = lines(whole);
+		assertEquals(lines.get(1234), lines(batch(spec(42L), 1234, 1)).get(0));
+		assertEquals(lines.subList(1500, 1510), lines(batch(spec(42L), 1500, 10)));
+	}
+
+	@Test
+	void differentSeedsGiveDifferentRows() {
+		List<String> first = lines(batch(spec(42L), 0, ROWS));
+		List<String> second = lines(batch(spec(43L), 0, ROWS));
+		int same = 0;
+		for (int row = 0; row < ROWS; row++) {
+			if (first.get(row).equals(second.get(row))) {
+				same++;
+			}
+		}
+		assertEquals(0, same);
+		// Neighbouring rows of one seed differ too, so row N is not simply row N-1 shifted
+		assertNotEquals(first.get(0), first.get(1));
+		assertNotEquals(first.subList(1, ROWS), second.subList(0, ROWS - 1));
+	}
+
+	@ParameterizedTest(name = "{0}-{1} on {2}")
+	@CsvSource(delimiter = '|', value = {
+			// Neither cut at today nor with '+': the same persons on every day
+			"1940 | 2005 | 2024-06-15 | ''",
+			"1925 | 2023 | 2024-12-31 | ''",
+			// The year someone born in from turns 100, and later
+			"1924 | 2000 | 2024-06-15 | 2024",
+			"1900 | 1950 | 2030-01-01 | 2030",
+			// Birth dates stop at today
+			"1950 | 2024 | 2024-06-15 | 2024-06-15",
+			"1900 | 2030 | 2024-06-15 | 2024-06-15"
+	})
+	void jobCacheKeyHoldsOnlyThePartOfTodayTheRangeDependsOn(int fromYear, int toYear, String today, String expected) {
+		assertEquals(expected, TestdataGenApplication.generationDate(fromYear, toYear, LocalDate.parse(today)));
+	}
+
+	private static List<String> lines(byte[] csv) {
+		return Arrays.asList(new String(csv, StandardCharsets.UTF_8).split("\n"));
+	}
+}
@@ -0,0 +1,149 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batches, commits and rollbacks of {@link SqlBatchInsert} against an in-memory H2 database
+ */
+class SqlBatchInsertTest {
+
+	private static final String COLUMNS = "[{\"name\":\"id\",\"type\":\"row\"},{\"name\":\"namn\",\"type\":\"field\",\"field\":\"namn\"}]";
+
+	private Connection connection;
+	// Calls to executeBatch and commit, in order, as "batch" and "commit"
+	private final List<String> calls = new ArrayList<>();
+
+	@BeforeEach
+	void createTable() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:h2:mem:batch_insert", "sa", "");
+		try (Statement statement = connection.createStatement()) {
+			// Rows after 1500 violate the constraint
+			statement.execute("CREATE TABLE person (id INT CHECK (id <= 1500), namn VARCHAR(64))");
+		}
+	}
+
+	@AfterEach
+	void dropTable() throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("DROP TABLE person");
+		}
+		connection.close();
+	}
+
+	private long insert(long firstRow, long count, int batchSize, int commitInterval, LongAdder committed) throws SQLException {
+		FieldPlan plan = FieldPlan.compile(new JSONArray(COLUMNS));
+		PostalCodeIndex postalCodes = new PostalCodeIndex();
+		PersonSpec spec = new PersonSpec(1950, 2000, postalCodes.all(), 42L, false, null);
+		SqlBatchInsert.insert(recording(connection), SqlBatchInsert.insertStatement("person", plan.names()),
+				plan.rows(spec, new PersonDictionary(), postalCodes), plan.size(), firstRow, count,
+				batchSize, commitInterval, committed);
+		return committed.sum();
+	}
+
+	private long rowsInTable() throws SQLException {
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery("SELECT COUNT(*), COUNT(DISTINCT id) FROM person")) {
+			rs.next();
+			assertEquals(rs.getLong(1), rs.getLong(2));
+			return rs.getLong(1);
+		}
+	}
+
+	@Test
+	void sendsBatchesAndCommitsAtBatchBoundaries() throws SQLException {
+		LongAdder committed = new LongAdder();
+		assertEquals(1450, insert(0, 1450, 300, 500, committed));
+		// Commits wait for the end of the batch in which commitInterval rows are reached
+		assertEquals(List.of("batch", "batch", "commit", "batch", "batch", "commit", "batch", "commit"), calls);
+		assertEquals(1450, rowsInTable());
+		assertTrue(connection.getAutoCommit());
+	}
+
+	@Test
+	void commitsOnceForAnIntervalLargerThanTheRows() throws SQLException {
+		assertEquals(250, insert(0, 250, 100, 10_000, new LongAdder()));
+		assertEquals(List.of("batch", "batch", "batch", "commit"), calls);
+		assertEquals(250, rowsInTable());
+	}
+
+	@Test
+	void rollsBackUncommittedRowsWhenABatchFails() throws SQLException {
+		LongAdder committed = new LongAdder();
+		assertThrows(SQLException.class, () -> insert(0, 2000, 300, 500, committed));
+		// Rows 1-1200 were committed; the batch of rows 1201-1500 was sent but rolled back with the failing one
+		assertEquals(1200, committed.sum());
+		assertEquals(1200, rowsInTable());
+		assertTrue(connection.getAutoCommit());
+	}
+
+	@Test
+	void stopsAndRollsBackWhenInterrupted() throws SQLException {
+		LongAdder committed = new LongAdder();
+		Thread.currentThread().interrupt();
+		try {
+			SQLException e = assertThrows(SQLException.class, () -> insert(0, 1000, 100, 1000, committed));
+			assertEquals("insert cancelled", e.getMessage());
+		} finally {
+			Thread.interrupted();
+		}
+		assertEquals(0, committed.sum());
+		assertEquals(0, rowsInTable());
+	}
+
+	@Test
+	void rejectsNamesThatAreNotPlainIdentifiers() {
+		assertEquals("INSERT INTO app.person (id, namn) VALUES (?, ?)",
+				SqlBatchInsert.insertStatement("app.person", new String[]{"id", "namn"}));
+		assertThrows(IllegalArgumentException.class, () -> SqlBatchInsert.insertStatement("person; DROP TABLE x", new String[]{"id"}));
+		assertThrows(IllegalArgumentException.class, () -> SqlBatchInsert.insertStatement("person", new String[]{"p.id"}));
+	}
+
+	/**
+	 * Connection that records executeBatch and commit calls
+	 */
+	private Connection recording(Connection target) {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+			if (method.getName().equals("commit")) {
+				calls.add("commit");
+			}
+			Object result = invoke(target, method, args);
+			if (result instanceof PreparedStatement statement) {
+				return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+					if (m.getName().equals("executeBatch")) {
+						calls.add("batch");
+					}
+					return invoke(statement, m, a);
+				});
+			}
+			return result;
+		});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
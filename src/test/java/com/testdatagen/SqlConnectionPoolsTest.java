@@ -0,0 +1,222 @@
+package com.testdatagen;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SqlConnectionPools} against in-memory H2 databases
+ */
+class SqlConnectionPoolsTest {
+
+	private static final String USER = "sa";
+	private static final String PASSWORD = "secret";
+
+	private SqlConnectionPools pools;
+
+	@AfterEach
+	void closePools() {
+		if (pools != null) {
+			pools.closeAll();
+		}
+	}
+
+	private static String database(String name) {
+		return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+	}
+
+	private static SqlConnectionPools create(int maxPools, long idleTimeoutMinutes) {
+		return new SqlConnectionPools(maxPools, 2, idleTimeoutMinutes, 0, 1000, new SimpleMeterRegistry());
+	}
+
+	private void use(String jdbc) throws SQLException {
+		try (Connection connection = pools.getConnection(jdbc, USER, PASSWORD)) {
+			assertTrue(connection.isValid(1));
+		}
+	}
+
+	/**
+	 * JDBC URLs of the open pools, in no particular order
+	 */
+	private List<String> openPools() {
+		List<String> urls = new ArrayList<>();
+		pools.stats().forEach(stats -> urls.add(((JSONObject) stats).getString("jdbc")));
+		return urls;
+	}
+
+	@Test
+	void reusesPoolForSameUrlAndUser() throws SQLException {
+		pools = create(5, 10);
+		String jdbc = database("reuse");
+		use(jdbc);
+		use(jdbc);
+
+		JSONArray stats = pools.stats();
+		assertEquals(1, stats.length());
+		assertEquals(2, stats.getJSONObject(0).getLong("borrowed"));
+	}
+
+	@Test
+	void wrongPasswordLeavesPoolInPlace() throws SQLException {
+		pools = create(5, 10);
+		String jdbc = database("password");
+		use(jdbc);
+		String poolName = pools.stats().getJSONObject(0).getString("pool");
+
+		assertThrows(SQLException.class, () -> pools.getConnection(jdbc, USER, "wrong"));
+
+		JSONArray stats = pools.stats();
+		assertEquals(1, stats.length());
+		assertEquals(poolName, stats.getJSONObject(0).getString("pool"));
+		use(jdbc);
+		assertEquals(2, pools.stats().getJSONObject(0).getLong("borrowed"));
+	}
+
+	@Test
+	void evictsIdlePoolsWithoutBorrowedConnections() throws Exception {
+		pools = create(5, 0);
+		use(database("idle"));
+		try (Connection busy = pools.getConnection(database("busy"), USER, PASSWORD)) {
+			Thread.sleep(5);
+			pools.evictIdle();
+			assertEquals(List.of(database("busy")), openPools());
+		}
+		Thread.sleep(5);
+		pools.evictIdle();
+		assertEquals(List.of(), openPools());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedPoolAtMaxPools() throws Exception {
+		pools = create(2, 10);
+		use(database("lru-a"));
+		Thread.sleep(5);
+		use(database("lru-b"));
+		Thread.sleep(5);
+		use(database("lru-c"));
+
+		List<String> open = openPools();
+		assertEquals(2, open.size());
+		assertTrue(open.containsAll(List.of(database("lru-b"), database("lru-c"))));
+	}
+
+	@Test
+	void skipsPoolsWithBorrowedConnectionsAtMaxPools() throws Exception {
+		pools = create(2, 10);
+		try (Connection busy = pools.getConnection(database("skip-a"), USER, PASSWORD)) {
+			Thread.sleep(5);
+			use(database("skip-b"));
+			Thread.sleep(5);
+			// skip-a is least recently used, but has a borrowed connection
+			use(database("skip-c"));
+
+			List<String> open = openPools();
+			assertEquals(2, open.size());
+			assertTrue(open.containsAll(List.of(database("skip-a"), database("skip-c"))));
+			assertTrue(busy.isValid(1));
+		}
+	}
+
+	@Test
+	void refusesNewPoolWhenEveryPoolIsBusy() throws Exception {
+		pools = create(2, 10);
+		try (Connection first = pools.getConnection(database("busy-a"), USER, PASSWORD);
+				Connection second = pools.getConnection(database("busy-b"), USER, PASSWORD)) {
+			SQLException e = assertThrows(SQLException.class,
+					() -> pools.getConnection(database("busy-c"), USER, PASSWORD));
+			assertInstanceOf(SqlConnectionPools.PoolsExhaustedException.class, e);
+
+			List<String> open = openPools();
+			assertEquals(2, open.size());
+			assertTrue(open.containsAll(List.of(database("busy-a"), database("busy-b"))));
+			assertTrue(first.isValid(1) && second.isValid(1));
+		}
+	}
+
+	@Test
+	void passwordChangeKeepsOldPoolOpenUntilItsConnectionsAreReturned() throws Exception {
+		pools = create(5, 10);
+		String jdbc = database("rotate");
+		Connection busy = pools.getConnection(jdbc, USER, PASSWORD);
+		String oldPool = pools.stats().getJSONObject(0).getString("pool");
+		try (Statement statement = busy.createStatement()) {
+			statement.execute("ALTER USER " + USER + " SET PASSWORD 'rotated'");
+		}
+
+		try (Connection connection = pools.getConnection(jdbc, USER, "rotated")) {
+			assertTrue(connection.isValid(1));
+		}
+		assertEquals(1, pools.stats().length());
+		assertNotEquals(oldPool, pools.stats().getJSONObject(0).getString("pool"));
+		assertEquals(1, pools.retiredPools());
+
+		// The connection borrowed before the change still works, and keeps its pool open
+		pools.evictIdle();
+		try (Statement statement = busy.createStatement(); ResultSet rs = statement.executeQuery("SELECT 1")) {
+			assertTrue(rs.next());
+		}
+		assertEquals(1, pools.retiredPools());
+
+		busy.close();
+		pools.evictIdle();
+		assertEquals(0, pools.retiredPools());
+		assertEquals(1, pools.stats().length());
+	}
+
+	@Test
+	void borrowingSurvivesPoolsClosedConcurrently() throws Exception {
+		pools = create(5, 0);
+		String jdbc = database("concurrent");
+		AtomicBoolean done = new AtomicBoolean();
+		Thread sweeper = new Thread(() -> {
+			while (!done.get()) {
+				pools.evictIdle();
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		sweeper.start();
+		ExecutorService borrowers = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int thread = 0; thread < 4; thread++) {
+				results.add(borrowers.submit(() -> {
+					for (int i = 0; i < 200; i++) {
+						use(jdbc);
+					}
+					return null;
+				}));
+			}
+			// A borrow from a pool closed after it was looked up is retried on a new pool
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			done.set(true);
+			sweeper.join();
+			borrowers.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.testdatagen;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * /SQL against an in-memory H2 database
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"testdatagen.sql.mask-key=endpoint test key", "testdatagen.sql.insert.max-writers=3"})
+class SqlEndpointTest {
+
+	private static final String JDBC = "jdbc:h2:mem:sql_endpoint;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@BeforeAll
+	static void createTable() throws SQLException {
+		try (Connection connection = DriverManager.getConnection(JDBC, "sa", "");
+			 Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE kund (id INT, pnr VARCHAR(13), email VARCHAR(64))");
+			statement.execute("INSERT INTO kund VALUES (1, '811228-9874', 'anna@example.se'), (2, '198112289874', 'bo@example.se')");
+			statement.execute("CREATE TABLE person (id INT PRIMARY KEY, pnr VARCHAR(13), namn VARCHAR(64))");
+		}
+	}
+
+	private ResponseEntity<String> query(JSONObject mask) {
+		return post("/SQL", new JSONObject().put("sql", "SELECT id, pnr, email FROM kund ORDER BY id").put("mask", mask));
+	}
+
+	private ResponseEntity<String> post(String path, JSONObject body) {
+		body.put("jdbc", JDBC).put("user", "sa").put("password", "");
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		return rest.postForEntity(path, new HttpEntity<>(body.toString(), headers), String.class);
+	}
+
+	@Test
+	void masksColumnsConsistentlyAcrossRequests() {
+		ResponseEntity<String> response = query(new JSONObject().put("PNR", "Personnummer").put("email", "email"));
+		assertEquals(200, response.getStatusCode().value());
+		String[] lines = response.getBody().split("\n");
+		assertEquals(3, lines.length, response.getBody());
+		String[] first = lines[1].split(";");
+		String[] second = lines[2].split(";");
+		assertEquals("1", first[0]);
+		// Both forms of the same number map to the same fake number
+		assertEquals(first[1], second[1]);
+		assertNotEquals("811228-9874", first[1]);
+		assertTrue(first[2].contains("@") && !first[2].equals("anna@example.se"), first[2]);
+
+		assertEquals(response.getBody(), query(new JSONObject().put("pnr", "Personnummer").put("EMAIL", "email")).getBody());
+	}
+
+	@Test
+	void insertsRowsWithSeveralWriters() {
+		JSONArray columns = new JSONArray("[{\"name\":\"id\",\"type\":\"row\"}," +
+				"{\"name\":\"pnr\",\"type\":\"field\",\"field\":\"Personnummer\"},{\"name\":\"namn\",\"type\":\"field\",\"field\":\"namn\"}]");
+		ResponseEntity<String> response = post("/SQL/insert", new JSONObject().put("table", "person").put("antal", 2500)
+				.put("seed", 1).put("writers", 3).put("batchSize", 200).put("commitInterval", 400).put("columns", columns));
+		assertEquals(200, response.getStatusCode().value(), response.getBody());
+		JSONObject result = new JSONObject(response.getBody());
+		assertEquals(2500, result.getLong("rows"));
+		assertEquals(3, result.getInt("writers"));
+		assertEquals("2500", countRows());
+
+		// A failing writer reports the rows committed before it: the ids of the first 2500 rows are taken
+		ResponseEntity<String> failed = post("/SQL/insert", new JSONObject().put("table", "person").put("antal", 10)
+				.put("seed", 1).put("writers", 1).put("columns", columns));
+		assertEquals(500, failed.getStatusCode().value());
+		assertTrue(failed.getBody().endsWith("(0 rows committed)"), failed.getBody());
+
+		// More writers than the shared writer threads can never be admitted
+		ResponseEntity<String> tooMany = post("/SQL/insert", new JSONObject().put("table", "person").put("antal", 10).put("writers", 4));
+		assertEquals(400, tooMany.getStatusCode().value());
+		assertEquals("writers must be between 1 and 3", tooMany.getBody());
+	}
+
+	private String countRows() {
+		String[] lines = post("/SQL", new JSONObject().put("sql", "SELECT COUNT(*) FROM person")).getBody().split("\n");
+		return lines[1];
+	}
+
+	@Test
+	void unknownColumnOrRuleIsABadRequest() {
+		ResponseEntity<String> column = query(new JSONObject().put("telefon", "telefon"));
+		assertEquals(400, column.getStatusCode().value());
+		assertEquals("mask column telefon is not in the result", column.getBody());
+
+		ResponseEntity<String> rule = query(new JSONObject().put("email", "ssn"));
+		assertEquals(400, rule.getStatusCode().value());
+		assertTrue(rule.getBody().startsWith("mask rules must be hash or one of "), rule.getBody());
+	}
+}
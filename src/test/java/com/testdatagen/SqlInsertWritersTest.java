@@ -0,0 +1,83 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Admission and failure handling of the shared /SQL/insert writer threads
+ */
+class SqlInsertWritersTest {
+
+	private SqlInsertWriters writers;
+
+	@AfterEach
+	void shutdown() {
+		writers.shutdown();
+	}
+
+	@Test
+	void admitsWritersUpToTheLimit() {
+		writers = new SqlInsertWriters(4, false);
+		assertTrue(writers.tryAcquire(3));
+		assertFalse(writers.tryAcquire(2));
+		assertTrue(writers.tryAcquire(1));
+		assertEquals(4, writers.activeWriters());
+		writers.release(3);
+		assertTrue(writers.tryAcquire(2));
+		writers.release(3);
+		assertEquals(0, writers.activeWriters());
+	}
+
+	@Test
+	void failedWriterInterruptsTheOthers() {
+		failedWriterInterruptsTheOthers(false);
+	}
+
+	@Test
+	void failedWriterInterruptsTheOthersOnVirtualThreads() {
+		failedWriterInterruptsTheOthers(true);
+	}
+
+	private void failedWriterInterruptsTheOthers(boolean virtualThreads) {
+		writers = new SqlInsertWriters(2, virtualThreads);
+		CountDownLatch blocked = new CountDownLatch(1);
+		AtomicBoolean interrupted = new AtomicBoolean();
+		AtomicBoolean queuedRan = new AtomicBoolean();
+		ExecutionException e = assertThrows(ExecutionException.class, () -> writers.runAll(List.of(
+				() -> {
+					blocked.countDown();
+					try {
+						Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+					} catch (InterruptedException stopped) {
+						interrupted.set(true);
+					}
+					return null;
+				},
+				() -> {
+					blocked.await();
+					throw new SQLException("writer failed");
+				},
+				// Only starts, on the platform pool, after one of the two above has finished
+				() -> {
+					queuedRan.set(!virtualThreads);
+					return null;
+				})));
+		assertInstanceOf(SQLException.class, e.getCause());
+		assertEquals("writer failed", e.getCause().getMessage());
+		assertTrue(interrupted.get());
+		assertFalse(queuedRan.get());
+	}
+}
@@ -0,0 +1,73 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Permits of streaming responses that the async task executor, here with a single thread, turns away
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.task.execution.pool.core-size=1",
+		"spring.task.execution.pool.max-size=1",
+		"spring.task.execution.pool.queue-capacity=0"})
+class StreamAdmissionTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private GenerationExecutor generation;
+
+	@Autowired
+	private DataFeed feed;
+
+	@LocalServerPort
+	private int port;
+
+	private static void awaitEquals(int expected, IntSupplier actual) throws InterruptedException {
+		// The permit of a rejected stream is released when its request completes, just after the response is sent
+		for (int i = 0; i < 500 && actual.getAsInt() != expected; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, actual.getAsInt());
+	}
+
+	@Test
+	void rejectedStreamsReleaseTheirPermits() throws Exception {
+		HttpClient client = HttpClient.newHttpClient();
+		HttpResponse<InputStream> running = client.send(HttpRequest.newBuilder(
+				URI.create("http://localhost:" + port + "/RandomFeed?type=uuid&rate=10&batch=1")).build(),
+				HttpResponse.BodyHandlers.ofInputStream());
+		try (InputStream body = running.body()) {
+			assertEquals(200, running.statusCode());
+			// Once a row has arrived, the feed holds the only async thread
+			assertNotNull(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)).readLine());
+			assertEquals(1, feed.subscribers());
+
+			for (String stream : new String[]{"/RandomUUIDStream?antal=10", "/RandomPersonStream?antal=10"}) {
+				assertTrue(rest.getForEntity(stream, String.class).getStatusCode().isError(), stream);
+				awaitEquals(0, generation::activeRequests);
+			}
+			assertTrue(rest.getForEntity("/RandomFeed?rate=10", String.class).getStatusCode().isError());
+			awaitEquals(1, feed::subscribers);
+		}
+		awaitEquals(0, feed::subscribers);
+	}
+}
@@ -0,0 +1,149 @@
+package com.testdatagen;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bit layouts, ordering and text encodings of {@link UuidWriter}
+ */
+class UuidWriterTest {
+
+	private static final String CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+	/**
+	 * Always returns the same value, so the random bits of an id are known
+	 */
+	private static final RandomGenerator FIXED = () -> 0x0123456789ABCDEFL;
+
+	private static List<String> write(UuidWriter.Version version, int count, RandomGenerator random, long firstSequence) {
+		byte[] out = UuidWriter.write(version, count, random, null, 0, firstSequence);
+		assertEquals(count * (version.length + 1), out.length);
+		return List.of(new String(out, StandardCharsets.US_ASCII).split("\n"));
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = UuidWriter.Version.class, names = {"V4", "V7"})
+	void everyLineIsACanonicalUuidOfItsVersion(UuidWriter.Version version) {
+		int expectedVersion = version == UuidWriter.Version.V4 ? 4 : 7;
+		for (String line : write(version, 10_000, new SplittableRandom(1), UuidWriter.reserve(10_000))) {
+			UUID uuid = UUID.fromString(line);
+			assertEquals(line, uuid.toString());
+			assertEquals(expectedVersion, uuid.version(), line);
+			// Variant 10 in binary
+			assertEquals(2, uuid.variant(), line);
+		}
+	}
+
+	@Test
+	void v7LayoutHoldsMillisecondsCounterAndRandomBits() {
+		long millis = 0x0192_3456_789AL;
+		long counter = 0b10_1100_1110_0011_0101L;
+		UUID uuid = UUID.fromString(write(UuidWriter.Version.V7, 1, FIXED, millis << UuidWriter.COUNTER_BITS | counter).get(0));
+
+		assertEquals(millis, uuid.getMostSignificantBits() >>> 16);
+		assertEquals(0x7, uuid.getMostSignificantBits() >>> 12 & 0xF);
+		assertEquals(counter >>> 6, uuid.getMostSignificantBits() & 0xFFF);
+		assertEquals(0b10, uuid.getLeastSignificantBits() >>> 62);
+		assertEquals(counter & 0x3F, uuid.getLeastSignificantBits() >>> 56 & 0x3F);
+		assertEquals(0x0123456789ABCDEFL >>> 8, uuid.getLeastSignificantBits() & 0xFF_FFFF_FFFF_FFFFL);
+	}
+
+	@Test
+	void ulidDecodesToMillisecondsCounterAndRandomBits() {
+		long millis = System.currentTimeMillis();
+		long counter = (1L << UuidWriter.COUNTER_BITS) - 3;
+		String ulid = write(UuidWriter.Version.ULID, 1, FIXED, millis << UuidWriter.COUNTER_BITS | counter).get(0);
+		assertEquals(26, ulid.length());
+
+		BigInteger value = decodeCrockford(ulid);
+		assertTrue(value.bitLength() <= 128);
+		assertEquals(millis, value.shiftRight(80).longValueExact());
+		assertEquals(counter, value.shiftRight(62).longValue() & ((1L << UuidWriter.COUNTER_BITS) - 1));
+		assertEquals(0x0123456789ABCDEFL >>> 2, value.longValue() & 0x3FFF_FFFF_FFFF_FFFFL);
+	}
+
+	@Test
+	void ulidEncodesEdgeValues() {
+		assertEquals("00000000000000000000000000", write(UuidWriter.Version.ULID, 1, () -> 0L, 0).get(0));
+
+		// The last sequence number a long can hold, with every random bit set
+		String ulid = write(UuidWriter.Version.ULID, 1, () -> -1L, Long.MAX_VALUE).get(0);
+		BigInteger expected = BigInteger.valueOf(Long.MAX_VALUE >>> UuidWriter.COUNTER_BITS).shiftLeft(80)
+				.or(BigInteger.valueOf((1L << UuidWriter.COUNTER_BITS) - 1).shiftLeft(62))
+				.or(BigInteger.ONE.shiftLeft(62).subtract(BigInteger.ONE));
+		assertEquals(expected, decodeCrockford(ulid));
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = UuidWriter.Version.class, names = {"V7", "ULID"})
+	void idsIncreaseWithinAndAcrossReservations(UuidWriter.Version version) {
+		SplittableRandom random = new SplittableRandom(3);
+		// Far more ids than fit in one millisecond, so the counter carries into the time bits
+		int count = 1 << (UuidWriter.COUNTER_BITS + 1);
+		long before = System.currentTimeMillis();
+		long first = UuidWriter.reserve(count);
+		long second = UuidWriter.reserve(count);
+		assertTrue(first >>> UuidWriter.COUNTER_BITS >= before);
+		assertTrue(second >= first + count);
+
+		List<String> ids = new ArrayList<>(write(version, count, random, first));
+		ids.addAll(write(version, 1000, random, second));
+		String previous = "";
+		for (String id : ids) {
+			assertTrue(id.compareTo(previous) > 0, id + " after " + previous);
+			previous = id;
+		}
+		if (version == UuidWriter.Version.V7) {
+			UUID last = UUID.fromString(ids.get(count - 1));
+			UUID next = UUID.fromString(ids.get(count));
+			assertTrue(Long.compareUnsigned(last.getMostSignificantBits(), next.getMostSignificantBits()) < 0);
+		}
+	}
+
+	@Test
+	void reserveNeverHandsOutTheSameSequenceTwice() throws Exception {
+		int threads = 4;
+		int calls = 10_000;
+		long[][] firsts = new long[threads][calls];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			workers[t] = new Thread(() -> {
+				for (int call = 0; call < calls; call++) {
+					firsts[thread][call] = UuidWriter.reserve(3);
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		long[] all = Arrays.stream(firsts).flatMapToLong(Arrays::stream).sorted().toArray();
+		for (int i = 1; i < all.length; i++) {
+			assertTrue(all[i] >= all[i - 1] + 3, "overlapping reservations at " + all[i]);
+		}
+	}
+
+	private static BigInteger decodeCrockford(String text) {
+		BigInteger value = BigInteger.ZERO;
+		for (char c : text.toCharArray()) {
+			int digit = CROCKFORD.indexOf(c);
+			assertTrue(digit >= 0, "not a Crockford digit: " + c);
+			value = value.shiftLeft(5).or(BigInteger.valueOf(digit));
+		}
+		return value;
+	}
+}